@@ -0,0 +1,75 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import shell.MiniShell;
+import tokenizer.TLine;
+import tokenizer.Tokenizer;
+
+import java.util.concurrent.TimeUnit;
+
+// Caudal de una tubería completa a través de MiniShell.pipes:
+//   head -c N /dev/zero | <etapa> | ... | sh -c 'cat > /dev/null'
+// El contador auxiliar "megabytes" da directamente los MB/s que atraviesan la tubería.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PipelineBenchmark {
+
+    // Número de etapas intermedias entre el productor y el consumidor.
+    @Param({"1", "2", "4", "8"})
+    public int stages;
+
+    // "cat" es el builtin (hilo virtual en la JVM); "/bin/cat" fuerza un proceso externo.
+    @Param({"cat", "/bin/cat"})
+    public String stage;
+
+    // Megabytes que produce la primera etapa en cada ejecución.
+    @Param({"64"})
+    public int megabytes;
+
+    private TLine tline;
+
+    // Megabytes movidos, como contador auxiliar que JMH normaliza por segundo (MB/s).
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Transferred {
+        public long megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        StringBuilder sb = new StringBuilder("head -c " + megabytes + "M /dev/zero");
+        for (int i = 0; i < stages; i++) {
+            sb.append(" | ").append(stage);
+        }
+        sb.append(" | sh -c 'cat > /dev/null'");
+        tline = Tokenizer.tokenize(sb.toString());
+    }
+
+    @Benchmark
+    public int pipes(Transferred transferred) {
+        int status = MiniShell.pipes(tline);
+        transferred.megabytes += megabytes;
+        return status;
+    }
+}
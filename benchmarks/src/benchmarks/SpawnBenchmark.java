@@ -0,0 +1,44 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import shell.MiniShell;
+import tokenizer.TLine;
+import tokenizer.Tokenizer;
+
+import java.util.concurrent.TimeUnit;
+
+// Latencia de lanzar y esperar un único comando a través de MiniShell.executeSimple.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpawnBenchmark {
+
+    // Comando sin salida: por nombre (pasa por la caché de $PATH) o por ruta absoluta.
+    @Param({"true", "/bin/true"})
+    public String command;
+
+    private TLine tline;
+
+    @Setup
+    public void setup() throws Exception {
+        tline = Tokenizer.tokenize(command);
+    }
+
+    @Benchmark
+    public int executeSimple() {
+        return MiniShell.executeSimple(tline);
+    }
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import shell.Plan;
+import tokenizer.TLine;
+import tokenizer.TList;
+import tokenizer.Tokenizer;
+
+import java.util.concurrent.TimeUnit;
+
+// Rendimiento de Tokenizer.tokenize sobre líneas realistas y líneas extremas, y de la misma línea
+// repetida (como en un bucle) con la caché de planes.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    // Tipo de línea que se tokeniza en cada ejecución.
+    @Param({"simple", "realistic", "quoted", "longArgv", "manyRedirects", "deepPipeline"})
+    public String shape;
+
+    private String line;
+
+    @Setup
+    public void setup() {
+        line = switch (shape) {
+            case "simple" -> "ls -la";
+            case "realistic" -> "cat /var/log/syslog | grep -i error | sort | uniq -c > errors.txt 2>> errors.log &";
+            case "quoted" -> "grep \"a | b\" 'file with spaces.txt' escaped\\ arg \"x\"'y'z > \"out file\"";
+            case "longArgv" -> "echo " + repeat("argument_%d ", 2000);
+            case "manyRedirects" -> repeat("cmd%d < in > out >> app 2> err 2>> errapp ", 200);
+            case "deepPipeline" -> "cat f" + repeat(" | filter%d --opt value", 200);
+            default -> throw new IllegalArgumentException(shape);
+        };
+    }
+
+    // Repite el patrón n veces sustituyendo %d por el índice.
+    private static String repeat(String pattern, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(pattern.replace("%d", Integer.toString(i)));
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public TLine tokenize() throws Exception {
+        return Tokenizer.tokenize(line);
+    }
+
+    @Benchmark
+    public TList parse() throws Exception {
+        return Tokenizer.parse(line);
+    }
+
+    @Benchmark
+    public Plan cachedPlan() throws Exception {
+        return Plan.compile(line);
+    }
+}
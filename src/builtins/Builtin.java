@@ -0,0 +1,24 @@
+package builtins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+// Interfaz de un comando interno que se ejecuta dentro de la propia JVM, sin fork/exec.
+// Se puede usar como comando suelto o como etapa de una tubería junto a comandos externos.
+// Los flujos in/out/err pertenecen a quien llama: el builtin no debe cerrarlos.
+public interface Builtin {
+
+    // Tamaño del buffer de lectura que usan los builtins de texto.
+    int BUFFER_SIZE = 64 * 1024;
+
+    // Ejecuta el comando con sus argumentos (argv[0] es el nombre) y devuelve el código de salida.
+    int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException;
+
+    // Indica si el builtin sabe ejecutar estos argumentos. Si devuelve false
+    // (por ejemplo, una opción que no soporta) se lanza el comando externo del sistema.
+    default boolean accepts(List<String> argv) {
+        return true;
+    }
+}
@@ -0,0 +1,107 @@
+package builtins;
+
+import shell.ShellContext;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Registro de los comandos internos disponibles.
+public final class Builtins {
+
+    // Tabla nombre -> implementación.
+    private static final Map<String, Builtin> BUILTINS = new HashMap<>();
+
+    static {
+        register("cat", new Cat());
+        register("head", new Head());
+        register("tail", new Tail());
+        register("wc", new Wc());
+        register("grep", new Grep());
+        register("tee", new Tee());
+        register("hash", new Hash());
+        register("type", new Type());
+        register("set", new Set());
+        register("export", new Export());
+        register("unset", new Unset());
+        register("jobs", new Jobs());
+        register("wait", new Wait());
+        register("joblog", new Joblog());
+        register("fg", new Fg());
+        register("kill", new Kill());
+        register("parallel", new Parallel());
+        register("stats", new Stats());
+        register("history", new History());
+        register("pfind", new Pfind());
+        register("pgrep-files", new PgrepFiles());
+    }
+
+    private Builtins() {
+    }
+
+    // Registra un builtin con el nombre indicado.
+    public static void register(String name, Builtin builtin) {
+        BUILTINS.put(name, builtin);
+    }
+
+    // Devuelve el builtin que puede ejecutar estos argumentos o null si hay que lanzar un proceso externo.
+    public static Builtin get(List<String> argv) {
+        if (argv == null || argv.isEmpty()) {
+            return null;
+        }
+        Builtin builtin = BUILTINS.get(argv.getFirst());
+        if (builtin == null || !builtin.accepts(argv)) {
+            return null;
+        }
+        return builtin;
+    }
+
+    // Nombres de todos los builtins registrados.
+    public static java.util.Set<String> names() {
+        return BUILTINS.keySet();
+    }
+
+    // Indica si el nombre lo resuelve la propia shell (builtins registrados, cd, exit, time y timeout).
+    public static boolean isShellBuiltin(String name) {
+        return BUILTINS.containsKey(name) || name.equals("cd") || name.equals("exit") || name.equals("time")
+                || name.equals("timeout");
+    }
+
+    // Resuelve una ruta relativa respecto al directorio actual del intérprete.
+    public static File resolve(String path) {
+        return ShellContext.current().resolve(path);
+    }
+
+    // Abre un fichero de entrada. Si no se puede abrir, informa del error y devuelve null
+    // para que el builtin continúe con el resto de ficheros.
+    static InputStream open(String command, String name, OutputStream err) throws IOException {
+        try {
+            return new FileInputStream(resolve(name));
+        } catch (IOException e) {
+            error(err, command + ": " + name + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Escribe un mensaje de error en el flujo de errores del builtin.
+    static void error(OutputStream err, String message) throws IOException {
+        err.write((message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        err.flush();
+    }
+
+    // Convierte un argumento numérico, devolviendo -1 si no es válido.
+    static long parseCount(String value) {
+        try {
+            long n = Long.parseLong(value);
+            return n < 0 ? -1 : n;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package builtins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+// cat [fichero...]: copia los ficheros (o la entrada estándar) a la salida.
+public class Cat implements Builtin {
+
+    @Override
+    public boolean accepts(List<String> argv) {
+        // Solo se soportan nombres de fichero y "-"; cualquier opción va al cat del sistema.
+        for (int i = 1; i < argv.size(); i++) {
+            String arg = argv.get(i);
+            if (arg.startsWith("-") && !arg.equals("-")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        // Sin argumentos se copia la entrada estándar.
+        if (argv.size() < 2) {
+            copy(in, out, buffer);
+            out.flush();
+            return 0;
+        }
+
+        int status = 0;
+        for (int i = 1; i < argv.size(); i++) {
+            String name = argv.get(i);
+            if (name.equals("-")) {
+                copy(in, out, buffer);
+                continue;
+            }
+            // Un fichero que no se puede abrir no impide copiar el resto.
+            InputStream file = Builtins.open("cat", name, err);
+            if (file == null) {
+                status = 1;
+                continue;
+            }
+            try (file) {
+                copy(file, out, buffer);
+            }
+        }
+        out.flush();
+        return status;
+    }
+
+    // Copia un flujo completo usando el buffer indicado.
+    static void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package builtins;
+
+import shell.ShellContext;
+import tokenizer.Tokenizer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// export [VAR[=valor]...]: pasa variables al entorno de los comandos que lance la shell.
+// Sin argumentos muestra las variables exportadas.
+public class Export implements Builtin {
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        ShellContext context = ShellContext.current();
+        if (argv.size() < 2) {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, String> variable : new TreeMap<>(context.environment().toMap()).entrySet()) {
+                sb.append("export ").append(variable.getKey()).append("=\"").append(variable.getValue()).append("\"\n");
+            }
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            return 0;
+        }
+
+        int status = 0;
+        for (String arg : argv.subList(1, argv.size())) {
+            int equals = arg.indexOf('=');
+            String name = equals < 0 ? arg : arg.substring(0, equals);
+            if (!isName(name)) {
+                Builtins.error(err, "export: '" + arg + "': no es un identificador válido");
+                status = 1;
+                continue;
+            }
+            context.export(name, equals < 0 ? null : arg.substring(equals + 1));
+        }
+        return status;
+    }
+
+    // Indica si el texto es un nombre de variable válido.
+    static boolean isName(String name) {
+        if (name.isEmpty() || !Tokenizer.isNameStart(name.charAt(0))) {
+            return false;
+        }
+        return name.chars().allMatch(c -> Tokenizer.isNamePart((char) c));
+    }
+}
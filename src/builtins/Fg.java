@@ -0,0 +1,41 @@
+package builtins;
+
+import shell.JobTable;
+import shell.ShellContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// fg [%n]: trae un trabajo al primer plano, es decir, la shell espera a que termine.
+public class Fg implements Builtin {
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        JobTable jobs = ShellContext.current().jobs();
+        String spec = argv.size() > 1 ? argv.get(1) : "%%";
+        JobTable.Job job = jobs.find(spec, true);
+        if (job == null) {
+            Builtins.error(err, "fg: " + spec + ": no existe ese trabajo");
+            return 1;
+        }
+
+        // Se muestra el comando, como hace bash, antes de esperar.
+        String command = job.getCommand();
+        if (command.endsWith(" &")) {
+            command = command.substring(0, command.length() - 2);
+        }
+        out.write((command + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        try {
+            return job.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        } finally {
+            jobs.remove(job);
+        }
+    }
+}
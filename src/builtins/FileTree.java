@@ -0,0 +1,104 @@
+package builtins;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Recorrido recursivo de un árbol de directorios en paralelo, para pfind y pgrep-files.
+// Cada subdirectorio es una tarea del ForkJoinPool común; el resultado sale siempre en el mismo
+// orden (preorden, con las entradas de cada directorio ordenadas por nombre) aunque los
+// directorios se lean a la vez. No se siguen los enlaces simbólicos a directorios.
+final class FileTree {
+
+    // Entrada del árbol: la ruta tal como se muestra (partiendo de la que escribió el usuario),
+    // la ruta real y si es un directorio. Si el directorio no se pudo leer, 'error' dice por qué.
+    record Entry(String display, Path path, boolean directory, String error) {
+    }
+
+    private FileTree() {
+    }
+
+    // Recorre el árbol que empieza en 'root' hasta 'maxDepth' niveles por debajo, sin entrar en
+    // los directorios cuyo nombre está en 'excluded'. La primera entrada es la propia raíz.
+    static List<Entry> walk(Path root, String display, int maxDepth, Set<String> excluded) {
+        if (!Files.isDirectory(root)) {
+            return List.of(new Entry(display, root, false, null));
+        }
+        List<Entry> entries = new ArrayList<>();
+        entries.add(new Entry(display, root, true, null));
+        if (maxDepth > 0) {
+            entries.addAll(ForkJoinPool.commonPool().invoke(new Walk(root, display, 1, maxDepth, excluded)));
+        }
+        return entries;
+    }
+
+    private static final class Walk extends RecursiveTask<List<Entry>> {
+        private final Path dir;
+        private final String display;
+        private final int depth;
+        private final int maxDepth;
+        private final Set<String> excluded;
+
+        Walk(Path dir, String display, int depth, int maxDepth, Set<String> excluded) {
+            this.dir = dir;
+            this.display = display;
+            this.depth = depth;
+            this.maxDepth = maxDepth;
+            this.excluded = excluded;
+        }
+
+        @Override
+        protected List<Entry> compute() {
+            List<Path> children = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path child : stream) {
+                    children.add(child);
+                }
+            } catch (IOException e) {
+                return List.of(new Entry(display, dir, true, e.getClass().getSimpleName() + ": " + e.getMessage()));
+            }
+            children.sort((a, b) -> a.getFileName().toString().compareTo(b.getFileName().toString()));
+
+            // Primero se lanzan los subdirectorios y después se monta el resultado en orden.
+            List<Entry> own = new ArrayList<>(children.size());
+            List<Walk> subtasks = new ArrayList<>(children.size());
+            for (Path child : children) {
+                String name = child.getFileName().toString();
+                boolean directory = Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS);
+                if (directory && excluded.contains(name)) {
+                    own.add(null);
+                    subtasks.add(null);
+                    continue;
+                }
+                String childDisplay = display.endsWith("/") ? display + name : display + "/" + name;
+                own.add(new Entry(childDisplay, child, directory, null));
+                subtasks.add(directory && depth < maxDepth
+                        ? new Walk(child, childDisplay, depth + 1, maxDepth, excluded) : null);
+            }
+            List<Walk> forked = subtasks.stream().filter(task -> task != null).toList();
+            if (forked.size() > 1) {
+                invokeAll(forked);
+            }
+
+            List<Entry> out = new ArrayList<>();
+            for (int i = 0; i < own.size(); i++) {
+                if (own.get(i) == null) {
+                    continue;
+                }
+                out.add(own.get(i));
+                Walk task = subtasks.get(i);
+                if (task != null) {
+                    out.addAll(forked.size() > 1 ? task.join() : task.compute());
+                }
+            }
+            return out;
+        }
+    }
+}
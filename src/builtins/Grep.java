@@ -0,0 +1,275 @@
+package builtins;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// grep [-vicnqlhFE] patrón [fichero...]: muestra las líneas que contienen el patrón.
+// Las líneas se buscan directamente sobre el buffer de bytes. Los patrones sin metacaracteres
+// se comparan byte a byte; el resto se evalúa con java.util.regex reutilizando el Matcher.
+public class Grep implements Builtin {
+
+    // Caracteres que en una expresión regular básica (sin -E) significan algo distinto en Java.
+    private static final String BRE_UNSUPPORTED = "\\+?|(){";
+
+    // Caracteres con significado especial en una expresión regular.
+    private static final String REGEX_META = ".[]*^$\\+?|(){}";
+
+    // Opciones ya interpretadas de una invocación.
+    private record Options(boolean invert, boolean ignoreCase, boolean count, boolean lineNumbers,
+                           boolean quiet, boolean listFiles, boolean noFilename, boolean fixed,
+                           String pattern, List<String> files) {
+    }
+
+    @Override
+    public boolean accepts(List<String> argv) {
+        return parse(argv) != null;
+    }
+
+    // Interpreta los argumentos. Devuelve null si hay alguna opción o sintaxis que no soportamos.
+    private static Options parse(List<String> argv) {
+        boolean invert = false, ignoreCase = false, count = false, lineNumbers = false;
+        boolean quiet = false, listFiles = false, noFilename = false, fixed = false, extended = false;
+        String pattern = null;
+        List<String> files = new ArrayList<>();
+        for (int i = 1; i < argv.size(); i++) {
+            String arg = argv.get(i);
+            if (pattern == null && arg.startsWith("-") && arg.length() > 1) {
+                for (int j = 1; j < arg.length(); j++) {
+                    switch (arg.charAt(j)) {
+                        case 'v' -> invert = true;
+                        case 'i' -> ignoreCase = true;
+                        case 'c' -> count = true;
+                        case 'n' -> lineNumbers = true;
+                        case 'q' -> quiet = true;
+                        case 'l' -> listFiles = true;
+                        case 'h' -> noFilename = true;
+                        case 'F' -> fixed = true;
+                        case 'E' -> extended = true;
+                        default -> {
+                            return null;
+                        }
+                    }
+                }
+            } else if (pattern == null) {
+                pattern = arg;
+            } else {
+                files.add(arg);
+            }
+        }
+        if (pattern == null) {
+            return null;
+        }
+        if (!fixed) {
+            // Las clases POSIX ([[:alpha:]]) y la sintaxis básica de grep se dejan al grep del sistema.
+            if (pattern.contains("[:") || (!extended && containsAny(pattern, BRE_UNSUPPORTED))) {
+                return null;
+            }
+            // Un patrón sin metacaracteres se puede buscar como texto fijo.
+            fixed = !containsAny(pattern, REGEX_META);
+        }
+        return new Options(invert, ignoreCase, count, lineNumbers, quiet, listFiles, noFilename,
+                fixed, pattern, files);
+    }
+
+    private static boolean containsAny(String s, String chars) {
+        for (int i = 0; i < s.length(); i++) {
+            if (chars.indexOf(s.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        Options options = parse(argv);
+        Searcher searcher = new Searcher(options, new BufferedOutputStream(out, BUFFER_SIZE));
+
+        boolean matched = false;
+        boolean error = false;
+        try {
+            if (options.files().isEmpty()) {
+                matched = searcher.search(in, null);
+            } else {
+                boolean prefix = options.files().size() > 1 && !options.noFilename();
+                for (String name : options.files()) {
+                    if (name.equals("-")) {
+                        matched |= searcher.search(in, prefix ? "(standard input)" : null);
+                        continue;
+                    }
+                    InputStream file = Builtins.open("grep", name, err);
+                    if (file == null) {
+                        error = true;
+                        continue;
+                    }
+                    try (file) {
+                        matched |= searcher.search(file, prefix || options.listFiles() ? name : null);
+                    }
+                    // Con -q basta la primera coincidencia.
+                    if (matched && options.quiet()) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            searcher.out.flush();
+        }
+
+        if (matched && options.quiet()) {
+            return 0;
+        }
+        return error ? 2 : matched ? 0 : 1;
+    }
+
+    // Estado de una búsqueda: buffer de entrada reutilizable y forma compilada del patrón.
+    private static final class Searcher {
+        private final Options options;
+        private final OutputStream out;
+        private final byte[] needle;
+        private final Matcher matcher;
+        private byte[] buffer = new byte[BUFFER_SIZE];
+
+        Searcher(Options options, OutputStream out) {
+            this.options = options;
+            this.out = out;
+            if (options.fixed() && !options.ignoreCase()) {
+                this.needle = options.pattern().getBytes(StandardCharsets.UTF_8);
+                this.matcher = null;
+            } else {
+                int flags = options.fixed() ? Pattern.LITERAL : 0;
+                if (options.ignoreCase()) {
+                    flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+                }
+                this.needle = null;
+                this.matcher = Pattern.compile(options.pattern(), flags).matcher("");
+            }
+        }
+
+        // Recorre el flujo línea a línea sobre el buffer. Devuelve true si alguna línea coincide.
+        boolean search(InputStream in, String name) throws IOException {
+            int start = 0;
+            int end = 0;
+            int scan = 0;
+            long lineNumber = 0;
+            long matches = 0;
+            boolean eof = false;
+
+            while (true) {
+                int newline = indexOf(buffer, (byte) '\n', scan, end);
+                if (newline < 0) {
+                    if (eof) {
+                        // Última línea sin salto de línea final.
+                        if (start < end && line(start, end, ++lineNumber, name)) {
+                            matches++;
+                        }
+                        break;
+                    }
+                    // Se mueve la línea incompleta al principio o se amplía el buffer si no cabe.
+                    if (start > 0) {
+                        System.arraycopy(buffer, start, buffer, 0, end - start);
+                        end -= start;
+                        start = 0;
+                    } else if (end == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                    scan = end;
+                    int n = in.read(buffer, end, buffer.length - end);
+                    if (n == -1) {
+                        eof = true;
+                    } else {
+                        end += n;
+                    }
+                    continue;
+                }
+
+                if (line(start, newline, ++lineNumber, name)) {
+                    matches++;
+                    // Con -q o -l no hace falta seguir leyendo este flujo.
+                    if (options.quiet() || options.listFiles()) {
+                        break;
+                    }
+                }
+                start = newline + 1;
+                scan = start;
+            }
+
+            if (options.listFiles() && matches > 0 && !options.quiet()) {
+                out.write((name != null ? name : "(standard input)").getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+            } else if (options.count() && !options.quiet() && !options.listFiles()) {
+                if (name != null) {
+                    out.write((name + ":").getBytes(StandardCharsets.UTF_8));
+                }
+                out.write(Long.toString(matches).getBytes(StandardCharsets.US_ASCII));
+                out.write('\n');
+            }
+            return matches > 0;
+        }
+
+        // Procesa la línea buffer[from, to). Devuelve true si cuenta como coincidencia.
+        private boolean line(int from, int to, long lineNumber, String name) throws IOException {
+            boolean found;
+            if (needle != null) {
+                found = contains(buffer, from, to, needle);
+            } else {
+                found = matcher.reset(new String(buffer, from, to - from, StandardCharsets.UTF_8)).find();
+            }
+            if (found == options.invert()) {
+                return false;
+            }
+            if (!options.count() && !options.quiet() && !options.listFiles()) {
+                if (name != null) {
+                    out.write(name.getBytes(StandardCharsets.UTF_8));
+                    out.write(':');
+                }
+                if (options.lineNumbers()) {
+                    out.write(Long.toString(lineNumber).getBytes(StandardCharsets.US_ASCII));
+                    out.write(':');
+                }
+                out.write(buffer, from, to - from);
+                out.write('\n');
+            }
+            return true;
+        }
+    }
+
+    // Primera posición de 'b' en data[from, to) o -1.
+    private static int indexOf(byte[] data, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Indica si 'needle' aparece dentro de data[from, to).
+    static boolean contains(byte[] data, int from, int to, byte[] needle) {
+        if (needle.length == 0) {
+            return true;
+        }
+        byte first = needle[0];
+        int last = to - needle.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            if (data[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < needle.length; j++) {
+                if (data[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
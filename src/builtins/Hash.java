@@ -0,0 +1,49 @@
+package builtins;
+
+import shell.CommandResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+// hash [-r] [comando...]: muestra, rellena o vacía la caché de rutas de comandos.
+public class Hash implements Builtin {
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        // hash -r: se olvidan todas las rutas guardadas.
+        if (argv.size() > 1 && argv.get(1).equals("-r")) {
+            CommandResolver.clear();
+            return 0;
+        }
+
+        // hash comando...: se resuelven y se guardan los comandos indicados.
+        if (argv.size() > 1) {
+            int status = 0;
+            for (String name : argv.subList(1, argv.size())) {
+                if (CommandResolver.resolve(name) == null) {
+                    Builtins.error(err, "hash: " + name + ": no encontrado");
+                    status = 1;
+                }
+            }
+            return status;
+        }
+
+        // hash sin argumentos: tabla con los usos y la ruta de cada comando.
+        Map<String, CommandResolver.Entry> entries = CommandResolver.entries();
+        if (entries.isEmpty()) {
+            out.write("hash: la tabla está vacía\n".getBytes(StandardCharsets.UTF_8));
+        } else {
+            StringBuilder sb = new StringBuilder("usos\tcomando\n");
+            for (CommandResolver.Entry entry : entries.values()) {
+                sb.append(String.format("%4d", entry.getHits())).append('\t').append(entry.getPath()).append('\n');
+            }
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        out.flush();
+        return 0;
+    }
+}
@@ -0,0 +1,97 @@
+package builtins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// head [-n N | -N] [fichero...]: muestra las primeras N líneas (10 por defecto).
+public class Head implements Builtin {
+
+    // Opciones ya interpretadas de una invocación.
+    private record Options(long lines, List<String> files) {
+    }
+
+    @Override
+    public boolean accepts(List<String> argv) {
+        return parse(argv) != null;
+    }
+
+    // Interpreta los argumentos. Devuelve null si hay alguna opción que no soportamos.
+    private static Options parse(List<String> argv) {
+        long lines = 10;
+        List<String> files = new ArrayList<>();
+        for (int i = 1; i < argv.size(); i++) {
+            String arg = argv.get(i);
+            if (arg.equals("-n") && i + 1 < argv.size()) {
+                lines = Builtins.parseCount(argv.get(++i));
+            } else if (arg.startsWith("-n") && arg.length() > 2) {
+                lines = Builtins.parseCount(arg.substring(2));
+            } else if (arg.length() > 1 && arg.startsWith("-") && Character.isDigit(arg.charAt(1))) {
+                lines = Builtins.parseCount(arg.substring(1));
+            } else if (arg.startsWith("-") && !arg.equals("-")) {
+                return null;
+            } else {
+                files.add(arg);
+            }
+            if (lines < 0) {
+                return null;
+            }
+        }
+        return new Options(lines, files);
+    }
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        Options options = parse(argv);
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        if (options.files().isEmpty()) {
+            head(in, out, options.lines(), buffer);
+            out.flush();
+            return 0;
+        }
+
+        int status = 0;
+        boolean headers = options.files().size() > 1;
+        for (int i = 0; i < options.files().size(); i++) {
+            String name = options.files().get(i);
+            // Con varios ficheros, cada bloque lleva una cabecera como en el head del sistema.
+            if (headers) {
+                String header = (i > 0 ? "\n" : "") + "==> " + name + " <==\n";
+                out.write(header.getBytes());
+            }
+            if (name.equals("-")) {
+                head(in, out, options.lines(), buffer);
+                continue;
+            }
+            InputStream file = Builtins.open("head", name, err);
+            if (file == null) {
+                status = 1;
+                continue;
+            }
+            try (file) {
+                head(file, out, options.lines(), buffer);
+            }
+        }
+        out.flush();
+        return status;
+    }
+
+    // Copia bytes hasta haber escrito 'lines' saltos de línea y deja de leer.
+    static void head(InputStream in, OutputStream out, long lines, byte[] buffer) throws IOException {
+        long remaining = lines;
+        int n;
+        while (remaining > 0 && (n = in.read(buffer)) != -1) {
+            int end = n;
+            for (int i = 0; i < n; i++) {
+                if (buffer[i] == '\n' && --remaining == 0) {
+                    end = i + 1;
+                    break;
+                }
+            }
+            out.write(buffer, 0, end);
+        }
+    }
+}
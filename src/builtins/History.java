@@ -0,0 +1,53 @@
+package builtins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// history [n] | history -r texto: muestra el historial numerado (entero o las últimas n líneas)
+// o, con -r, las entradas que contienen el texto, de la más reciente a la más antigua.
+public class History implements Builtin {
+
+    @Override
+    public boolean accepts(List<String> argv) {
+        if (argv.size() == 1) {
+            return true;
+        }
+        if (argv.get(1).equals("-r")) {
+            return argv.size() == 3;
+        }
+        return argv.size() == 2 && Builtins.parseCount(argv.get(1)) >= 0;
+    }
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        if (argv.size() == 3) {
+            // Búsqueda inversa: cada coincidencia parte de la anterior, como al repetir Ctrl-R.
+            String text = argv.get(2);
+            int id = shell.History.search(text, Integer.MAX_VALUE);
+            if (id == 0) {
+                return 1;
+            }
+            while (id > 0) {
+                line(sb, id, shell.History.get(id));
+                id = shell.History.search(text, id);
+            }
+        } else {
+            int size = shell.History.size();
+            int first = argv.size() == 2 ? size - (int) Math.min(Builtins.parseCount(argv.get(1)), size) + 1 : 1;
+            for (int id = first; id <= size; id++) {
+                line(sb, id, shell.History.get(id));
+            }
+        }
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        return 0;
+    }
+
+    private static void line(StringBuilder sb, int id, String entry) {
+        sb.append(String.format("%5d  ", id)).append(entry).append('\n');
+    }
+}
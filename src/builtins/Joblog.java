@@ -0,0 +1,125 @@
+package builtins;
+
+import shell.JobOutput;
+import shell.JobTable;
+import shell.ShellContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+// joblog [-e] [-n N] [-f] [%n]: muestra la salida capturada de un trabajo en segundo plano
+// (con set -o jobcapture o set -o joblog), por defecto la del último. -e muestra los errores en
+// lugar de la salida, -n solo las últimas N líneas y -f sigue mostrando lo que escriba hasta que
+// el trabajo termine.
+public class Joblog implements Builtin {
+
+    // Lo que se lee como mucho para buscar las últimas N líneas.
+    private static final int TAIL_WINDOW = 1024 * 1024;
+    // Cada cuánto se mira si el trabajo ha escrito algo más con -f.
+    private static final long FOLLOW_INTERVAL_MS = 200;
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        JobTable jobs = ShellContext.current().jobs();
+        boolean error = false;
+        boolean follow = false;
+        long lines = -1;
+        String spec = null;
+        for (int i = 1; i < argv.size(); i++) {
+            String arg = argv.get(i);
+            if (arg.equals("-e")) {
+                error = true;
+            } else if (arg.equals("-f")) {
+                follow = true;
+            } else if (arg.equals("-n") && i + 1 < argv.size()) {
+                lines = Builtins.parseCount(argv.get(++i));
+                if (lines < 0) {
+                    Builtins.error(err, "joblog: " + argv.get(i) + ": número de líneas no válido");
+                    return 2;
+                }
+            } else if (spec == null && !arg.startsWith("-")) {
+                spec = arg;
+            } else {
+                Builtins.error(err, "joblog: uso: joblog [-e] [-n líneas] [-f] [%trabajo]");
+                return 2;
+            }
+        }
+
+        JobTable.Job job = spec == null ? jobs.lastCaptured() : find(jobs, spec);
+        if (job == null) {
+            Builtins.error(err, spec == null
+                    ? "joblog: no hay ningún trabajo con la salida capturada (ver set -o jobcapture)"
+                    : "joblog: " + spec + ": no hay salida capturada de ese trabajo");
+            return 1;
+        }
+        JobOutput output = job.getOutput();
+
+        // Si el trabajo ya ha terminado se espera a que esté guardado todo lo que escribió.
+        try {
+            if (job.isDone()) {
+                output.awaitDrained();
+            }
+            long position = lines < 0 ? 0 : tail(output, error, lines, out);
+            if (lines < 0) {
+                long start = output.start(error);
+                if (start > 0) {
+                    Builtins.error(err, "joblog: [" + job.getId() + "] se han descartado los primeros "
+                            + start + " bytes");
+                }
+                position = output.copyTo(error, 0, out);
+            }
+            while (follow && !job.isDone()) {
+                out.flush();
+                Thread.sleep(FOLLOW_INTERVAL_MS);
+                position = output.copyTo(error, position, out);
+            }
+            if (follow) {
+                output.awaitDrained();
+                output.copyTo(error, position, out);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        }
+        out.flush();
+        return 0;
+    }
+
+    // Acepta %n o el número del trabajo sin %.
+    private static JobTable.Job find(JobTable jobs, String spec) {
+        try {
+            return jobs.captured(Integer.parseInt(spec.startsWith("%") ? spec.substring(1) : spec));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Escribe las últimas 'lines' líneas de lo guardado y devuelve la posición hasta la que ha leído.
+    private static long tail(JobOutput output, boolean error, long lines, OutputStream out) throws IOException {
+        long from = Math.max(output.start(error), output.written(error) - TAIL_WINDOW);
+        ByteArrayOutputStream window = new ByteArrayOutputStream();
+        long end = output.copyTo(error, from, window);
+        byte[] bytes = window.toByteArray();
+        // Se cuentan los saltos de línea desde el final, sin contar el último si cierra la salida.
+        int at = bytes.length;
+        int limit = bytes.length > 0 && bytes[bytes.length - 1] == '\n' ? bytes.length - 1 : bytes.length;
+        long found = 0;
+        for (int i = limit - 1; i >= 0; i--) {
+            if (bytes[i] == '\n' && ++found == lines) {
+                at = i + 1;
+                break;
+            }
+            if (i == 0) {
+                at = 0;
+            }
+        }
+        if (lines == 0) {
+            at = bytes.length;
+        }
+        out.write(bytes, at, bytes.length - at);
+        return end;
+    }
+}
@@ -0,0 +1,42 @@
+package builtins;
+
+import shell.JobTable;
+import shell.ShellContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// jobs [-l]: lista los trabajos en segundo plano. Con -l se muestran también los pids.
+public class Jobs implements Builtin {
+
+    @Override
+    public boolean accepts(List<String> argv) {
+        return argv.size() == 1 || (argv.size() == 2 && argv.get(1).equals("-l"));
+    }
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        JobTable jobs = ShellContext.current().jobs();
+        boolean pids = argv.size() > 1;
+        StringBuilder sb = new StringBuilder();
+        for (JobTable.Job job : jobs.jobs()) {
+            sb.append(JobTable.format(job));
+            if (pids) {
+                for (Process p : job.getProcesses()) {
+                    sb.append(' ').append(p.pid());
+                }
+            }
+            sb.append('\n');
+            // Una vez mostrado como terminado, el trabajo sale de la tabla.
+            if (job.isDone()) {
+                jobs.remove(job);
+            }
+        }
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        return 0;
+    }
+}
@@ -0,0 +1,79 @@
+package builtins;
+
+import shell.JobTable;
+import shell.ShellContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+
+// kill [-TERM | -KILL | -15 | -9] %n | pid ...: termina trabajos o procesos.
+// Java solo permite enviar SIGTERM (destroy) y SIGKILL (destroyForcibly); cualquier
+// otra señal se deja al kill del sistema.
+public class Kill implements Builtin {
+
+    @Override
+    public boolean accepts(List<String> argv) {
+        if (argv.size() < 2) {
+            return false;
+        }
+        String first = argv.get(1);
+        return !first.startsWith("-") || parseSignal(first) != null;
+    }
+
+    // Devuelve true para SIGKILL, false para SIGTERM o null si la señal no está soportada.
+    private static Boolean parseSignal(String arg) {
+        return switch (arg) {
+            case "-9", "-KILL", "-SIGKILL" -> true;
+            case "-15", "-TERM", "-SIGTERM" -> false;
+            default -> null;
+        };
+    }
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        JobTable jobs = ShellContext.current().jobs();
+        int first = 1;
+        boolean force = false;
+        if (argv.get(1).startsWith("-")) {
+            force = parseSignal(argv.get(1));
+            first = 2;
+        }
+
+        int status = 0;
+        for (String spec : argv.subList(first, argv.size())) {
+            if (spec.startsWith("%")) {
+                JobTable.Job job = jobs.find(spec, true);
+                if (job == null || job.getProcesses().isEmpty()) {
+                    Builtins.error(err, "kill: " + spec + ": no existe ese trabajo");
+                    status = 1;
+                    continue;
+                }
+                for (Process p : job.getProcesses()) {
+                    signal(p.toHandle(), force);
+                }
+                continue;
+            }
+
+            Optional<ProcessHandle> handle;
+            try {
+                handle = ProcessHandle.of(Long.parseLong(spec));
+            } catch (NumberFormatException e) {
+                Builtins.error(err, "kill: " + spec + ": argumento no válido");
+                status = 1;
+                continue;
+            }
+            if (handle.isEmpty() || !signal(handle.get(), force)) {
+                Builtins.error(err, "kill: (" + spec + ") - no existe el proceso o no se puede terminar");
+                status = 1;
+            }
+        }
+        return status;
+    }
+
+    private static boolean signal(ProcessHandle handle, boolean force) {
+        return force ? handle.destroyForcibly() : handle.destroy();
+    }
+}
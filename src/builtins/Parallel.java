@@ -0,0 +1,289 @@
+package builtins;
+
+import exceptions.CommandNotFoundException;
+import shell.MiniShell;
+import shell.SpillBuffer;
+import shell.Watchdog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// parallel [-j N] [-k] comando [args...] [::: valor...]
+// Ejecuta el comando una vez por cada valor (de ::: o, si no hay, de cada línea de la entrada),
+// sustituyendo {} por el valor o añadiéndolo al final. Como mucho se ejecutan N trabajos a la
+// vez (por defecto uno por núcleo). La salida de cada trabajo se escribe entera cuando termina,
+// sin mezclarse con la de otros; con -k se mantiene además el orden de la entrada.
+// La salida de cada trabajo se guarda en un SpillBuffer, que pasa a disco si es grande.
+// El código de salida es el número de trabajos que han fallado (máximo 101, como GNU parallel).
+public class Parallel implements Builtin {
+
+    // Código máximo de salida, igual que GNU parallel.
+    private static final int MAX_FAILED_STATUS = 101;
+
+    // Memoria de cada búfer de salida de un trabajo antes de pasar a disco.
+    private static final int JOB_MEMORY_LIMIT = 64 * 1024;
+
+    // Con -k, resultados terminados que pueden esperar a uno anterior más lento. Si hay más no se
+    // lanzan trabajos nuevos hasta que se escriben.
+    private static final int MAX_WAITING = 64;
+
+    // Resultado de un trabajo: su salida estándar, sus errores y su código de salida.
+    private record Result(SpillBuffer out, SpillBuffer err, int status) {
+
+        // Borra los ficheros temporales, si los hay.
+        void close() {
+            try {
+                out.close();
+                err.close();
+            } catch (IOException ignored) {
+                // El fichero temporal ya no existe.
+            }
+        }
+    }
+
+    // Opciones ya interpretadas de una invocación.
+    private record Options(int jobs, boolean keepOrder, List<String> template, List<String> values) {
+    }
+
+    @Override
+    public boolean accepts(List<String> argv) {
+        return parse(argv) != null;
+    }
+
+    // Interpreta los argumentos. Devuelve null si falta el comando o hay opciones no soportadas.
+    private static Options parse(List<String> argv) {
+        int jobs = Runtime.getRuntime().availableProcessors();
+        boolean keepOrder = false;
+        int i = 1;
+        while (i < argv.size() && argv.get(i).startsWith("-")) {
+            String arg = argv.get(i++);
+            if (arg.equals("--")) {
+                break;
+            } else if (arg.equals("-k")) {
+                keepOrder = true;
+            } else if (arg.equals("-j") && i < argv.size()) {
+                jobs = (int) Math.min(Builtins.parseCount(argv.get(i++)), Integer.MAX_VALUE);
+            } else if (arg.startsWith("-j")) {
+                jobs = (int) Math.min(Builtins.parseCount(arg.substring(2)), Integer.MAX_VALUE);
+            } else {
+                return null;
+            }
+            if (jobs <= 0) {
+                return null;
+            }
+        }
+
+        List<String> template = new ArrayList<>();
+        List<String> values = null;
+        for (; i < argv.size(); i++) {
+            if (values == null && argv.get(i).equals(":::")) {
+                values = new ArrayList<>();
+            } else if (values != null) {
+                values.add(argv.get(i));
+            } else {
+                template.add(argv.get(i));
+            }
+        }
+        if (template.isEmpty()) {
+            return null;
+        }
+        return new Options(jobs, keepOrder, template, values);
+    }
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        Options options = parse(argv);
+        Output output = new Output(out, err, options.keepOrder());
+        AtomicInteger failed = new AtomicInteger();
+        // Limita el número de trabajos en curso; cada uno se ejecuta en su propio hilo virtual.
+        Semaphore slots = new Semaphore(options.jobs());
+        // Con -k, además, los lanzados que aún no se han escrito (en curso o esperando a otro).
+        Semaphore unwritten = options.keepOrder()
+                ? new Semaphore((int) Math.min((long) options.jobs() + MAX_WAITING, Integer.MAX_VALUE)) : null;
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        int total = 0;
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            // Los valores se leen en streaming: no hace falta tener toda la entrada en memoria.
+            BufferedReader lines = options.values() == null
+                    ? new BufferedReader(new InputStreamReader(in), BUFFER_SIZE) : null;
+            int index = 0;
+            while (true) {
+                String value;
+                if (lines != null) {
+                    value = lines.readLine();
+                    if (value == null) {
+                        break;
+                    }
+                } else if (index < options.values().size()) {
+                    value = options.values().get(index);
+                } else {
+                    break;
+                }
+
+                List<String> command = expand(options.template(), value);
+                int seq = index++;
+                if (unwritten != null) {
+                    unwritten.acquire();
+                }
+                slots.acquire();
+                pending.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        Result result = execute(command);
+                        if (result.status() != 0) {
+                            failed.incrementAndGet();
+                        }
+                        output.complete(seq, result, unwritten);
+                    } finally {
+                        slots.release();
+                    }
+                }, workers));
+                // Se van descartando los trabajos ya terminados para que la lista no crezca sin límite.
+                pending.removeIf(CompletableFuture::isDone);
+            }
+            total = index;
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        }
+
+        out.flush();
+        if (failed.get() > 0) {
+            Builtins.error(err, "parallel: " + failed.get() + " de " + total + " trabajos han fallado");
+        }
+        return Math.min(failed.get(), MAX_FAILED_STATUS);
+    }
+
+    // Sustituye {} por el valor en cada argumento; si no aparece, el valor se añade al final.
+    private static List<String> expand(List<String> template, String value) {
+        List<String> command = new ArrayList<>(template.size() + 1);
+        boolean replaced = false;
+        for (String arg : template) {
+            if (arg.contains("{}")) {
+                command.add(arg.replace("{}", value));
+                replaced = true;
+            } else {
+                command.add(arg);
+            }
+        }
+        if (!replaced) {
+            command.add(value);
+        }
+        return command;
+    }
+
+    // Ejecuta un trabajo capturando su salida. Los builtins se ejecutan sin crear proceso.
+    private static Result execute(List<String> command) {
+        SpillBuffer out = new SpillBuffer(JOB_MEMORY_LIMIT);
+        SpillBuffer err = new SpillBuffer(JOB_MEMORY_LIMIT);
+        Builtin builtin = Builtins.get(command);
+        try {
+            if (builtin != null) {
+                int status = builtin.run(command, InputStream.nullInputStream(), out, err);
+                return new Result(out, err, status);
+            }
+
+            // Mismo ProcessBuilder que el resto de la shell (resolución de $PATH y directorio actual).
+            // El trabajo no recibe entrada: su stdin se cierra nada más lanzarlo.
+            Process p = MiniShell.createProcessBuilder(command).start();
+            Watchdog.track(p);
+            p.getOutputStream().close();
+            // Los errores se leen en paralelo para que el proceso no se bloquee si llena esa tubería.
+            Thread errors = Thread.ofVirtual().start(() -> {
+                try {
+                    p.getErrorStream().transferTo(err);
+                } catch (IOException e) {
+                    // El proceso ha cerrado su salida de errores.
+                }
+            });
+            p.getInputStream().transferTo(out);
+            int status = p.waitFor();
+            errors.join();
+            return new Result(out, err, status);
+        } catch (CommandNotFoundException e) {
+            return failure(out, err, "parallel: " + e.getMessage(), MiniShell.STATUS_NOT_FOUND);
+        } catch (IOException e) {
+            return failure(out, err, "parallel: " + command.getFirst() + ": " + e.getMessage(), 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(out, err, 130);
+        }
+    }
+
+    // Resultado de un trabajo que no se pudo ejecutar (o leer) entero, con el mensaje en sus errores.
+    private static Result failure(SpillBuffer out, SpillBuffer err, String message, int status) {
+        try {
+            err.write((message + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ignored) {
+            // Sin sitio para el mensaje solo queda el código de salida.
+        }
+        return new Result(out, err, status);
+    }
+
+    // Escribe la salida de los trabajos completos, de uno en uno. Con orden, los resultados que
+    // llegan antes de tiempo esperan (en sus SpillBuffer) hasta que han terminado todos los anteriores.
+    private static final class Output {
+        private final OutputStream out;
+        private final OutputStream err;
+        private final boolean keepOrder;
+        private final TreeMap<Integer, Result> waiting = new TreeMap<>();
+        private int next = 0;
+        private boolean closed;
+
+        Output(OutputStream out, OutputStream err, boolean keepOrder) {
+            this.out = out;
+            this.err = err;
+            this.keepOrder = keepOrder;
+        }
+
+        // Cada resultado escrito devuelve su permiso a 'unwritten' (null sin -k).
+        synchronized void complete(int seq, Result result, Semaphore unwritten) {
+            if (!keepOrder) {
+                write(result);
+                return;
+            }
+            waiting.put(seq, result);
+            while (!waiting.isEmpty() && waiting.firstKey() == next) {
+                write(waiting.pollFirstEntry().getValue());
+                unwritten.release();
+                next++;
+            }
+        }
+
+        // Copia la salida del trabajo y borra sus ficheros temporales.
+        private void write(Result result) {
+            try {
+                if (!closed) {
+                    copy(result.out(), out);
+                    copy(result.err(), err);
+                }
+            } catch (IOException e) {
+                // La salida se ha cerrado (por ejemplo, parallel ... | head): se descarta el resto.
+                closed = true;
+            } finally {
+                result.close();
+            }
+        }
+
+        private static void copy(SpillBuffer buffer, OutputStream to) throws IOException {
+            try (InputStream in = buffer.read()) {
+                if (in.transferTo(to) > 0) {
+                    to.flush();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package builtins;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.PatternSyntaxException;
+
+// pfind [ruta...] [-name patrón] [-type f|d] [-maxdepth n]: lista los ficheros y directorios
+// de cada ruta (por defecto "."), como find, recorriendo los directorios en paralelo.
+// La salida está siempre en el mismo orden: cada directorio seguido de su contenido, ordenado
+// por nombre.
+public class Pfind implements Builtin {
+
+    // Opciones ya interpretadas de una invocación.
+    private record Options(List<String> paths, PathMatcher name, Character type, int maxDepth) {
+    }
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        Options options = parse(argv, err);
+        if (options == null) {
+            return 2;
+        }
+
+        OutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        int status = 0;
+        try {
+            for (String name : options.paths()) {
+                File root = Builtins.resolve(name);
+                if (!root.exists()) {
+                    Builtins.error(err, "pfind: '" + name + "': No existe el fichero o el directorio");
+                    status = 1;
+                    continue;
+                }
+                for (FileTree.Entry entry : FileTree.walk(root.toPath(), name, options.maxDepth(), Set.of())) {
+                    if (entry.error() != null) {
+                        buffered.flush();
+                        Builtins.error(err, "pfind: '" + entry.display() + "': " + entry.error());
+                        status = 1;
+                    } else if (matches(entry, options)) {
+                        buffered.write(entry.display().getBytes(StandardCharsets.UTF_8));
+                        buffered.write('\n');
+                    }
+                }
+            }
+        } finally {
+            buffered.flush();
+        }
+        return status;
+    }
+
+    private static boolean matches(FileTree.Entry entry, Options options) {
+        if (options.type() != null && (options.type() == 'd') != entry.directory()) {
+            return false;
+        }
+        if (options.name() == null) {
+            return true;
+        }
+        Path name = entry.path().getFileName();
+        return options.name().matches(name != null ? name : Path.of(entry.display()));
+    }
+
+    // Interpreta los argumentos. Si hay alguno no válido lo explica en 'err' y devuelve null.
+    private static Options parse(List<String> argv, OutputStream err) throws IOException {
+        List<String> paths = new ArrayList<>();
+        PathMatcher name = null;
+        Character type = null;
+        int maxDepth = Integer.MAX_VALUE;
+        for (int i = 1; i < argv.size(); i++) {
+            String arg = argv.get(i);
+            if (!arg.startsWith("-")) {
+                paths.add(arg);
+                continue;
+            }
+            if (i + 1 >= argv.size()) {
+                Builtins.error(err, "pfind: falta el argumento de " + arg);
+                return null;
+            }
+            String value = argv.get(++i);
+            switch (arg) {
+                case "-name" -> {
+                    try {
+                        name = FileSystems.getDefault().getPathMatcher("glob:" + value);
+                    } catch (PatternSyntaxException e) {
+                        Builtins.error(err, "pfind: -name: patrón no válido: " + value);
+                        return null;
+                    }
+                }
+                case "-type" -> {
+                    if (!value.equals("f") && !value.equals("d")) {
+                        Builtins.error(err, "pfind: -type: tipo no válido: " + value);
+                        return null;
+                    }
+                    type = value.charAt(0);
+                }
+                case "-maxdepth" -> {
+                    long depth = Builtins.parseCount(value);
+                    if (depth < 0) {
+                        Builtins.error(err, "pfind: -maxdepth: número no válido: " + value);
+                        return null;
+                    }
+                    maxDepth = (int) Math.min(depth, Integer.MAX_VALUE);
+                }
+                default -> {
+                    Builtins.error(err, "pfind: opción no válida: " + arg);
+                    return null;
+                }
+            }
+        }
+        if (paths.isEmpty()) {
+            paths.add(".");
+        }
+        return new Options(paths, name, type, maxDepth);
+    }
+}
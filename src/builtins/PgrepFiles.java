@@ -0,0 +1,394 @@
+package builtins;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// pgrep-files [-inlcF] [--include=patrón] [--exclude-dir=nombre] patrón [ruta...]
+// Busca el patrón en todos los ficheros de las rutas (por defecto "."), como grep -r, sin lanzar
+// find ni grep. Los directorios se recorren en paralelo (FileTree) y los ficheros se examinan a la
+// vez en el ForkJoinPool común, pero la salida se escribe en el orden del recorrido, así que es
+// siempre la misma. Los ficheros grandes se proyectan en memoria con FileChannel.map y se examinan
+// enteros, sin partirlos en líneas: solo se buscan los límites de la línea cuando hay coincidencia.
+// Los ficheros binarios (con un byte 0 al principio) se saltan.
+public class PgrepFiles implements Builtin {
+
+    // Por debajo de este tamaño el fichero se lee sin proyectarlo (proyectar cuesta más).
+    private static final int MAP_THRESHOLD = 64 * 1024;
+    // Tamaño máximo de cada trozo proyectado de un fichero grande.
+    private static final long CHUNK_SIZE = 256L * 1024 * 1024;
+    // Bytes del principio del fichero en los que se busca un 0 para considerarlo binario.
+    private static final int BINARY_PROBE = 8 * 1024;
+    // Caracteres con significado especial en una expresión regular.
+    private static final String REGEX_META = ".[]*^$\\+?|(){}";
+
+    // Opciones ya interpretadas de una invocación. Si 'needle' no es null se busca ese texto
+    // byte a byte; si no, se usa 'regex'.
+    private record Options(boolean lineNumbers, boolean listFiles, boolean count, PathMatcher include,
+                           Set<String> excludeDirs, byte[] needle, Pattern regex, List<String> paths) {
+    }
+
+    // Resultado de examinar un fichero: lo que hay que escribir, o el error, y si hubo coincidencias.
+    private record Result(byte[] out, String error, boolean matched) {
+    }
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        Options options = parse(argv, err);
+        if (options == null) {
+            return 2;
+        }
+
+        // Como mucho hay unos cuantos ficheros por núcleo en curso; los resultados se escriben
+        // en orden a medida que termina el más antiguo.
+        int window = 4 * ForkJoinPool.commonPool().getParallelism();
+        ArrayDeque<ForkJoinTask<Result>> pending = new ArrayDeque<>();
+        OutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        boolean[] state = new boolean[2]; // [0]: alguna coincidencia, [1]: algún error
+        try {
+            for (String name : options.paths()) {
+                File root = Builtins.resolve(name);
+                if (!root.exists()) {
+                    drain(pending, 0, buffered, err, state);
+                    buffered.flush();
+                    Builtins.error(err, "pgrep-files: '" + name + "': No existe el fichero o el directorio");
+                    state[1] = true;
+                    continue;
+                }
+                for (FileTree.Entry entry : FileTree.walk(root.toPath(), name, Integer.MAX_VALUE, options.excludeDirs())) {
+                    if (entry.error() != null) {
+                        pending.add(ForkJoinTask.adapt(() -> new Result(null, "'" + entry.display() + "': " + entry.error(), false)).fork());
+                    } else if (!entry.directory() && included(entry, options)) {
+                        pending.add(ForkJoinTask.adapt(() -> scan(entry, options)).fork());
+                    } else {
+                        continue;
+                    }
+                    drain(pending, window, buffered, err, state);
+                }
+            }
+            drain(pending, 0, buffered, err, state);
+        } finally {
+            buffered.flush();
+        }
+        return state[1] ? 2 : state[0] ? 0 : 1;
+    }
+
+    // Escribe, en orden, los resultados pendientes hasta que queden menos de 'keep'.
+    private static void drain(ArrayDeque<ForkJoinTask<Result>> pending, int keep, OutputStream out,
+                              OutputStream err, boolean[] state) throws IOException {
+        while (!pending.isEmpty() && pending.size() >= keep) {
+            Result result = pending.removeFirst().join();
+            if (result.error() != null) {
+                out.flush();
+                Builtins.error(err, "pgrep-files: " + result.error());
+                state[1] = true;
+            } else {
+                out.write(result.out());
+                state[0] |= result.matched();
+            }
+        }
+    }
+
+    private static boolean included(FileTree.Entry entry, Options options) {
+        if (options.include() == null) {
+            return true;
+        }
+        Path name = entry.path().getFileName();
+        return name != null && options.include().matches(name);
+    }
+
+    // Examina un fichero y devuelve lo que hay que escribir.
+    private static Result scan(FileTree.Entry entry, Options options) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Scanner scanner = new Scanner(entry.display().getBytes(StandardCharsets.UTF_8), options, out);
+        try (FileChannel channel = FileChannel.open(entry.path(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < MAP_THRESHOLD) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                }
+                buffer.flip();
+                if (!isBinary(buffer)) {
+                    scanner.scan(buffer);
+                }
+            } else {
+                // Los trozos se cortan después del último salto de línea para no partir ninguna línea.
+                long position = 0;
+                boolean first = true;
+                while (position < size && !scanner.done()) {
+                    long length = Math.min(CHUNK_SIZE, size - position);
+                    ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                    if (first && isBinary(chunk)) {
+                        break;
+                    }
+                    first = false;
+                    if (position + length < size) {
+                        int end = chunk.limit() - 1;
+                        while (end >= 0 && chunk.get(end) != '\n') {
+                            end--;
+                        }
+                        if (end >= 0) {
+                            chunk.limit(end + 1);
+                        }
+                    }
+                    scanner.scan(chunk);
+                    position += chunk.limit();
+                }
+            }
+            scanner.finish();
+        } catch (IOException | SecurityException e) {
+            return new Result(null, "'" + entry.display() + "': " + e.getClass().getSimpleName() + ": " + e.getMessage(), false);
+        }
+        return new Result(out.toByteArray(), null, scanner.matches > 0);
+    }
+
+    private static boolean isBinary(ByteBuffer buffer) {
+        int end = Math.min(buffer.limit(), BINARY_PROBE);
+        for (int i = 0; i < end; i++) {
+            if (buffer.get(i) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Estado de la búsqueda en un fichero, que puede llegar en varios trozos.
+    private static final class Scanner {
+        private final byte[] prefix;
+        private final Options options;
+        private final ByteArrayOutputStream out;
+        private long matches;
+        // Número de la línea en la que empieza el trozo actual y posición hasta la que está contado.
+        private long line = 1;
+        private int counted;
+
+        Scanner(byte[] prefix, Options options, ByteArrayOutputStream out) {
+            this.prefix = prefix;
+            this.options = options;
+            this.out = out;
+        }
+
+        // Con -l basta la primera coincidencia.
+        boolean done() {
+            return options.listFiles() && matches > 0;
+        }
+
+        void scan(ByteBuffer buffer) {
+            counted = 0;
+            int limit = buffer.limit();
+            int from = 0;
+            Matcher matcher = options.regex() != null ? options.regex().matcher(new Latin1View(buffer)) : null;
+            while (from < limit && !done()) {
+                int at = matcher != null ? (matcher.find(from) ? matcher.start() : -1) : indexOf(buffer, from, limit);
+                if (at < 0) {
+                    break;
+                }
+                int start = at;
+                while (start > 0 && buffer.get(start - 1) != '\n') {
+                    start--;
+                }
+                int end = at;
+                while (end < limit && buffer.get(end) != '\n') {
+                    end++;
+                }
+                // Como en grep, una coincidencia no puede pasar de una línea a otra (\s, [^x] o \n
+                // también casan con el salto de línea): si se sale de la suya, se busca en esa línea sola.
+                if (matcher != null && matcher.end() > end && !matcher.region(start, end).find()) {
+                    from = end + 1;
+                    continue;
+                }
+                matches++;
+                if (!options.listFiles() && !options.count()) {
+                    emit(buffer, start, end);
+                }
+                from = end + 1;
+            }
+            countLines(buffer, limit);
+        }
+
+        void finish() {
+            if (options.listFiles() && matches > 0) {
+                out.writeBytes(prefix);
+                out.write('\n');
+            } else if (options.count()) {
+                out.writeBytes(prefix);
+                out.writeBytes((":" + matches + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        private void emit(ByteBuffer buffer, int start, int end) {
+            out.writeBytes(prefix);
+            out.write(':');
+            if (options.lineNumbers()) {
+                countLines(buffer, start);
+                out.writeBytes(Long.toString(line).getBytes(StandardCharsets.UTF_8));
+                out.write(':');
+            }
+            if (buffer.hasArray()) {
+                out.write(buffer.array(), buffer.arrayOffset() + start, end - start);
+            } else {
+                byte[] bytes = new byte[end - start];
+                buffer.get(start, bytes);
+                out.writeBytes(bytes);
+            }
+            out.write('\n');
+        }
+
+        // Avanza el contador de líneas hasta 'to'. Solo hace falta con -n.
+        private void countLines(ByteBuffer buffer, int to) {
+            if (!options.lineNumbers()) {
+                return;
+            }
+            for (int i = counted; i < to; i++) {
+                if (buffer.get(i) == '\n') {
+                    line++;
+                }
+            }
+            counted = Math.max(counted, to);
+        }
+
+        // Busca el texto fijo comprobando primero su byte inicial.
+        private int indexOf(ByteBuffer buffer, int from, int limit) {
+            byte[] needle = options.needle();
+            byte first = needle[0];
+            int last = limit - needle.length;
+            for (int i = from; i <= last; i++) {
+                if (buffer.get(i) != first) {
+                    continue;
+                }
+                int j = 1;
+                while (j < needle.length && buffer.get(i + j) == needle[j]) {
+                    j++;
+                }
+                if (j == needle.length) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    // Vista de los bytes de un buffer como caracteres ISO-8859-1, sin copiarlos, para poder
+    // pasarlos a un Matcher. El patrón se convierte igual, así que el texto UTF-8 coincide byte a byte.
+    private record Latin1View(ByteBuffer buffer, int start, int end) implements CharSequence {
+
+        Latin1View(ByteBuffer buffer) {
+            this(buffer, 0, buffer.limit());
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(start + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new Latin1View(buffer, start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    // Interpreta los argumentos. Si hay alguno no válido lo explica en 'err' y devuelve null.
+    private static Options parse(List<String> argv, OutputStream err) throws IOException {
+        boolean ignoreCase = false, lineNumbers = false, listFiles = false, count = false, fixed = false;
+        PathMatcher include = null;
+        Set<String> excludeDirs = new HashSet<>();
+        String pattern = null;
+        List<String> paths = new ArrayList<>();
+        for (int i = 1; i < argv.size(); i++) {
+            String arg = argv.get(i);
+            if (pattern != null || !arg.startsWith("-") || arg.length() == 1) {
+                if (pattern == null) {
+                    pattern = arg;
+                } else {
+                    paths.add(arg);
+                }
+            } else if (arg.startsWith("--include=")) {
+                try {
+                    include = FileSystems.getDefault().getPathMatcher("glob:" + arg.substring("--include=".length()));
+                } catch (PatternSyntaxException e) {
+                    Builtins.error(err, "pgrep-files: --include: patrón no válido: " + arg.substring("--include=".length()));
+                    return null;
+                }
+            } else if (arg.startsWith("--exclude-dir=")) {
+                excludeDirs.add(arg.substring("--exclude-dir=".length()));
+            } else if (arg.startsWith("--")) {
+                Builtins.error(err, "pgrep-files: opción no válida: " + arg);
+                return null;
+            } else {
+                for (int j = 1; j < arg.length(); j++) {
+                    switch (arg.charAt(j)) {
+                        case 'i' -> ignoreCase = true;
+                        case 'n' -> lineNumbers = true;
+                        case 'l' -> listFiles = true;
+                        case 'c' -> count = true;
+                        case 'F' -> fixed = true;
+                        default -> {
+                            Builtins.error(err, "pgrep-files: opción no válida: -" + arg.charAt(j));
+                            return null;
+                        }
+                    }
+                }
+            }
+        }
+        if (pattern == null) {
+            Builtins.error(err, "pgrep-files: falta el patrón");
+            return null;
+        }
+        if (paths.isEmpty()) {
+            paths.add(".");
+        }
+        if (!fixed) {
+            fixed = pattern.chars().noneMatch(c -> REGEX_META.indexOf(c) >= 0);
+        }
+
+        // Un texto fijo distinguiendo mayúsculas se busca byte a byte; el resto, con una expresión
+        // regular sobre los bytes vistos como ISO-8859-1.
+        byte[] needle = null;
+        Pattern regex = null;
+        if (fixed && !ignoreCase && !pattern.isEmpty()) {
+            needle = pattern.getBytes(StandardCharsets.UTF_8);
+        } else {
+            String latin1 = new String(pattern.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+            int flags = (fixed ? Pattern.LITERAL : 0) | (ignoreCase ? Pattern.CASE_INSENSITIVE : 0) | Pattern.MULTILINE;
+            try {
+                regex = Pattern.compile(latin1, flags);
+            } catch (PatternSyntaxException e) {
+                Builtins.error(err, "pgrep-files: patrón no válido: " + pattern);
+                return null;
+            }
+        }
+        return new Options(lineNumbers, listFiles, count, include, Set.copyOf(excludeDirs), needle, regex, paths);
+    }
+}
@@ -0,0 +1,76 @@
+package builtins;
+
+import shell.JobOutput;
+import shell.ShellContext;
+import shell.Watchdog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+// set [-e | +e] [-t DURACIÓN | +t]: activa o desactiva opciones de la shell. Sin argumentos muestra su estado.
+//   -e            termina en cuanto un comando falla.
+//   -t DURACIÓN   plazo máximo de cada comando en primer plano (como si llevara "timeout DURACIÓN").
+//   -o jobcapture la salida de los trabajos en segundo plano se guarda en memoria (ver joblog).
+//   -o joblog     la salida de los trabajos en segundo plano se guarda en un fichero por trabajo.
+//   +o jobcapture o +o joblog: los trabajos vuelven a escribir en la consola.
+public class Set implements Builtin {
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        ShellContext context = ShellContext.current();
+        if (argv.size() < 2) {
+            Duration timeout = context.defaultTimeout();
+            String state = "errexit\t" + (context.isExitOnError() ? "on" : "off") + "\n"
+                    + "timeout\t" + (timeout != null ? timeout.toMillis() / 1000.0 + "s" : "off") + "\n"
+                    + "jobcapture\t" + (context.jobCapture() == JobOutput.Mode.MEMORY ? "on" : "off") + "\n"
+                    + "joblog\t" + (context.jobCapture() == JobOutput.Mode.FILE ? "on" : "off") + "\n";
+            out.write(state.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            return 0;
+        }
+
+        int status = 0;
+        for (int i = 1; i < argv.size(); i++) {
+            String arg = argv.get(i);
+            switch (arg) {
+                case "-e" -> context.setExitOnError(true);
+                case "+e" -> context.setExitOnError(false);
+                case "-t" -> {
+                    Duration timeout = i + 1 < argv.size() ? Watchdog.parse(argv.get(++i)) : null;
+                    if (timeout == null || timeout.isZero()) {
+                        Builtins.error(err, "set: -t: duración no válida");
+                        status = 2;
+                    } else {
+                        context.setDefaultTimeout(timeout);
+                    }
+                }
+                case "+t" -> context.setDefaultTimeout(null);
+                case "-o", "+o" -> {
+                    String option = i + 1 < argv.size() ? argv.get(++i) : "";
+                    JobOutput.Mode mode = switch (option) {
+                        case "jobcapture" -> JobOutput.Mode.MEMORY;
+                        case "joblog" -> JobOutput.Mode.FILE;
+                        default -> null;
+                    };
+                    if (mode == null) {
+                        Builtins.error(err, "set: " + arg + ": opción no válida: " + option);
+                        status = 2;
+                    } else if (arg.equals("-o")) {
+                        context.setJobCapture(mode);
+                    } else if (context.jobCapture() == mode) {
+                        context.setJobCapture(JobOutput.Mode.OFF);
+                    }
+                }
+                default -> {
+                    Builtins.error(err, "set: " + arg + ": opción no válida");
+                    status = 2;
+                }
+            }
+        }
+        return status;
+    }
+}
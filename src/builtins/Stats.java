@@ -0,0 +1,58 @@
+package builtins;
+
+import shell.Metrics;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// stats [-r] [-o fichero]: muestra en JSON las métricas acumuladas de los comandos ejecutados.
+// Con -o se escriben en el fichero indicado y con -r se vacían después de mostrarlas.
+public class Stats implements Builtin {
+
+    @Override
+    public boolean accepts(List<String> argv) {
+        for (int i = 1; i < argv.size(); i++) {
+            String arg = argv.get(i);
+            if (arg.equals("-o") && i + 1 < argv.size()) {
+                i++;
+            } else if (!arg.equals("-r")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        boolean reset = false;
+        String file = null;
+        for (int i = 1; i < argv.size(); i++) {
+            if (argv.get(i).equals("-o")) {
+                file = argv.get(++i);
+            } else {
+                reset = true;
+            }
+        }
+
+        byte[] json = Metrics.toJson().getBytes(StandardCharsets.UTF_8);
+        if (file == null) {
+            out.write(json);
+            out.flush();
+        } else {
+            try (OutputStream target = new FileOutputStream(Builtins.resolve(file))) {
+                target.write(json);
+            } catch (IOException e) {
+                Builtins.error(err, "stats: " + file + ": " + e.getMessage());
+                return 1;
+            }
+        }
+        if (reset) {
+            Metrics.reset();
+        }
+        return 0;
+    }
+}
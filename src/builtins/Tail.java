@@ -0,0 +1,174 @@
+package builtins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// tail [-n N | -n +K | -N] [fichero...]: muestra las últimas N líneas (10 por defecto)
+// o, con +K, todo a partir de la línea K.
+public class Tail implements Builtin {
+
+    // A partir de este tamaño se descartan del buffer las líneas que ya no se van a mostrar.
+    private static final int COMPACT_THRESHOLD = 1024 * 1024;
+
+    // Opciones ya interpretadas de una invocación.
+    private record Options(long lines, boolean fromStart, List<String> files) {
+    }
+
+    @Override
+    public boolean accepts(List<String> argv) {
+        return parse(argv) != null;
+    }
+
+    // Interpreta los argumentos. Devuelve null si hay alguna opción que no soportamos.
+    private static Options parse(List<String> argv) {
+        long lines = 10;
+        boolean fromStart = false;
+        List<String> files = new ArrayList<>();
+        for (int i = 1; i < argv.size(); i++) {
+            String arg = argv.get(i);
+            String count = null;
+            if (arg.equals("-n") && i + 1 < argv.size()) {
+                count = argv.get(++i);
+            } else if (arg.startsWith("-n") && arg.length() > 2) {
+                count = arg.substring(2);
+            } else if (arg.length() > 1 && arg.startsWith("-") && Character.isDigit(arg.charAt(1))) {
+                count = arg.substring(1);
+            } else if (arg.startsWith("-") && !arg.equals("-")) {
+                return null;
+            } else {
+                files.add(arg);
+            }
+            if (count != null) {
+                fromStart = count.startsWith("+");
+                lines = Builtins.parseCount(fromStart ? count.substring(1) : count);
+                if (lines < 0) {
+                    return null;
+                }
+            }
+        }
+        return new Options(lines, fromStart, files);
+    }
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        Options options = parse(argv);
+
+        if (options.files().isEmpty()) {
+            tail(in, out, options);
+            out.flush();
+            return 0;
+        }
+
+        int status = 0;
+        boolean headers = options.files().size() > 1;
+        for (int i = 0; i < options.files().size(); i++) {
+            String name = options.files().get(i);
+            if (headers) {
+                String header = (i > 0 ? "\n" : "") + "==> " + name + " <==\n";
+                out.write(header.getBytes());
+            }
+            if (name.equals("-")) {
+                tail(in, out, options);
+                continue;
+            }
+            InputStream file = Builtins.open("tail", name, err);
+            if (file == null) {
+                status = 1;
+                continue;
+            }
+            try (file) {
+                tail(file, out, options);
+            }
+        }
+        out.flush();
+        return status;
+    }
+
+    private static void tail(InputStream in, OutputStream out, Options options) throws IOException {
+        if (options.fromStart()) {
+            fromLine(in, out, options.lines());
+        } else {
+            lastLines(in, out, options.lines());
+        }
+    }
+
+    // tail -n +K: se saltan K-1 líneas y se copia el resto tal cual.
+    private static void fromLine(InputStream in, OutputStream out, long line) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long skip = Math.max(0, line - 1);
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            int start = 0;
+            while (skip > 0 && start < n) {
+                if (buffer[start++] == '\n') {
+                    skip--;
+                }
+            }
+            if (start < n) {
+                out.write(buffer, start, n - start);
+            }
+        }
+    }
+
+    // tail -n N: solo se conserva en memoria la cola de la entrada que contiene las últimas N líneas.
+    private static void lastLines(InputStream in, OutputStream out, long lines) throws IOException {
+        if (lines == 0) {
+            // No hay nada que mostrar, pero se consume la entrada igual que el tail del sistema.
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (in.read(buffer) != -1) {
+                // Descartar.
+            }
+            return;
+        }
+
+        byte[] data = new byte[BUFFER_SIZE];
+        int length = 0;
+        int threshold = COMPACT_THRESHOLD;
+        int n;
+        while (true) {
+            if (length == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            n = in.read(data, length, data.length - length);
+            if (n == -1) {
+                break;
+            }
+            length += n;
+
+            // Al superar el umbral se descarta todo lo anterior a las últimas N líneas.
+            // El umbral se dobla respecto a lo conservado para que la compactación sea lineal.
+            if (length >= threshold) {
+                int start = startOfLastLines(data, length, lines);
+                if (start > 0) {
+                    System.arraycopy(data, start, data, 0, length - start);
+                    length -= start;
+                }
+                threshold = Math.max(COMPACT_THRESHOLD, length * 2);
+            }
+        }
+
+        int start = startOfLastLines(data, length, lines);
+        out.write(data, start, length - start);
+    }
+
+    // Posición donde empiezan las últimas 'lines' líneas de data[0, length).
+    private static int startOfLastLines(byte[] data, int length, long lines) {
+        int pos = length;
+        // El salto de línea final no abre una línea nueva.
+        if (pos > 0 && data[pos - 1] == '\n') {
+            pos--;
+        }
+        long found = 0;
+        while (pos > 0) {
+            if (data[pos - 1] == '\n' && ++found == lines) {
+                return pos;
+            }
+            pos--;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,60 @@
+package builtins;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// tee [-a] [fichero...]: copia la entrada a la salida y a cada fichero.
+public class Tee implements Builtin {
+
+    @Override
+    public boolean accepts(List<String> argv) {
+        for (int i = 1; i < argv.size(); i++) {
+            String arg = argv.get(i);
+            if (arg.startsWith("-") && !arg.equals("-a")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        // La opción -a afecta a todos los ficheros, aparezca donde aparezca.
+        boolean append = argv.subList(1, argv.size()).contains("-a");
+        int status = 0;
+        List<OutputStream> files = new ArrayList<>();
+        try {
+            for (int i = 1; i < argv.size(); i++) {
+                String name = argv.get(i);
+                if (name.equals("-a")) {
+                    continue;
+                }
+                try {
+                    files.add(new FileOutputStream(Builtins.resolve(name), append));
+                } catch (IOException e) {
+                    Builtins.error(err, "tee: " + name + ": " + e.getMessage());
+                    status = 1;
+                }
+            }
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+                for (OutputStream file : files) {
+                    file.write(buffer, 0, n);
+                }
+            }
+            out.flush();
+        } finally {
+            for (OutputStream file : files) {
+                file.close();
+            }
+        }
+        return status;
+    }
+}
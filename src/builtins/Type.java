@@ -0,0 +1,36 @@
+package builtins;
+
+import shell.CommandResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// type comando...: indica cómo se interpretaría cada nombre de comando.
+public class Type implements Builtin {
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        int status = 0;
+        StringBuilder sb = new StringBuilder();
+        for (String name : argv.subList(1, argv.size())) {
+            String cached;
+            String path;
+            if (Builtins.isShellBuiltin(name)) {
+                sb.append(name).append(" es un comando interno de la shell\n");
+            } else if ((cached = CommandResolver.cached(name)) != null) {
+                sb.append(name).append(" está en la caché (").append(cached).append(")\n");
+            } else if ((path = CommandResolver.resolve(name)) != null) {
+                sb.append(name).append(" es ").append(path).append('\n');
+            } else {
+                Builtins.error(err, "type: " + name + ": no encontrado");
+                status = 1;
+            }
+        }
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        return status;
+    }
+}
@@ -0,0 +1,27 @@
+package builtins;
+
+import shell.ShellContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+// unset VAR...: quita las variables de la shell y del entorno de los comandos.
+public class Unset implements Builtin {
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        ShellContext context = ShellContext.current();
+        int status = 0;
+        for (String name : argv.subList(1, argv.size())) {
+            if (!Export.isName(name)) {
+                Builtins.error(err, "unset: '" + name + "': no es un identificador válido");
+                status = 1;
+                continue;
+            }
+            context.unset(name);
+        }
+        return status;
+    }
+}
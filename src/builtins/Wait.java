@@ -0,0 +1,42 @@
+package builtins;
+
+import shell.JobTable;
+import shell.ShellContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+// wait [%n | pid ...]: espera a los trabajos indicados (o a todos) y devuelve el código del último.
+public class Wait implements Builtin {
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        JobTable jobs = ShellContext.current().jobs();
+        int status = 0;
+        try {
+            if (argv.size() < 2) {
+                for (JobTable.Job job : jobs.jobs()) {
+                    status = job.waitFor();
+                    jobs.remove(job);
+                }
+                return status;
+            }
+            for (String spec : argv.subList(1, argv.size())) {
+                JobTable.Job job = jobs.find(spec, false);
+                if (job == null) {
+                    Builtins.error(err, "wait: " + spec + ": no existe ese trabajo");
+                    status = 127;
+                    continue;
+                }
+                status = job.waitFor();
+                jobs.remove(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        }
+        return status;
+    }
+}
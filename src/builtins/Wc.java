@@ -0,0 +1,144 @@
+package builtins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// wc [-l] [-w] [-c] [fichero...]: cuenta líneas, palabras y bytes.
+public class Wc implements Builtin {
+
+    // Opciones ya interpretadas de una invocación.
+    private record Options(boolean lines, boolean words, boolean bytes, List<String> files) {
+    }
+
+    @Override
+    public boolean accepts(List<String> argv) {
+        return parse(argv) != null;
+    }
+
+    // Interpreta los argumentos. Devuelve null si hay alguna opción que no soportamos.
+    private static Options parse(List<String> argv) {
+        boolean lines = false;
+        boolean words = false;
+        boolean bytes = false;
+        List<String> files = new ArrayList<>();
+        for (int i = 1; i < argv.size(); i++) {
+            String arg = argv.get(i);
+            if (arg.startsWith("-") && arg.length() > 1) {
+                // Se admiten opciones agrupadas, por ejemplo -lw.
+                for (int j = 1; j < arg.length(); j++) {
+                    switch (arg.charAt(j)) {
+                        case 'l' -> lines = true;
+                        case 'w' -> words = true;
+                        case 'c' -> bytes = true;
+                        default -> {
+                            return null;
+                        }
+                    }
+                }
+            } else {
+                files.add(arg);
+            }
+        }
+        // Sin opciones se cuentan las tres cosas.
+        if (!lines && !words && !bytes) {
+            lines = words = bytes = true;
+        }
+        return new Options(lines, words, bytes, files);
+    }
+
+    @Override
+    public int run(List<String> argv, InputStream in, OutputStream out, OutputStream err) throws IOException {
+        Options options = parse(argv);
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        if (options.files().isEmpty()) {
+            long[] counts = count(in, buffer);
+            out.write(format(options, counts, null).getBytes());
+            out.flush();
+            return 0;
+        }
+
+        int status = 0;
+        long[] total = new long[3];
+        for (String name : options.files()) {
+            long[] counts;
+            if (name.equals("-")) {
+                counts = count(in, buffer);
+            } else {
+                InputStream file = Builtins.open("wc", name, err);
+                if (file == null) {
+                    status = 1;
+                    continue;
+                }
+                try (file) {
+                    counts = count(file, buffer);
+                }
+            }
+            for (int i = 0; i < 3; i++) {
+                total[i] += counts[i];
+            }
+            out.write(format(options, counts, name).getBytes());
+        }
+        if (options.files().size() > 1) {
+            out.write(format(options, total, "total").getBytes());
+        }
+        out.flush();
+        return status;
+    }
+
+    // Recorre el flujo byte a byte y devuelve {líneas, palabras, bytes}.
+    static long[] count(InputStream in, byte[] buffer) throws IOException {
+        long lines = 0;
+        long words = 0;
+        long bytes = 0;
+        boolean inWord = false;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            bytes += n;
+            for (int i = 0; i < n; i++) {
+                byte b = buffer[i];
+                if (b == '\n') {
+                    lines++;
+                }
+                // Una palabra es una secuencia de bytes que no son espacios en blanco ASCII.
+                boolean space = b == ' ' || (b >= '\t' && b <= '\r');
+                if (space) {
+                    inWord = false;
+                } else if (!inWord) {
+                    inWord = true;
+                    words++;
+                }
+            }
+        }
+        return new long[] {lines, words, bytes};
+    }
+
+    // Da formato a una fila de resultados en el orden líneas, palabras, bytes.
+    private static String format(Options options, long[] counts, String name) {
+        boolean[] enabled = {options.lines(), options.words(), options.bytes()};
+        int columns = 0;
+        for (boolean e : enabled) {
+            if (e) {
+                columns++;
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            if (!enabled[i]) {
+                continue;
+            }
+            if (!sb.isEmpty()) {
+                sb.append(' ');
+            }
+            // Con una sola columna no se rellena, igual que el wc del sistema.
+            sb.append(columns == 1 && name == null ? Long.toString(counts[i]) : String.format("%7d", counts[i]));
+        }
+        if (name != null) {
+            sb.append(' ').append(name);
+        }
+        return sb.append('\n').toString();
+    }
+}
@@ -0,0 +1,9 @@
+package exceptions;
+
+import java.io.IOException;
+
+public class ArgumentListTooLongException extends IOException {
+    public ArgumentListTooLongException(String pattern) {
+        super(pattern + ": la lista de argumentos es demasiado larga");
+    }
+}
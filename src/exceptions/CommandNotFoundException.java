@@ -0,0 +1,9 @@
+package exceptions;
+
+import java.io.IOException;
+
+public class CommandNotFoundException extends IOException {
+    public CommandNotFoundException(String command) {
+        super("comando no encontrado: " + command);
+    }
+}
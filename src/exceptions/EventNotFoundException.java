@@ -0,0 +1,7 @@
+package exceptions;
+
+public class EventNotFoundException extends Exception {
+    public EventNotFoundException(String event) {
+        super(event + ": evento no encontrado");
+    }
+}
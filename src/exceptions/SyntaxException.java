@@ -0,0 +1,7 @@
+package exceptions;
+
+public class SyntaxException extends Exception {
+    public SyntaxException(String message) {
+        super(message);
+    }
+}
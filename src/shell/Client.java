@@ -0,0 +1,85 @@
+package shell;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+// Cliente del demonio: envía un comando a una shell ya arrancada y muestra su salida.
+// Uso: Client socket "comando"
+// Reenvía su entrada estándar al comando y termina con el código de salida de este.
+public final class Client {
+
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
+    private Client() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("uso: Client socket \"comando\"");
+            System.exit(2);
+        }
+        // El demonio no acepta tramas mayores (ver Daemon.readFrame).
+        if (args[1].getBytes(StandardCharsets.UTF_8).length > Daemon.MAX_FRAME_SIZE) {
+            System.err.println("minishell: el comando es demasiado largo (máximo " + Daemon.MAX_FRAME_SIZE + " bytes)");
+            System.exit(2);
+        }
+        try {
+            System.exit(run(Path.of(args[0]), args[1]));
+        } catch (IOException e) {
+            System.err.println("minishell: no se puede conectar con el demonio en " + args[0] + ": " + e.getMessage());
+            System.exit(MiniShell.STATUS_NOT_FOUND);
+        }
+    }
+
+    static int run(Path socket, String command) throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.connect(UnixDomainSocketAddress.of(socket));
+        DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+        Daemon.FrameWriter out = new Daemon.FrameWriter(Channels.newOutputStream(channel));
+
+        byte[] cwd = System.getProperty("user.dir").getBytes(StandardCharsets.UTF_8);
+        byte[] text = command.getBytes(StandardCharsets.UTF_8);
+        out.write(Daemon.DIRECTORY, cwd, 0, cwd.length);
+        out.write(Daemon.COMMAND, text, 0, text.length);
+
+        // La entrada se envía desde un hilo aparte: si el comando no la lee, no retrasa la salida.
+        Thread pump = new Thread(() -> pumpInput(System.in, out));
+        pump.setDaemon(true);
+        pump.start();
+
+        while (true) {
+            byte type = in.readByte();
+            byte[] data = Daemon.readFrame(in);
+            if (type == Daemon.OUTPUT) {
+                System.out.write(data);
+                System.out.flush();
+            } else if (type == Daemon.ERROR) {
+                System.err.write(data);
+                System.err.flush();
+            } else if (type == Daemon.EXIT) {
+                return ByteBuffer.wrap(data).getInt();
+            }
+        }
+    }
+
+    private static void pumpInput(InputStream stdin, Daemon.FrameWriter out) {
+        byte[] buffer = new byte[INPUT_BUFFER_SIZE];
+        try {
+            int n;
+            while ((n = stdin.read(buffer)) > 0) {
+                out.write(Daemon.INPUT, buffer, 0, n);
+            }
+            out.write(Daemon.INPUT_END, buffer, 0, 0);
+        } catch (IOException e) {
+            // El demonio ha cerrado la conexión.
+        }
+    }
+}
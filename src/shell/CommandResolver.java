@@ -0,0 +1,190 @@
+package shell;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Caché de resolución de comandos (equivalente al "hash" de bash).
+// Guarda para cada nombre de comando la ruta absoluta del ejecutable dentro de $PATH,
+// así el sistema no tiene que recorrer $PATH en cada lanzamiento. Hay una caché por cada valor
+// de $PATH, y se vacía cuando cambia la fecha de modificación de alguno de sus directorios, que
+// es lo que ocurre cuando se instala o se borra un ejecutable.
+public final class CommandResolver {
+
+    // Como mucho se comprueban las fechas de los directorios de $PATH una vez por segundo.
+    private static final long CHECK_INTERVAL_NANOS = 1_000_000_000L;
+    // Número de valores de $PATH distintos con caché propia (los menos usados se descartan).
+    private static final int MAX_PATHS = 8;
+
+    // Entrada de la caché: ruta resuelta (null si el comando no existe) y número de usos.
+    public static final class Entry {
+        private final String path;
+        private final AtomicInteger hits = new AtomicInteger();
+
+        Entry(String path) {
+            this.path = path;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public int getHits() {
+            return hits.get();
+        }
+    }
+
+    // Caché de una lista de directorios concreta. Vaciar la caché es crear una nueva: una búsqueda
+    // que empezó con la anterior termina guardando su resultado en esa, que ya no se usa.
+    private record State(List<Path> directories, Map<String, Entry> cache, int generation) {
+    }
+
+    // Caché de un valor de $PATH con las fechas de sus directorios en la última comprobación.
+    // Cada intérprete (ShellContext) puede tener su propio $PATH, así que hay una por valor y los
+    // intérpretes con $PATH distintos no se vacían la caché unos a otros.
+    private static final class PathCache {
+        private final List<Path> directories;
+        private long[] mtimes;
+        private long lastCheck;
+        private State state;
+
+        PathCache(List<Path> directories) {
+            this.directories = directories;
+            this.mtimes = modificationTimes(directories);
+            this.lastCheck = System.nanoTime();
+            this.state = new State(directories, new ConcurrentHashMap<>(), ++generation);
+        }
+    }
+
+    // Las generaciones son únicas entre todos los $PATH: una ruta resuelta con otro $PATH
+    // nunca tiene la generación de la caché actual.
+    private static int generation;
+    private static final Map<String, PathCache> CACHES = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PathCache> eldest) {
+            return size() > MAX_PATHS;
+        }
+    };
+
+    private CommandResolver() {
+    }
+
+    // Devuelve la ruta absoluta del ejecutable o null si no está en $PATH.
+    // Los nombres con separador de directorio se devuelven tal cual, como hace el sistema.
+    public static String resolve(String name) {
+        if (name.indexOf('/') >= 0 || name.indexOf(File.separatorChar) >= 0) {
+            return name;
+        }
+        State current = validate();
+        Entry entry = current.cache.computeIfAbsent(name, n -> new Entry(search(current.directories, n)));
+        entry.hits.incrementAndGet();
+        return entry.path;
+    }
+
+    // Indica si el nombre ya está en la caché con una ruta válida.
+    public static String cached(String name) {
+        Entry entry = validate().cache.get(name);
+        return entry != null ? entry.path : null;
+    }
+
+    // Vacía la caché del $PATH actual (hash -r).
+    public static synchronized void clear() {
+        PathCache cache = cache();
+        cache.state = new State(cache.directories, new ConcurrentHashMap<>(), ++generation);
+    }
+
+    // Generación actual de la caché. Una ruta resuelta sigue siendo válida mientras no cambie.
+    public static int generation() {
+        return validate().generation;
+    }
+
+    // Entradas con ruta válida, ordenadas por nombre (hash sin argumentos).
+    public static Map<String, Entry> entries() {
+        Map<String, Entry> result = new TreeMap<>();
+        validate().cache.forEach((name, entry) -> {
+            if (entry.path != null) {
+                result.put(name, entry);
+            }
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    // Directorios actuales de $PATH, en orden (los usa también el autocompletado).
+    static List<Path> directories() {
+        return validate().directories;
+    }
+
+    // Busca el ejecutable en los directorios de $PATH en orden.
+    private static String search(List<Path> directories, String name) {
+        for (Path dir : directories) {
+            Path candidate = dir.resolve(name);
+            if (Files.isRegularFile(candidate) && Files.isExecutable(candidate)) {
+                return candidate.toAbsolutePath().toString();
+            }
+        }
+        return null;
+    }
+
+    // Caché del $PATH del intérprete actual, creándola si es la primera vez que se usa.
+    private static PathCache cache() {
+        String current = ShellContext.current().getenv("PATH");
+        if (current == null) {
+            current = "";
+        }
+        PathCache cache = CACHES.get(current);
+        if (cache == null) {
+            List<Path> dirs = new ArrayList<>();
+            for (String dir : current.split(File.pathSeparator)) {
+                // Una entrada vacía en $PATH (directorio actual) no se tiene en cuenta.
+                if (!dir.isEmpty()) {
+                    dirs.add(Path.of(dir));
+                }
+            }
+            cache = new PathCache(List.copyOf(dirs));
+            CACHES.put(current, cache);
+        }
+        return cache;
+    }
+
+    // Comprueba si alguno de los directorios del $PATH actual ha cambiado y, en ese caso, vacía su
+    // caché. Devuelve el estado con el que se debe buscar, tomado con el cerrojo.
+    private static synchronized State validate() {
+        PathCache cache = cache();
+        long now = System.nanoTime();
+        if (now - cache.lastCheck < CHECK_INTERVAL_NANOS) {
+            return cache.state;
+        }
+        cache.lastCheck = now;
+        long[] latest = modificationTimes(cache.directories);
+        if (!Arrays.equals(latest, cache.mtimes)) {
+            cache.mtimes = latest;
+            cache.state = new State(cache.directories, new ConcurrentHashMap<>(), ++generation);
+        }
+        return cache.state;
+    }
+
+    // Fecha de modificación de cada directorio (-1 si no existe).
+    private static long[] modificationTimes(List<Path> dirs) {
+        long[] result = new long[dirs.size()];
+        for (int i = 0; i < result.length; i++) {
+            try {
+                result[i] = Files.readAttributes(dirs.get(i), BasicFileAttributes.class)
+                        .lastModifiedTime().toMillis();
+            } catch (IOException e) {
+                result[i] = -1;
+            }
+        }
+        return result;
+    }
+}
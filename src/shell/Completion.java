@@ -0,0 +1,319 @@
+package shell;
+
+import builtins.Builtins;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Índices del autocompletado del editor de línea.
+//   - Comandos: un trie con los ejecutables de $PATH y los comandos internos. Se construye una vez
+//     y después solo se vuelven a listar los directorios de $PATH cuya fecha de modificación ha
+//     cambiado, añadiendo y quitando del trie únicamente los nombres que difieren.
+//   - Ficheros: el listado ordenado de cada directorio visitado, que se reutiliza mientras no cambie
+//     su fecha de modificación. Cada consulta es una búsqueda binaria sobre ese listado, así que en
+//     directorios con cientos de miles de ficheros no se vuelve a leer el directorio en cada Tab.
+final class Completion {
+
+    // Máximo de candidatos que se devuelven para mostrar en pantalla.
+    static final int MAX_SHOWN = 100;
+    // Como mucho se comprueban los directorios de $PATH una vez por segundo.
+    private static final long CHECK_INTERVAL_NANOS = 1_000_000_000L;
+    // Número de directorios cuyo listado se mantiene en memoria.
+    private static final int MAX_DIRECTORIES = 64;
+
+    // Resultado de una consulta: los primeros candidatos, el total y su prefijo común.
+    record Matches(List<String> shown, int total, String common) {
+    }
+
+    // Nodo del trie. 'count' es el número de orígenes (directorios de $PATH o builtins) que
+    // aportan el nombre que termina aquí y 'size' el número de nombres distintos del subárbol.
+    private static final class Node {
+        final TreeMap<Character, Node> children = new TreeMap<>();
+        int count;
+        int size;
+    }
+
+    // Listado ordenado de un directorio y la fecha de modificación con la que se leyó.
+    private record Listing(FileTime mtime, String[] names) {
+    }
+
+    private static final Node ROOT = new Node();
+    private static final Map<Path, Set<String>> PATH_NAMES = new HashMap<>();
+    private static final Map<Path, FileTime> PATH_MTIMES = new HashMap<>();
+    private static boolean builtinsLoaded;
+    private static long lastCheck;
+
+    private static final Map<Path, Listing> DIRECTORIES = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Listing> eldest) {
+            return size() > MAX_DIRECTORIES;
+        }
+    };
+
+    private Completion() {
+    }
+
+    // Construye el índice de comandos en segundo plano para que el primer Tab sea inmediato.
+    static void preload() {
+        Thread.startVirtualThread(Completion::refreshCommands);
+    }
+
+    // Comandos que empiezan por el prefijo, en orden alfabético.
+    static synchronized Matches commands(String prefix) {
+        refreshCommands();
+        Node node = ROOT;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        if (node == null || node.size == 0) {
+            return new Matches(List.of(), 0, prefix);
+        }
+
+        List<String> shown = new ArrayList<>();
+        collect(node, new StringBuilder(prefix), shown);
+
+        // Prefijo común: se baja mientras haya un único camino y no termine ningún nombre.
+        StringBuilder common = new StringBuilder(prefix);
+        while (node.count == 0 && node.children.size() == 1) {
+            Map.Entry<Character, Node> only = node.children.firstEntry();
+            common.append(only.getKey());
+            node = only.getValue();
+        }
+        return new Matches(shown, node.size, common.toString());
+    }
+
+    // Recorre el subárbol en orden y guarda hasta MAX_SHOWN nombres.
+    private static void collect(Node node, StringBuilder name, List<String> out) {
+        if (out.size() >= MAX_SHOWN) {
+            return;
+        }
+        if (node.count > 0) {
+            out.add(name.toString());
+        }
+        for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+            name.append(child.getKey());
+            collect(child.getValue(), name, out);
+            name.setLength(name.length() - 1);
+        }
+    }
+
+    // Actualiza el trie con los directorios de $PATH que han cambiado desde la última vez.
+    private static synchronized void refreshCommands() {
+        long now = System.nanoTime();
+        if (builtinsLoaded && now - lastCheck < CHECK_INTERVAL_NANOS) {
+            return;
+        }
+        lastCheck = now;
+
+        if (!builtinsLoaded) {
+            for (String name : Builtins.names()) {
+                add(ROOT, name, 0);
+            }
+            for (String name : List.of("cd", "exit", "time")) {
+                add(ROOT, name, 0);
+            }
+            builtinsLoaded = true;
+        }
+
+        List<Path> directories = CommandResolver.directories();
+        // Directorios que ya no están en $PATH: se quitan sus nombres.
+        for (Path dir : new ArrayList<>(PATH_NAMES.keySet())) {
+            if (!directories.contains(dir)) {
+                PATH_NAMES.remove(dir).forEach(name -> remove(ROOT, name, 0));
+                PATH_MTIMES.remove(dir);
+            }
+        }
+        for (Path dir : directories) {
+            FileTime mtime = modificationTime(dir);
+            if (mtime != null && mtime.equals(PATH_MTIMES.get(dir))) {
+                continue;
+            }
+            Set<String> previous = PATH_NAMES.getOrDefault(dir, Set.of());
+            Set<String> current = mtime == null ? Set.of() : executables(dir);
+            for (String name : previous) {
+                if (!current.contains(name)) {
+                    remove(ROOT, name, 0);
+                }
+            }
+            for (String name : current) {
+                if (!previous.contains(name)) {
+                    add(ROOT, name, 0);
+                }
+            }
+            PATH_NAMES.put(dir, current);
+            PATH_MTIMES.put(dir, mtime);
+        }
+    }
+
+    // Ejecutables de un directorio de $PATH.
+    private static Set<String> executables(Path dir) {
+        Set<String> names = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path entry : stream) {
+                if (Files.isExecutable(entry) && !Files.isDirectory(entry)) {
+                    names.add(entry.getFileName().toString());
+                }
+            }
+        } catch (IOException e) {
+            // Directorio ilegible: no aporta comandos.
+        }
+        return names;
+    }
+
+    // Añade un nombre al trie. Devuelve true si antes no estaba.
+    private static boolean add(Node node, String name, int i) {
+        boolean added;
+        if (i == name.length()) {
+            added = node.count++ == 0;
+        } else {
+            added = add(node.children.computeIfAbsent(name.charAt(i), k -> new Node()), name, i + 1);
+        }
+        if (added) {
+            node.size++;
+        }
+        return added;
+    }
+
+    // Quita un nombre del trie (una vez por origen). Devuelve true si ya no queda ninguno.
+    private static boolean remove(Node node, String name, int i) {
+        boolean removed;
+        if (i == name.length()) {
+            if (node.count == 0) {
+                return false;
+            }
+            removed = --node.count == 0;
+        } else {
+            Node child = node.children.get(name.charAt(i));
+            if (child == null) {
+                return false;
+            }
+            removed = remove(child, name, i + 1);
+            if (child.size == 0) {
+                node.children.remove(name.charAt(i));
+            }
+        }
+        if (removed) {
+            node.size--;
+        }
+        return removed;
+    }
+
+    // Rutas que completan la palabra (relativa al directorio actual, absoluta o con ~/).
+    // Los directorios se devuelven con '/' al final. Los ficheros ocultos solo aparecen si el
+    // nombre a completar empieza por '.'.
+    static Matches files(String word) {
+        int slash = word.lastIndexOf('/');
+        String dirPart = word.substring(0, slash + 1);
+        String prefix = word.substring(slash + 1);
+        Path dir = directory(dirPart);
+        String[] names = listing(dir);
+
+        boolean hidden = prefix.startsWith(".");
+        List<String> shown = new ArrayList<>();
+        int total = 0;
+        String first = null;
+        String last = null;
+        for (int i = lowerBound(names, prefix); i < names.length && names[i].startsWith(prefix); i++) {
+            if (!hidden && names[i].startsWith(".")) {
+                continue;
+            }
+            if (first == null) {
+                first = names[i];
+            }
+            last = names[i];
+            if (shown.size() < MAX_SHOWN) {
+                shown.add(names[i]);
+            }
+            total++;
+        }
+        if (total == 0) {
+            return new Matches(List.of(), 0, word);
+        }
+
+        // Solo se consulta si es un directorio para los candidatos que se van a mostrar.
+        List<String> words = new ArrayList<>(shown.size());
+        for (String name : shown) {
+            words.add(dirPart + name + (Files.isDirectory(dir.resolve(name)) ? "/" : ""));
+        }
+        // En una lista ordenada, el prefijo común de todos es el del primero y el último.
+        String common = total == 1 ? words.getFirst() : dirPart + commonPrefix(first, last);
+        return new Matches(words, total, common);
+    }
+
+    // Directorio al que se refiere la parte de la palabra anterior a la última '/'.
+    private static Path directory(String dirPart) {
+        String cwd = ShellContext.current().cwd();
+        if (dirPart.isEmpty()) {
+            return Path.of(cwd);
+        }
+        if (dirPart.equals("~/") || dirPart.startsWith("~/")) {
+            return Path.of(ShellContext.HOME, dirPart.substring(2));
+        }
+        return Path.of(cwd).resolve(dirPart);
+    }
+
+    // Listado ordenado del directorio, reutilizando el anterior si no ha cambiado su fecha.
+    private static String[] listing(Path dir) {
+        FileTime mtime = modificationTime(dir);
+        if (mtime == null) {
+            return new String[0];
+        }
+        synchronized (DIRECTORIES) {
+            Listing cached = DIRECTORIES.get(dir);
+            if (cached != null && cached.mtime().equals(mtime)) {
+                return cached.names();
+            }
+        }
+
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path entry : stream) {
+                names.add(entry.getFileName().toString());
+            }
+        } catch (IOException e) {
+            return new String[0];
+        }
+        String[] sorted = names.toArray(new String[0]);
+        Arrays.sort(sorted);
+        synchronized (DIRECTORIES) {
+            DIRECTORIES.put(dir, new Listing(mtime, sorted));
+        }
+        return sorted;
+    }
+
+    // Primera posición del array ordenado cuyo nombre no es menor que el prefijo.
+    private static int lowerBound(String[] names, String prefix) {
+        int i = Arrays.binarySearch(names, prefix);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    private static String commonPrefix(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return a.substring(0, i);
+    }
+
+    // Fecha de modificación del directorio, o null si no existe.
+    private static FileTime modificationTime(Path dir) {
+        try {
+            return Files.getLastModifiedTime(dir);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
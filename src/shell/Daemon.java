@@ -0,0 +1,237 @@
+package shell;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Demonio de la shell: una JVM que escucha en un socket Unix y ejecuta los comandos de varios
+// clientes a la vez, cada uno en su propia sesión (un hilo virtual con su ShellContext: directorio,
+// entorno y flujos).
+// Así los clientes no pagan el arranque de la JVM ni pierden las cachés ya calentadas
+// (resolución de $PATH, patrones de glob, métricas).
+//
+// Protocolo: tramas [tipo: 1 byte][longitud: 4 bytes big-endian][datos].
+//   cliente -> demonio: 'D' directorio actual, 'C' comando, 'I' datos de stdin, 'E' fin de stdin.
+//   demonio -> cliente: 'O' stdout, 'R' stderr, 'X' código de salida (4 bytes).
+public final class Daemon {
+
+    static final byte DIRECTORY = 'D';
+    static final byte COMMAND = 'C';
+    static final byte INPUT = 'I';
+    static final byte INPUT_END = 'E';
+    static final byte OUTPUT = 'O';
+    static final byte ERROR = 'R';
+    static final byte EXIT = 'X';
+
+    // Tamaño máximo de una trama de salida: se envía antes si el flujo se vacía (flush).
+    private static final int FRAME_SIZE = 64 * 1024;
+    // Longitud máxima de una trama recibida. La longitud la manda el otro extremo: sin este límite,
+    // una sola trama mal formada podría reservar hasta 2 GB y tumbar el demonio entero.
+    static final int MAX_FRAME_SIZE = 16 * FRAME_SIZE;
+
+    private Daemon() {
+    }
+
+    // Escucha en el socket indicado hasta que se termina el proceso.
+    public static void serve(Path socket) throws IOException {
+        Files.deleteIfExists(socket);
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.deleteIfExists(socket);
+            } catch (IOException e) {
+                // Nada que hacer si ya no se puede borrar.
+            }
+        }));
+
+        // Lo que la shell escribe en System.out y System.err va a la sesión del hilo que escribe.
+        Relay.installRouting();
+        ShellContext.shell().stdout().println("minishell: demonio escuchando en " + socket);
+
+        while (true) {
+            SocketChannel channel = server.accept();
+            Thread.ofVirtual().name("minishell-session").start(() -> session(channel));
+        }
+    }
+
+    // Atiende a un cliente: lee el directorio y el comando, lo ejecuta y devuelve el código de salida.
+    private static void session(SocketChannel channel) {
+        try (channel) {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            FrameWriter out = new FrameWriter(Channels.newOutputStream(channel));
+
+            String cwd = ShellContext.shell().cwd();
+            String command = null;
+            while (command == null) {
+                byte type = in.readByte();
+                byte[] data = readFrame(in);
+                if (type == DIRECTORY) {
+                    cwd = new String(data, StandardCharsets.UTF_8);
+                } else if (type == COMMAND) {
+                    command = new String(data, StandardCharsets.UTF_8);
+                }
+            }
+
+            // La entrada del cliente se recibe en paralelo mientras se ejecuta el comando.
+            SessionInput input = new SessionInput();
+            Thread pump = Thread.ofVirtual().start(() -> pumpInput(channel, in, input));
+            try {
+                PrintStream stdout = new PrintStream(new FrameOutputStream(out, OUTPUT), true);
+                PrintStream stderr = new PrintStream(new FrameOutputStream(out, ERROR), true);
+                ShellContext context = new ShellContext(cwd, ShellContext.processEnvironment(), input, stdout, stderr);
+                int status = MiniShell.run(context, new BufferedReader(new StringReader(command)), false);
+
+                stdout.flush();
+                stderr.flush();
+                out.write(EXIT, ByteBuffer.allocate(4).putInt(status).array(), 0, 4);
+            } finally {
+                // Si el comando no leyó toda la entrada, el hilo puede estar esperando sitio en la sesión.
+                pump.interrupt();
+            }
+        } catch (EOFException e) {
+            // El cliente se ha ido antes de enviar el comando.
+        } catch (ClosedChannelException e) {
+            // La conexión ya se cerró (por ejemplo, por una trama de entrada no válida).
+        } catch (IOException e) {
+            ShellContext.shell().stderr().println("minishell: sesión terminada: " + e.getMessage());
+        }
+    }
+
+    // Pasa a la sesión las tramas de entrada del cliente. Si el cliente cierra, es el fin de la entrada.
+    // Una trama no válida cierra la conexión, y con ella la sesión. Mientras la sesión tiene la entrada
+    // llena no se lee del socket, así que un cliente que envía más de lo que el comando consume
+    // queda frenado por el propio TCP en lugar de llenar la memoria del demonio.
+    private static void pumpInput(SocketChannel channel, DataInputStream in, SessionInput input) {
+        try {
+            while (true) {
+                byte type = in.readByte();
+                byte[] data = readFrame(in);
+                if (type == INPUT) {
+                    input.add(data);
+                } else if (type == INPUT_END) {
+                    break;
+                }
+            }
+        } catch (BadFrameException e) {
+            ShellContext.shell().stderr().println("minishell: sesión terminada: " + e.getMessage());
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Ya estaba cerrada.
+            }
+        } catch (IOException e) {
+            // Conexión cerrada.
+        } catch (InterruptedException e) {
+            // La sesión ha terminado sin leer toda la entrada.
+            return;
+        }
+        try {
+            input.finish();
+        } catch (InterruptedException e) {
+            // La sesión ha terminado antes de leer el final de la entrada.
+        }
+    }
+
+    // Trama con una longitud fuera de rango.
+    static final class BadFrameException extends IOException {
+        BadFrameException(int length) {
+            super("trama con longitud no válida: " + length);
+        }
+    }
+
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_SIZE) {
+            throw new BadFrameException(length);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return data;
+    }
+
+    // Escritor de tramas compartido por los hilos de una conexión. Usa un cerrojo y no synchronized
+    // porque la escritura en el socket puede bloquearse y un hilo virtual bloqueado dentro de
+    // synchronized retiene su hilo portador.
+    static final class FrameWriter {
+        private final DataOutputStream out;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        FrameWriter(OutputStream out) {
+            this.out = new DataOutputStream(new BufferedOutputStream(out));
+        }
+
+        void write(byte type, byte[] data, int off, int len) throws IOException {
+            lock.lock();
+            try {
+                out.writeByte(type);
+                out.writeInt(len);
+                out.write(data, off, len);
+                out.flush();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Flujo de salida que envía lo escrito al cliente en tramas del tipo indicado.
+    // Lo usa un PrintStream, que ya serializa las escrituras.
+    private static final class FrameOutputStream extends OutputStream {
+        private final FrameWriter out;
+        private final byte type;
+        private final byte[] buffer = new byte[FRAME_SIZE];
+        private int count;
+
+        FrameOutputStream(FrameWriter out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flush();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flush();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                out.write(type, buffer, 0, count);
+                count = 0;
+            }
+        }
+    }
+}
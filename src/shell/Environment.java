@@ -0,0 +1,98 @@
+package shell;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Entorno de los comandos, inmutable: un mapa base (normalmente el de la JVM, que no se copia nunca)
+// más los cambios hechos sobre él (export, unset, VAR=valor delante de un comando). Cambiar una
+// variable crea un entorno nuevo que comparte la base y copia solo los cambios, así que una
+// subshell o un comando con un par de variables propias no copian el entorno completo.
+// Al lanzar un proceso solo se aplican los cambios sobre el entorno que ya prepara ProcessBuilder.
+public final class Environment {
+
+    private static final Environment PROCESS = new Environment(System.getenv(), Map.of());
+
+    private final Map<String, String> base;
+    // Variables cambiadas respecto a la base: el valor nuevo, o null si se ha quitado.
+    private final Map<String, String> changes;
+    // Vista completa como mapa, creada solo si alguien la pide.
+    private volatile Map<String, String> view;
+
+    private Environment(Map<String, String> base, Map<String, String> changes) {
+        this.base = base;
+        this.changes = changes;
+    }
+
+    // Entorno con el que se arrancó la JVM.
+    public static Environment process() {
+        return PROCESS;
+    }
+
+    // Entorno con el contenido del mapa indicado (que no debe modificarse después).
+    public static Environment of(Map<String, String> variables) {
+        return variables == PROCESS.base ? PROCESS : new Environment(variables, Map.of());
+    }
+
+    public String get(String name) {
+        return changes.containsKey(name) ? changes.get(name) : base.get(name);
+    }
+
+    // Entorno con la variable cambiada (o quitada, con value null).
+    public Environment with(String name, String value) {
+        if (Objects.equals(value, get(name))) {
+            return this;
+        }
+        Map<String, String> copy = new HashMap<>(changes);
+        copy.put(name, value);
+        return new Environment(base, Collections.unmodifiableMap(copy));
+    }
+
+    // Entorno con todas las variables indicadas cambiadas.
+    public Environment with(Map<String, String> variables) {
+        if (variables.isEmpty()) {
+            return this;
+        }
+        Map<String, String> copy = new HashMap<>(changes);
+        copy.putAll(variables);
+        return new Environment(base, Collections.unmodifiableMap(copy));
+    }
+
+    // Indica si es el entorno de la JVM sin ningún cambio (los procesos lo heredan tal cual).
+    public boolean isProcess() {
+        return base == PROCESS.base && changes.isEmpty();
+    }
+
+    // Deja en 'target' este entorno. Si 'target' ya tiene el de la JVM (el que prepara ProcessBuilder)
+    // y la base es ese mismo, solo se aplican los cambios.
+    void applyTo(Map<String, String> target) {
+        if (base != PROCESS.base) {
+            target.clear();
+            target.putAll(base);
+        }
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                target.remove(change.getKey());
+            } else {
+                target.put(change.getKey(), change.getValue());
+            }
+        }
+    }
+
+    // Todas las variables como un mapa de solo lectura.
+    public Map<String, String> toMap() {
+        Map<String, String> map = view;
+        if (map == null) {
+            if (changes.isEmpty()) {
+                map = Collections.unmodifiableMap(base);
+            } else {
+                Map<String, String> copy = new HashMap<>(base);
+                applyTo(copy);
+                map = Collections.unmodifiableMap(copy);
+            }
+            view = map;
+        }
+        return map;
+    }
+}
@@ -0,0 +1,553 @@
+package shell;
+
+import exceptions.ArgumentListTooLongException;
+import exceptions.MissingFileException;
+import exceptions.SyntaxException;
+import tokenizer.TCommand;
+import tokenizer.TLine;
+import tokenizer.Tokenizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Expansión de los argumentos de una línea antes de ejecutarla:
+//   1. Sustitución de comandos: todas las $(...) y `...` de la línea se lanzan a la vez, cada una
+//      en su hilo virtual, y su salida se captura en un SpillBuffer (memoria y, si crece, disco).
+//   2. Variables: $VAR, ${VAR}, ${VAR:-valor}, ${VAR-valor}, $? (último código de salida) y $$
+//      (pid de la shell), tomadas de las variables de la shell y del entorno del ShellContext.
+//   3. Separación en palabras: la salida de una sustitución o el valor de una variable sin comillas
+//      se dividen por los espacios, tabuladores y saltos de línea; entre comillas dobles forman una
+//      sola palabra (a la salida de una sustitución se le quitan los saltos de línea finales).
+//   4. Comodines: las palabras con *, ? o [ sin comillas se sustituyen por los ficheros que encajan.
+// Las palabras VAR=valor delante de un comando se quitan de argv y pasan a su entorno; si el comando
+// no tiene nada más, cambian las variables de la shell. Los destinos de las redirecciones se expanden
+// a una sola palabra. La salida capturada se lee en streaming al construir las palabras.
+public final class Expander {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private Expander() {
+    }
+
+    // Trozo de una palabra: texto literal, la salida de una sustitución (con su orden en 'text',
+    // para los mensajes de error) o una variable (su nombre, o el contenido de ${...}), con o sin comillas. Las variables se leen al construir las palabras,
+    // para que "A=1 B=$A" vea el valor recién asignado.
+    private record Part(String text, boolean quoted, CompletableFuture<SpillBuffer> output, String variable) {
+
+        Part(String text, boolean quoted, CompletableFuture<SpillBuffer> output) {
+            this(text, quoted, output, null);
+        }
+    }
+
+    // Expande los argumentos de todos los comandos de la línea. Los comandos que se quedan sin
+    // argumentos (por ejemplo, una sustitución que no escribe nada) se quitan de la línea.
+    // Falla si un comodín o una sustitución producen más de lo que cabe en los argumentos (ver Glob).
+    public static void expand(TLine tline) throws ArgumentListTooLongException {
+        List<TCommand> commands = tline.getCommands();
+        Map<TCommand, Map<Integer, List<Part>>> parsed = new HashMap<>();
+        Map<String, List<Part>> targets = new HashMap<>();
+        List<CompletableFuture<SpillBuffer>> outputs = new ArrayList<>();
+
+        // Las sustituciones de todas las palabras se lanzan antes de esperar a ninguna.
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (TCommand command : commands) {
+                if (command.getSources() == null) {
+                    continue;
+                }
+                Map<Integer, List<Part>> words = new HashMap<>();
+                for (Map.Entry<Integer, String> source : command.getSources().entrySet()) {
+                    words.put(source.getKey(), parse(source.getValue(), executor, outputs));
+                }
+                parsed.put(command, words);
+            }
+            if (tline.getTargetSources() != null) {
+                for (Map.Entry<String, String> source : tline.getTargetSources().entrySet()) {
+                    targets.put(source.getKey(), parse(source.getValue(), executor, outputs));
+                }
+            }
+        }
+
+        try {
+            ShellContext context = ShellContext.current();
+            List<TCommand> remaining = new ArrayList<>(commands.size());
+            for (TCommand command : commands) {
+                if (command.getSources() == null && command.getPatterns() == null && command.getAssignments() == 0) {
+                    remaining.add(command);
+                    continue;
+                }
+                Map<Integer, List<Part>> words = parsed.getOrDefault(command, Map.of());
+                Map<Integer, String> patterns = command.getPatterns() != null ? command.getPatterns() : Map.of();
+                List<String> argv = command.getArgv();
+
+                // VAR=valor: sin separar en palabras ni comodines. Un comando que solo tiene
+                // asignaciones (y no está en una tubería) cambia las variables de la shell.
+                int assignments = command.getAssignments();
+                boolean standalone = assignments == argv.size() && commands.size() == 1;
+                Map<String, String> variables = new LinkedHashMap<>();
+                for (int i = 0; i < assignments; i++) {
+                    String assignment = words.containsKey(i) ? join(words.get(i)) : argv.get(i);
+                    int equals = assignment.indexOf('=');
+                    String name = assignment.substring(0, equals);
+                    String value = assignment.substring(equals + 1);
+                    if (standalone) {
+                        context.assign(name, value);
+                    } else {
+                        variables.put(name, value);
+                    }
+                }
+                command.setAssignments(0);
+                command.setVariables(variables.isEmpty() ? null : variables);
+
+                Fields fields = new Fields();
+                for (int i = assignments; i < argv.size(); i++) {
+                    List<Part> parts = words.get(i);
+                    String pattern = patterns.get(i);
+                    if (parts != null) {
+                        for (Part part : parts) {
+                            append(fields, part);
+                        }
+                        fields.split();
+                    } else if (pattern != null) {
+                        List<String> matches = Glob.match(pattern);
+                        fields.count(matches, pattern);
+                        fields.out.addAll(matches.isEmpty() ? List.of(argv.get(i)) : matches);
+                    } else {
+                        fields.out.add(argv.get(i));
+                    }
+                }
+                if (fields.error != null) {
+                    throw fields.error;
+                }
+                command.setArgv(fields.out);
+                command.setArgc(fields.out.size());
+                command.setPatterns(null);
+                command.setSources(null);
+                if (!fields.out.isEmpty()) {
+                    command.setFilename(fields.out.getFirst());
+                    remaining.add(command);
+                }
+            }
+            if (remaining.size() != commands.size()) {
+                tline.setCommands(remaining);
+                tline.setNcommands(remaining.size());
+            }
+
+            // Destinos de las redirecciones: una sola palabra, sin separar ni comodines.
+            for (Map.Entry<String, List<Part>> target : targets.entrySet()) {
+                String value = join(target.getValue());
+                switch (target.getKey()) {
+                    case "<" -> tline.setRedirectInput(value);
+                    case ">" -> tline.setRedirectOutput(value);
+                    case "2>" -> tline.setRedirectError(value);
+                    case "<<<" -> tline.setHereInput(value + "\n");
+                    default -> {
+                    }
+                }
+            }
+            tline.setTargetSources(null);
+        } finally {
+            // Se borran los ficheros temporales de las sustituciones que se pasaron a disco.
+            for (CompletableFuture<SpillBuffer> output : outputs) {
+                try {
+                    output.join().close();
+                } catch (IOException ignored) {
+                    // El fichero temporal ya no existe.
+                }
+            }
+        }
+    }
+
+    // Divide el texto original de una palabra en trozos y lanza sus sustituciones.
+    private static List<Part> parse(String word, ExecutorService executor,
+                                    List<CompletableFuture<SpillBuffer>> outputs) {
+        List<Part> parts = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        try {
+            while (i < word.length()) {
+                char c = word.charAt(i);
+                if (c == '\'') {
+                    flush(parts, literal, false);
+                    int end = word.indexOf('\'', i + 1);
+                    parts.add(new Part(word.substring(i + 1, end), true, null));
+                    i = end + 1;
+                } else if (c == '"') {
+                    flush(parts, literal, false);
+                    i++;
+                    // Aunque quede vacío, "" sigue siendo una palabra.
+                    parts.add(new Part("", true, null));
+                    while (word.charAt(i) != '"') {
+                        char d = word.charAt(i);
+                        if (d == '\\' && "\"\\$`".indexOf(word.charAt(i + 1)) >= 0) {
+                            literal.append(word.charAt(i + 1));
+                            i += 2;
+                        } else if (d == '$' && i + 1 < word.length() && word.charAt(i + 1) == '(') {
+                            flush(parts, literal, true);
+                            int end = Tokenizer.substitutionEnd(word, i);
+                            parts.add(substitution(word.substring(i + 2, end - 1), true, executor, outputs));
+                            i = end;
+                        } else if (d == '$' && Tokenizer.variableEnd(word, i) > 0) {
+                            flush(parts, literal, true);
+                            int end = Tokenizer.variableEnd(word, i);
+                            parts.add(new Part(null, true, null, word.substring(i + 1, end)));
+                            i = end;
+                        } else if (d == '`') {
+                            flush(parts, literal, true);
+                            int end = Tokenizer.backquoteEnd(word, i);
+                            parts.add(substitution(backquoted(word.substring(i + 1, end - 1)), true, executor, outputs));
+                            i = end;
+                        } else {
+                            literal.append(d);
+                            i++;
+                        }
+                    }
+                    flush(parts, literal, true);
+                    i++;
+                } else if (c == '\\' && i + 1 < word.length()) {
+                    flush(parts, literal, false);
+                    parts.add(new Part(String.valueOf(word.charAt(i + 1)), true, null));
+                    i += 2;
+                } else if (c == '$' && i + 1 < word.length() && word.charAt(i + 1) == '(') {
+                    flush(parts, literal, false);
+                    int end = Tokenizer.substitutionEnd(word, i);
+                    parts.add(substitution(word.substring(i + 2, end - 1), false, executor, outputs));
+                    i = end;
+                } else if (c == '$' && Tokenizer.variableEnd(word, i) > 0) {
+                    flush(parts, literal, false);
+                    int end = Tokenizer.variableEnd(word, i);
+                    parts.add(new Part(null, false, null, word.substring(i + 1, end)));
+                    i = end;
+                } else if (c == '`') {
+                    flush(parts, literal, false);
+                    int end = Tokenizer.backquoteEnd(word, i);
+                    parts.add(substitution(backquoted(word.substring(i + 1, end - 1)), false, executor, outputs));
+                    i = end;
+                } else {
+                    literal.append(c);
+                    i++;
+                }
+            }
+        } catch (SyntaxException e) {
+            // El tokenizer ya ha comprobado la palabra, así que no debería ocurrir.
+            literal.append(word, i, word.length());
+        }
+        flush(parts, literal, false);
+        return parts;
+    }
+
+    private static void flush(List<Part> parts, StringBuilder literal, boolean quoted) {
+        if (!literal.isEmpty()) {
+            parts.add(new Part(literal.toString(), quoted, null));
+            literal.setLength(0);
+        }
+    }
+
+    // Dentro de `...` la barra invertida solo escapa $, ` y \.
+    private static String backquoted(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length() && "$`\\".indexOf(text.charAt(i + 1)) >= 0) {
+                c = text.charAt(++i);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    // Lanza la sustitución en el ejecutor y devuelve el trozo que recibirá su salida.
+    private static Part substitution(String command, boolean quoted, ExecutorService executor,
+                                     List<CompletableFuture<SpillBuffer>> outputs) {
+        CompletableFuture<SpillBuffer> output = CompletableFuture.supplyAsync(() -> run(command), executor);
+        outputs.add(output);
+        return new Part("$(" + command + ")", quoted, output);
+    }
+
+    // Ejecuta el comando de una sustitución capturando su salida estándar.
+    private static SpillBuffer run(String command) {
+        SpillBuffer buffer = new SpillBuffer();
+        try {
+            // La sustitución es una lista completa (a; b && c) que se ejecuta como una subshell:
+            // sus cd no cambian el directorio de la línea que la contiene.
+            Plan plan = Plan.compile(command);
+            ShellContext.current().copy().run(() -> plan.capture(buffer));
+        } catch (MissingFileException e) {
+            System.err.println("Error de redirección: " + e.getMessage());
+        } catch (SyntaxException e) {
+            System.err.println("Error de sintaxis: " + e.getMessage());
+        }
+        return buffer;
+    }
+
+    // Valor de una variable: el nombre ("HOME", "?", "$") o el contenido de ${...}. Una variable
+    // que no existe vale "".
+    static String value(String variable) {
+        ShellContext context = ShellContext.current();
+        if (!variable.startsWith("{")) {
+            return switch (variable) {
+                case "?" -> Integer.toString(context.lastStatus());
+                case "$" -> Long.toString(ProcessHandle.current().pid());
+                default -> {
+                    String value = context.variable(variable);
+                    yield value != null ? value : "";
+                }
+            };
+        }
+        // ${VAR}, ${VAR:-valor} (si no existe o está vacía) o ${VAR-valor} (si no existe).
+        String inner = variable.substring(1, variable.length() - 1);
+        boolean special = inner.startsWith("?") || inner.startsWith("$");
+        int end = 1;
+        while (!special && end < inner.length() && Tokenizer.isNamePart(inner.charAt(end))) {
+            end++;
+        }
+        String name = inner.substring(0, end);
+        String rest = inner.substring(end);
+        String value = special ? value(name) : context.variable(name);
+        if (rest.startsWith(":-") && (value == null || value.isEmpty())) {
+            return expandDefault(rest.substring(2));
+        }
+        if (rest.startsWith("-") && value == null) {
+            return expandDefault(rest.substring(1));
+        }
+        return value != null ? value : "";
+    }
+
+    // Valor por defecto de ${VAR:-valor}: se quitan las comillas y se expanden sus variables.
+    private static String expandDefault(String word) {
+        StringBuilder sb = new StringBuilder(word.length());
+        int i = 0;
+        while (i < word.length()) {
+            char c = word.charAt(i);
+            if (c == '\\' && i + 1 < word.length()) {
+                sb.append(word.charAt(i + 1));
+                i += 2;
+            } else if (c == '\'') {
+                int end = word.indexOf('\'', i + 1);
+                end = end < 0 ? word.length() : end;
+                sb.append(word, i + 1, end);
+                i = end + 1;
+            } else if (c == '"') {
+                i++;
+            } else {
+                int end = -1;
+                try {
+                    end = c == '$' ? Tokenizer.variableEnd(word, i) : -1;
+                } catch (SyntaxException e) {
+                    // El tokenizer ya ha comprobado la palabra, así que no debería ocurrir.
+                }
+                if (end > 0) {
+                    sb.append(value(word.substring(i + 1, end)));
+                    i = end;
+                } else {
+                    sb.append(c);
+                    i++;
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    // Une los trozos de una palabra en un solo texto, sin separarla ni expandir comodines
+    // (asignaciones y destinos de redirecciones). La salida de las sustituciones tiene el mismo
+    // límite que los argumentos: no se lee más allá.
+    private static String join(List<Part> parts) throws ArgumentListTooLongException {
+        StringBuilder sb = new StringBuilder();
+        for (Part part : parts) {
+            if (part.variable() != null) {
+                sb.append(value(part.variable()));
+            } else if (part.output() == null) {
+                sb.append(part.text());
+            } else {
+                byte[] bytes;
+                try (InputStream in = part.output().join().read()) {
+                    bytes = in.readNBytes((int) Glob.MAX_ARGUMENT_BYTES + 1);
+                } catch (IOException e) {
+                    System.err.println("Error al leer la salida de la sustitución: " + e.getMessage());
+                    continue;
+                }
+                if (bytes.length > Glob.MAX_ARGUMENT_BYTES) {
+                    throw new ArgumentListTooLongException(part.text());
+                }
+                String output = new String(bytes, StandardCharsets.UTF_8);
+                int end = output.length();
+                while (end > 0 && output.charAt(end - 1) == '\n') {
+                    end--;
+                }
+                sb.append(output, 0, end);
+            }
+        }
+        return sb.toString();
+    }
+
+    // Añade un trozo a las palabras que se están construyendo.
+    private static void append(Fields fields, Part part) {
+        if (part.variable() != null) {
+            String value = value(part.variable());
+            if (part.quoted()) {
+                fields.quoted(value);
+                return;
+            }
+            // Sin comillas, los blancos del valor separan palabras.
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == ' ' || c == '\t' || c == '\n') {
+                    fields.split();
+                } else {
+                    fields.unquoted(c);
+                }
+            }
+            return;
+        }
+        if (part.output() == null) {
+            if (part.quoted()) {
+                fields.quoted(part.text());
+            } else {
+                for (int i = 0; i < part.text().length(); i++) {
+                    fields.unquoted(part.text().charAt(i));
+                }
+            }
+            return;
+        }
+
+        // Salida de una sustitución, leída en bloques. Cuenta para el límite de los argumentos del
+        // comando, y en cuanto lo supera se deja de leer.
+        char[] chunk = new char[READ_BUFFER_SIZE];
+        int newlines = 0;
+        try (Reader reader = new BufferedReader(new InputStreamReader(part.output().join().read(), StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+            int n;
+            while (fields.error == null && (n = reader.read(chunk)) > 0) {
+                if (!fields.charge(n, part.text())) {
+                    break;
+                }
+                for (int i = 0; i < n; i++) {
+                    char c = chunk[i];
+                    if (c == '\n') {
+                        // Los saltos de línea finales se descartan: solo cuentan si luego hay más texto.
+                        newlines++;
+                        continue;
+                    }
+                    if (part.quoted()) {
+                        for (; newlines > 0; newlines--) {
+                            fields.quoted('\n');
+                        }
+                        fields.quoted(c);
+                    } else if (newlines > 0 || c == ' ' || c == '\t') {
+                        // Sin comillas, los blancos separan palabras.
+                        fields.split();
+                        if (c != ' ' && c != '\t') {
+                            fields.unquoted(c);
+                        }
+                    } else {
+                        fields.unquoted(c);
+                    }
+                    newlines = 0;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error al leer la salida de la sustitución: " + e.getMessage());
+        }
+        if (part.quoted()) {
+            // Una sustitución entre comillas cuenta como palabra aunque esté vacía.
+            fields.quoted("");
+        }
+    }
+
+    // Palabras resultantes de la expansión, con el patrón glob de la que se está construyendo.
+    private static final class Fields {
+        final List<String> out = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+        private final StringBuilder pattern = new StringBuilder();
+        private boolean glob;
+        private boolean started;
+        // Tamaño de las palabras resultantes (rutas de los comodines y salida de las sustituciones)
+        // y el error si supera el límite.
+        private long bytes;
+        ArgumentListTooLongException error;
+
+        // Texto entre comillas: literal, también en el patrón.
+        void quoted(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                quoted(s.charAt(i));
+            }
+            started = true;
+        }
+
+        void quoted(char c) {
+            text.append(c);
+            if ("*?[]{}\\,".indexOf(c) >= 0) {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+            started = true;
+        }
+
+        // Carácter sin comillas: los comodines se mantienen activos en el patrón.
+        void unquoted(char c) {
+            text.append(c);
+            if (c == '*' || c == '?' || c == '[') {
+                glob = true;
+            } else if (c == '{' || c == '}' || c == ',' || c == '\\') {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+            started = true;
+        }
+
+        // Suma las rutas de un comodín: entre todos los de un comando tampoco pueden pasar del límite.
+        void count(List<String> matches, String source) {
+            for (String match : matches) {
+                bytes += match.length() + 1L;
+            }
+            if (bytes > Glob.MAX_ARGUMENT_BYTES && error == null) {
+                error = new ArgumentListTooLongException(source);
+            }
+        }
+
+        // Suma los caracteres leídos de una sustitución. Devuelve false (y guarda el error) si el
+        // comando ya pasa del límite.
+        boolean charge(long chars, String source) {
+            bytes += chars;
+            if (bytes > Glob.MAX_ARGUMENT_BYTES && error == null) {
+                error = new ArgumentListTooLongException(source);
+            }
+            return error == null;
+        }
+
+        // Termina la palabra actual, si hay alguna, expandiendo sus comodines.
+        void split() {
+            if (!started) {
+                return;
+            }
+            List<String> matches = List.of();
+            if (glob && error == null) {
+                try {
+                    matches = Glob.match(pattern.toString());
+                    count(matches, pattern.toString());
+                } catch (ArgumentListTooLongException e) {
+                    error = e;
+                }
+            }
+            if (matches.isEmpty()) {
+                out.add(text.toString());
+            } else {
+                out.addAll(matches);
+            }
+            text.setLength(0);
+            pattern.setLength(0);
+            glob = false;
+            started = false;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package shell;
+
+import exceptions.ArgumentListTooLongException;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.PatternSyntaxException;
+
+// Expansión de comodines (*, ?, [...] y **) de los argumentos sin comillas.
+// El tokenizer deja en cada TCommand el patrón de las palabras con comodines y Expander las
+// sustituye por los ficheros que encajan, ordenados. Si no encaja ninguno la palabra se queda tal
+// cual, como en bash. Cada componente del patrón se compara con un PathMatcher compilado una sola vez
+// y guardado en caché, y los directorios se leen en streaming sin cargar el listado entero.
+// Con ** (cualquier número de directorios) el árbol se recorre en paralelo en el ForkJoinPool
+// común: cada subdirectorio es una tarea y solo se devuelven las rutas que encajan.
+// Las rutas terminan todas en el argv del comando, así que lo que se acota es el resultado: como
+// el ARG_MAX de Linux, los comodines de un comando no pueden producir más de MAX_ARGUMENT_BYTES.
+// Las tareas de un patrón comparten la cuenta y dejan de recorrer en cuanto se supera, sin
+// terminar de leer el árbol, y Expander suma los de todos los patrones del comando.
+public final class Glob {
+
+    // Como mucho se guardan tantos patrones compilados; al superarlo se vacía la caché.
+    private static final int MAX_MATCHERS = 1024;
+    // Tamaño máximo de las rutas de un patrón (contando un separador por ruta), como ARG_MAX.
+    static final long MAX_ARGUMENT_BYTES = 2 * 1024 * 1024;
+
+    private static final Map<String, PathMatcher> MATCHERS = new ConcurrentHashMap<>();
+
+    private Glob() {
+    }
+
+    // Rutas que encajan con el patrón, ordenadas. Relativas al directorio actual si el patrón lo es.
+    public static List<String> match(String pattern) throws ArgumentListTooLongException {
+        boolean absolute = pattern.startsWith("/");
+        String[] segments = (absolute ? pattern.substring(1) : pattern).split("/", -1);
+        Path base = absolute ? Path.of("/") : Path.of(ShellContext.current().cwd());
+        Budget budget = new Budget();
+        List<String> result;
+        try {
+            result = ForkJoinPool.commonPool().invoke(new Walk(base, absolute ? "/" : "", segments, 0, budget));
+        } catch (PatternSyntaxException e) {
+            // Patrón mal formado (por ejemplo, un '[' sin cerrar): la palabra se queda tal cual.
+            return List.of();
+        }
+        if (budget.exceeded()) {
+            throw new ArgumentListTooLongException(pattern);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    // Bytes de resultado que lleva un patrón, compartidos por todas sus tareas.
+    private static final class Budget {
+        private final AtomicLong bytes = new AtomicLong();
+
+        // Cuenta una ruta; devuelve false si con ella se supera el límite.
+        boolean add(String path) {
+            return bytes.addAndGet(path.length() + 1L) <= MAX_ARGUMENT_BYTES;
+        }
+
+        boolean exceeded() {
+            return bytes.get() > MAX_ARGUMENT_BYTES;
+        }
+    }
+
+    // Tarea que aplica los componentes del patrón desde 'index' sobre el directorio 'dir'.
+    // 'display' es la ruta del directorio tal y como se mostrará en el resultado.
+    private static final class Walk extends RecursiveTask<List<String>> {
+        private final Path dir;
+        private final String display;
+        private final String[] segments;
+        private final int index;
+        private final Budget budget;
+
+        Walk(Path dir, String display, String[] segments, int index, Budget budget) {
+            this.dir = dir;
+            this.display = display;
+            this.segments = segments;
+            this.index = index;
+            this.budget = budget;
+        }
+
+        // Añade una ruta al resultado si aún cabe.
+        private boolean add(List<String> out, String path) {
+            if (!budget.add(path)) {
+                return false;
+            }
+            out.add(path);
+            return true;
+        }
+
+        @Override
+        protected List<String> compute() {
+            List<String> out = new ArrayList<>();
+            if (budget.exceeded()) {
+                return out;
+            }
+            List<Walk> subtasks = new ArrayList<>();
+            String segment = segments[index];
+            boolean last = index == segments.length - 1;
+
+            if (segment.isEmpty()) {
+                // Patrón terminado en '/' (o con '//'): solo directorios.
+                if (last) {
+                    if (Files.isDirectory(dir) && !display.isEmpty()) {
+                        add(out, display.endsWith("/") ? display : display + "/");
+                    }
+                } else {
+                    subtasks.add(new Walk(dir, display, segments, index + 1, budget));
+                }
+            } else if (segment.equals("**")) {
+                // Cero directorios: el resto del patrón se aplica aquí mismo.
+                if (last) {
+                    subtasks.add(new Walk(dir, display, new String[]{"*"}, 0, budget));
+                } else {
+                    subtasks.add(new Walk(dir, display, segments, index + 1, budget));
+                }
+                // Uno o más: ** se aplica de nuevo en cada subdirectorio (sin seguir enlaces ni ocultos).
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                    for (Path entry : stream) {
+                        if (budget.exceeded()) {
+                            break;
+                        }
+                        String name = entry.getFileName().toString();
+                        if (!name.startsWith(".") && Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                            subtasks.add(new Walk(entry, path(display, name), segments, index, budget));
+                        }
+                    }
+                } catch (IOException e) {
+                    // Directorio ilegible: no aporta resultados.
+                }
+            } else if (!hasWildcards(segment)) {
+                // Componente literal: no hace falta leer el directorio.
+                String name = unescape(segment);
+                Path next = dir.resolve(name);
+                if (last ? Files.exists(next, LinkOption.NOFOLLOW_LINKS) : Files.isDirectory(next)) {
+                    if (last) {
+                        add(out, path(display, name));
+                    } else {
+                        subtasks.add(new Walk(next, path(display, name), segments, index + 1, budget));
+                    }
+                }
+            } else {
+                PathMatcher matcher = matcher(segment);
+                boolean hidden = segment.startsWith(".") || segment.startsWith("\\.");
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                    for (Path entry : stream) {
+                        Path name = entry.getFileName();
+                        if (!hidden && name.toString().startsWith(".") || !matcher.matches(name)) {
+                            continue;
+                        }
+                        if (last) {
+                            if (!add(out, path(display, name.toString()))) {
+                                break;
+                            }
+                        } else if (Files.isDirectory(entry)) {
+                            subtasks.add(new Walk(entry, path(display, name.toString()), segments, index + 1, budget));
+                        }
+                    }
+                } catch (IOException e) {
+                    // Directorio ilegible o inexistente: no aporta resultados.
+                }
+            }
+
+            if (subtasks.size() == 1) {
+                out.addAll(subtasks.getFirst().compute());
+            } else if (!subtasks.isEmpty()) {
+                invokeAll(subtasks);
+                for (Walk task : subtasks) {
+                    out.addAll(task.join());
+                }
+            }
+            return out;
+        }
+    }
+
+    // PathMatcher del componente, compilado una sola vez.
+    private static PathMatcher matcher(String segment) {
+        PathMatcher matcher = MATCHERS.get(segment);
+        if (matcher == null) {
+            if (MATCHERS.size() >= MAX_MATCHERS) {
+                MATCHERS.clear();
+            }
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + segment);
+            MATCHERS.put(segment, matcher);
+        }
+        return matcher;
+    }
+
+    // Indica si el componente tiene algún comodín sin proteger.
+    private static boolean hasWildcards(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '*' || c == '?' || c == '[') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String unescape(String segment) {
+        if (segment.indexOf('\\') < 0) {
+            return segment;
+        }
+        StringBuilder sb = new StringBuilder(segment.length());
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '\\' && i + 1 < segment.length()) {
+                c = segment.charAt(++i);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static String path(String display, String name) {
+        if (display.isEmpty()) {
+            return name;
+        }
+        return display.endsWith("/") ? display + name : display + "/" + name;
+    }
+}
@@ -0,0 +1,278 @@
+package shell;
+
+import exceptions.EventNotFoundException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+// Historial de comandos persistente.
+// Cada línea se añade al final del fichero con una sola escritura (nunca se reescribe entero) y el
+// fichero se carga en un hilo virtual al arrancar, de modo que el prompt aparece sin esperarle.
+// Para las búsquedas hay dos índices que se construyen la primera vez que se usan y después se
+// actualizan con cada línea nueva:
+//   - prefijos: mapa ordenado de cada línea distinta a su última aparición (!prefijo: si hay
+//     coincidencias, la más reciente se busca hacia atrás desde el final).
+//   - subcadenas: trigramas de cada línea con la lista de entradas que los contienen (history -r, Ctrl-R).
+// Las entradas se numeran desde 1, como en bash.
+public final class History {
+
+    // Fichero por defecto, en el directorio personal del usuario (se puede cambiar con $MINISHELL_HISTFILE).
+    private static final String DEFAULT_FILE = ".minishell_history";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final List<String> ENTRIES = new ArrayList<>();
+    private static CompletableFuture<Void> loaded;
+    private static Path file;
+    private static FileChannel channel;
+
+    // Índices de búsqueda (null hasta que se necesitan).
+    private static NavigableMap<String, Integer> prefixes;
+    private static Map<Long, Postings> trigrams;
+
+    private History() {
+    }
+
+    // Lista creciente de números de entrada (ordenados y sin repetir) para un trigrama.
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        // Posición de la última entrada menor que 'before', o -1 si no hay ninguna.
+        int floor(int before) {
+            int i = Arrays.binarySearch(ids, 0, size, before);
+            return (i >= 0 ? i : -i - 1) - 1;
+        }
+    }
+
+    // Empieza a cargar el fichero de historial en segundo plano.
+    public static synchronized void start() {
+        if (loaded != null) {
+            return;
+        }
+        String custom = System.getenv("MINISHELL_HISTFILE");
+        file = custom != null && !custom.isEmpty() ? Path.of(custom) : Path.of(ShellContext.HOME, DEFAULT_FILE);
+        loaded = CompletableFuture.runAsync(History::load, Thread::startVirtualThread);
+    }
+
+    // Lee todas las líneas del fichero. Si no existe, el historial empieza vacío.
+    private static void load() {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(Files.newBufferedReader(file, StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Primera sesión: todavía no hay historial.
+        } catch (IOException e) {
+            System.err.println("history: no se puede leer " + file + ": " + e.getMessage());
+        }
+        synchronized (History.class) {
+            ENTRIES.addAll(lines);
+        }
+    }
+
+    // Espera a que termine la carga del fichero (si se llegó a iniciar).
+    private static void await() {
+        CompletableFuture<Void> pending;
+        synchronized (History.class) {
+            pending = loaded;
+        }
+        if (pending != null) {
+            pending.join();
+        }
+    }
+
+    // Añade una línea al historial y al final del fichero.
+    public static void add(String line) {
+        await();
+        synchronized (History.class) {
+            ENTRIES.add(line);
+            index(ENTRIES.size());
+            append(line);
+        }
+    }
+
+    // Escribe la línea al final del fichero. El canal se abre una vez y se mantiene abierto.
+    private static void append(String line) {
+        if (file == null) {
+            return;
+        }
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            System.err.println("history: no se puede escribir en " + file + ": " + e.getMessage());
+            file = null;
+        }
+    }
+
+    // Número de entradas del historial.
+    public static int size() {
+        await();
+        synchronized (History.class) {
+            return ENTRIES.size();
+        }
+    }
+
+    // Entrada número n (desde 1), o null si no existe.
+    public static String get(int n) {
+        await();
+        synchronized (History.class) {
+            return n >= 1 && n <= ENTRIES.size() ? ENTRIES.get(n - 1) : null;
+        }
+    }
+
+    // Número de la entrada más reciente que empieza por el prefijo, o 0 si no hay ninguna.
+    public static int findPrefix(String prefix) {
+        await();
+        synchronized (History.class) {
+            buildIndexes();
+            // El índice dice al momento si hay alguna (o si solo hay una línea distinta con ese prefijo).
+            // Si hay varias, la más reciente es la primera que aparece recorriendo hacia atrás, sin
+            // pasar por todas las coincidencias.
+            NavigableMap<String, Integer> matches = prefixes.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+            if (matches.isEmpty()) {
+                return 0;
+            }
+            if (matches.firstKey().equals(matches.lastKey())) {
+                return matches.firstEntry().getValue();
+            }
+            for (int id = ENTRIES.size(); id >= 1; id--) {
+                if (ENTRIES.get(id - 1).startsWith(prefix)) {
+                    return id;
+                }
+            }
+            return 0;
+        }
+    }
+
+    // Número de la entrada más reciente anterior a 'before' que contiene el texto, o 0 si no hay
+    // ninguna. Llamándola otra vez con el resultado se obtiene la siguiente coincidencia (Ctrl-R).
+    public static int search(String text, int before) {
+        await();
+        synchronized (History.class) {
+            before = Math.min(before, ENTRIES.size() + 1);
+            if (text.length() < 3) {
+                // Sin trigramas que consultar: se recorre hacia atrás, empezando por lo más reciente.
+                for (int id = before - 1; id >= 1; id--) {
+                    if (ENTRIES.get(id - 1).contains(text)) {
+                        return id;
+                    }
+                }
+                return 0;
+            }
+
+            buildIndexes();
+            // Solo son candidatas las entradas que tienen todos los trigramas del texto; se recorren las
+            // de la lista más corta y se comprueba cada una entera.
+            Postings shortest = null;
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                Postings postings = trigrams.get(trigram(text, i));
+                if (postings == null) {
+                    return 0;
+                }
+                if (shortest == null || postings.size < shortest.size) {
+                    shortest = postings;
+                }
+            }
+            for (int i = shortest.floor(before); i >= 0; i--) {
+                int id = shortest.ids[i];
+                if (ENTRIES.get(id - 1).contains(text)) {
+                    return id;
+                }
+            }
+            return 0;
+        }
+    }
+
+    // Expande una referencia al historial al principio de la línea (!!, !n, !-n, !prefijo) y
+    // devuelve la línea resultante. Si la línea no empieza por '!', se devuelve tal cual.
+    public static String expand(String line) throws EventNotFoundException {
+        if (line.length() < 2 || line.charAt(0) != '!' || Character.isWhitespace(line.charAt(1))) {
+            return line;
+        }
+        int end = 1;
+        while (end < line.length() && !Character.isWhitespace(line.charAt(end))) {
+            end++;
+        }
+        String event = line.substring(0, end);
+        String designator = event.substring(1);
+
+        int id;
+        if (designator.equals("!")) {
+            id = size();
+        } else if (designator.matches("-?\\d+")) {
+            int n = Integer.parseInt(designator);
+            id = n < 0 ? size() + 1 + n : n;
+        } else {
+            id = findPrefix(designator);
+        }
+        String entry = get(id);
+        if (entry == null) {
+            throw new EventNotFoundException(event);
+        }
+        return entry + line.substring(end);
+    }
+
+    // Construye los índices la primera vez que se hace una búsqueda.
+    private static void buildIndexes() {
+        if (prefixes != null) {
+            return;
+        }
+        prefixes = new TreeMap<>();
+        trigrams = new HashMap<>();
+        for (int id = 1; id <= ENTRIES.size(); id++) {
+            index(id);
+        }
+    }
+
+    // Añade la entrada a los índices, si ya están construidos.
+    private static void index(int id) {
+        if (prefixes == null) {
+            return;
+        }
+        String line = ENTRIES.get(id - 1);
+        prefixes.put(line, id);
+        for (int i = 0; i + 3 <= line.length(); i++) {
+            trigrams.computeIfAbsent(trigram(line, i), k -> new Postings()).add(id);
+        }
+    }
+
+    // Tres caracteres consecutivos empaquetados en un long.
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
@@ -0,0 +1,311 @@
+package shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Salida capturada de un trabajo en segundo plano (set -o jobcapture o set -o joblog), para que
+// no se mezcle con el prompt ni con el comando siguiente. La salida y los errores de los procesos
+// se leen en hilos virtuales y se guardan por separado:
+//   - jobcapture: en un búfer circular fuera del heap (ByteBuffer.allocateDirect) de tamaño fijo.
+//     Si el trabajo escribe más, se conservan solo los últimos bytes.
+//   - joblog: en un fichero por trabajo y flujo, en el directorio temporal. En memoria solo está
+//     el bloque que se está copiando.
+// En los dos casos la memoria que usa un trabajo está acotada por mucho que escriba. El builtin
+// joblog muestra lo capturado.
+public final class JobOutput {
+
+    // Modo de captura de los trabajos en segundo plano.
+    public enum Mode {
+        OFF,        // Los trabajos escriben directamente en la consola
+        MEMORY,     // Búfer circular fuera del heap
+        FILE        // Fichero de log por trabajo
+    }
+
+    // Bytes que guarda cada búfer circular (uno para la salida y otro para los errores).
+    public static final int RING_SIZE = 256 * 1024;
+    private static final int DRAIN_BUFFER_SIZE = 64 * 1024;
+
+    private final Sink out;
+    private final Sink err;
+    private final List<Thread> drains = new ArrayList<>();
+
+    private JobOutput(Sink out, Sink err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    // Crea la captura de un trabajo según el modo de la shell, o null si está desactivada.
+    static JobOutput open() throws IOException {
+        return switch (ShellContext.current().jobCapture()) {
+            case OFF -> null;
+            case MEMORY -> new JobOutput(new Ring(RING_SIZE), new Ring(RING_SIZE));
+            case FILE -> new JobOutput(LogFile.create("out"), LogFile.create("err"));
+        };
+    }
+
+    // Flujo donde escribe la salida (o, con 'error', los errores) un builtin del trabajo.
+    OutputStream stream(boolean error) {
+        Sink sink = error ? err : out;
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                sink.write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                sink.write(b, off, len);
+            }
+        };
+    }
+
+    // Prepara un proceso del trabajo: los flujos que irían a la consola (la salida solo si 'output')
+    // pasan a una tubería. Devuelve cuáles hay que leer después con drain(process, prepared).
+    boolean[] prepare(ProcessBuilder pb, boolean output) {
+        boolean[] prepared = new boolean[2];
+        if (output && pb.redirectOutput() == ProcessBuilder.Redirect.INHERIT) {
+            pb.redirectOutput(ProcessBuilder.Redirect.PIPE);
+            prepared[0] = true;
+        }
+        if (!pb.redirectErrorStream() && pb.redirectError() == ProcessBuilder.Redirect.INHERIT) {
+            pb.redirectError(ProcessBuilder.Redirect.PIPE);
+            prepared[1] = true;
+        }
+        return prepared;
+    }
+
+    void drain(Process process, boolean[] prepared) {
+        if (prepared[0]) {
+            drain(process.getInputStream(), false);
+        }
+        if (prepared[1]) {
+            drain(process.getErrorStream(), true);
+        }
+    }
+
+    // Lee en un hilo virtual la salida (o los errores) de un proceso del trabajo hasta su final.
+    void drain(InputStream from, boolean error) {
+        Sink sink = error ? err : out;
+        Thread thread = Thread.ofVirtual().start(() -> {
+            byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+            try (from) {
+                int n;
+                while ((n = from.read(buffer)) > 0) {
+                    sink.write(buffer, 0, n);
+                }
+            } catch (IOException e) {
+                // El proceso ha terminado o el log ya no se puede escribir.
+            }
+        });
+        synchronized (drains) {
+            drains.add(thread);
+        }
+    }
+
+    // Espera a que se haya guardado todo lo que escribieron los procesos del trabajo.
+    public void awaitDrained() throws InterruptedException {
+        List<Thread> threads;
+        synchronized (drains) {
+            threads = List.copyOf(drains);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    // Total de bytes que ha escrito el trabajo en la salida o en los errores.
+    public long written(boolean error) {
+        return (error ? err : out).written();
+    }
+
+    // Posición del primer byte que aún se conserva (en un búfer circular, los anteriores se han perdido).
+    public long start(boolean error) {
+        return (error ? err : out).start();
+    }
+
+    // Copia en 'to' lo guardado desde la posición 'from' (o desde el primer byte conservado, si es
+    // posterior) y devuelve la posición hasta la que ha copiado.
+    public long copyTo(boolean error, long from, OutputStream to) throws IOException {
+        return (error ? err : out).copyTo(from, to);
+    }
+
+    // Fichero del log, o null si la salida está en memoria.
+    public Path file(boolean error) {
+        return (error ? err : out) instanceof LogFile log ? log.path : null;
+    }
+
+    // Libera la captura (borra los ficheros de log).
+    void close() {
+        out.close();
+        err.close();
+    }
+
+    private interface Sink {
+        void write(byte[] b, int off, int len) throws IOException;
+
+        long written();
+
+        long start();
+
+        long copyTo(long from, OutputStream to) throws IOException;
+
+        void close();
+    }
+
+    // Búfer circular fuera del heap: guarda los últimos 'capacity' bytes escritos.
+    private static final class Ring implements Sink {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ByteBuffer buffer;
+        private long written;
+
+        Ring(int capacity) {
+            buffer = ByteBuffer.allocateDirect(capacity);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            lock.lock();
+            try {
+                int capacity = buffer.capacity();
+                // Si el bloque no cabe entero, solo importa su final.
+                if (len > capacity) {
+                    written += len - capacity;
+                    off += len - capacity;
+                    len = capacity;
+                }
+                int at = (int) (written % capacity);
+                int first = Math.min(len, capacity - at);
+                buffer.put(at, b, off, first);
+                buffer.put(0, b, off + first, len - first);
+                written += len;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public long written() {
+            lock.lock();
+            try {
+                return written;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public long start() {
+            lock.lock();
+            try {
+                return Math.max(0, written - buffer.capacity());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public long copyTo(long from, OutputStream to) throws IOException {
+            byte[] bytes;
+            long end;
+            lock.lock();
+            try {
+                end = written;
+                from = Math.max(from, Math.max(0, written - buffer.capacity()));
+                bytes = new byte[(int) (end - from)];
+                int capacity = buffer.capacity();
+                int at = (int) (from % capacity);
+                int first = Math.min(bytes.length, capacity - at);
+                buffer.get(at, bytes, 0, first);
+                buffer.get(0, bytes, first, bytes.length - first);
+            } finally {
+                lock.unlock();
+            }
+            to.write(bytes);
+            return end;
+        }
+
+        @Override
+        public void close() {
+            // La memoria fuera del heap se libera cuando el búfer deja de usarse.
+        }
+    }
+
+    // Fichero de log del trabajo.
+    private static final class LogFile implements Sink {
+        private final Path path;
+        private final FileChannel channel;
+
+        private LogFile(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        static LogFile create(String suffix) throws IOException {
+            Path path = Files.createTempFile("minishell-job", "." + suffix);
+            path.toFile().deleteOnExit();
+            return new LogFile(path);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ByteBuffer bytes = ByteBuffer.wrap(b, off, len);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+
+        @Override
+        public long written() {
+            try {
+                return channel.size();
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+        @Override
+        public long start() {
+            return 0;
+        }
+
+        @Override
+        public long copyTo(long from, OutputStream to) throws IOException {
+            try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+                long end = reader.size();
+                reader.position(Math.min(from, end));
+                InputStream in = Channels.newInputStream(reader);
+                byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+                long position = reader.position();
+                while (position < end) {
+                    int n = in.read(buffer, 0, (int) Math.min(buffer.length, end - position));
+                    if (n < 0) {
+                        break;
+                    }
+                    to.write(buffer, 0, n);
+                    position += n;
+                }
+                return position;
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // El fichero ya no existe.
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package shell;
+
+import tokenizer.TCommand;
+import tokenizer.TLine;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+// Tabla de trabajos en segundo plano (comandos y tuberías lanzados con &).
+// Cada trabajo guarda sus procesos y se recoge de forma asíncrona con onExit() en un hilo
+// virtual, así que nadie tiene que esperar activamente. Los trabajos terminados se
+// anuncian antes del siguiente prompt o al consultarlos con jobs/wait/fg.
+// Si la salida del trabajo se captura (JobOutput), se conserva aunque el trabajo salga de la tabla,
+// hasta que otro trabajo reutilice su número o haya demasiadas capturas guardadas.
+// Cada intérprete (ShellContext) tiene su propia tabla, así que las sesiones del demonio no ven ni
+// esperan ni matan los trabajos de las demás; las subshells comparten la de su intérprete.
+public final class JobTable {
+
+    // Ejecutor de hilos virtuales donde se recogen los trabajos que terminan.
+    private static final ExecutorService REAPER = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Número máximo de capturas de salida que se conservan.
+    private static final int MAX_OUTPUTS = 32;
+
+    // Trabajos activos ordenados por número de trabajo.
+    private final ConcurrentSkipListMap<Integer, Job> jobs = new ConcurrentSkipListMap<>();
+
+    // Trabajos que han terminado y aún no se han anunciado.
+    private final Queue<Job> finished = new ConcurrentLinkedQueue<>();
+
+    // Trabajos con la salida capturada, por número de trabajo, del más antiguo al más reciente.
+    private final LinkedHashMap<Integer, Job> outputs = new LinkedHashMap<>();
+
+    // Un trabajo en segundo plano.
+    public static final class Job {
+        private final int id;
+        private final String command;
+        private final List<Process> processes;
+        private final CompletableFuture<Integer> completion;
+        private final JobOutput output;
+
+        private Job(int id, String command, List<Process> processes, CompletableFuture<Integer> completion,
+                    JobOutput output) {
+            this.id = id;
+            this.command = command;
+            this.processes = processes;
+            this.completion = completion;
+            this.output = output;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        public List<Process> getProcesses() {
+            return processes;
+        }
+
+        // Salida capturada del trabajo, o null si escribe directamente en la consola.
+        public JobOutput getOutput() {
+            return output;
+        }
+
+        public boolean isDone() {
+            return completion.isDone();
+        }
+
+        // Código de salida del trabajo; solo tiene sentido cuando isDone() es true.
+        public int getStatus() {
+            return completion.getNow(-1);
+        }
+
+        // Espera a que termine el trabajo y devuelve su código de salida.
+        public int waitFor() throws InterruptedException {
+            try {
+                return completion.get();
+            } catch (ExecutionException e) {
+                return 1;
+            }
+        }
+
+        // Texto de estado tal y como lo muestra jobs.
+        public String describeState() {
+            if (!isDone()) {
+                return "Ejecutando";
+            }
+            return getStatus() == 0 ? "Hecho" : "Salida " + getStatus();
+        }
+    }
+
+    JobTable() {
+    }
+
+    // Registra un trabajo nuevo y programa su recogida cuando terminen todas sus etapas.
+    public Job add(String command, List<Process> processes, CompletableFuture<Integer> completion) {
+        return add(command, processes, completion, null);
+    }
+
+    // Igual, para un trabajo cuya salida se captura en 'output'.
+    public Job add(String command, List<Process> processes, CompletableFuture<Integer> completion,
+                          JobOutput output) {
+        Job job;
+        synchronized (jobs) {
+            // Como en bash, el número es uno más que el mayor trabajo activo.
+            int id = jobs.isEmpty() ? 1 : jobs.lastKey() + 1;
+            job = new Job(id, command, List.copyOf(processes), completion, output);
+            jobs.put(id, job);
+            if (output != null) {
+                keep(job);
+            }
+        }
+        Job registered = job;
+        completion.whenCompleteAsync((status, error) -> finished.add(registered), REAPER);
+        return job;
+    }
+
+    // Guarda la captura de un trabajo: sustituye a la del trabajo anterior con el mismo número y,
+    // si hay demasiadas, libera la más antigua. Se llama con el cerrojo de jobs.
+    private void keep(Job job) {
+        Job previous = outputs.remove(job.id);
+        if (previous != null) {
+            previous.output.close();
+        }
+        outputs.put(job.id, job);
+        if (outputs.size() > MAX_OUTPUTS) {
+            Job eldest = outputs.pollFirstEntry().getValue();
+            eldest.output.close();
+        }
+    }
+
+    // Trabajo con la salida capturada con el número indicado (aunque ya haya terminado) o null.
+    public Job captured(int id) {
+        synchronized (jobs) {
+            return outputs.get(id);
+        }
+    }
+
+    // Trabajo más reciente con la salida capturada o null.
+    public Job lastCaptured() {
+        synchronized (jobs) {
+            return outputs.isEmpty() ? null : outputs.lastEntry().getValue();
+        }
+    }
+
+    // Registra un proceso externo suelto.
+    public Job add(String command, Process process) {
+        return add(command, process, null);
+    }
+
+    public Job add(String command, Process process, JobOutput output) {
+        return add(command, List.of(process), process.onExit().thenApply(Process::exitValue), output);
+    }
+
+    // Ejecuta una tarea de la JVM (por ejemplo un builtin) en segundo plano como un trabajo más.
+    public Job submit(String command, Supplier<Integer> task) {
+        return submit(command, task, null);
+    }
+
+    public Job submit(String command, Supplier<Integer> task, JobOutput output) {
+        return add(command, List.of(), CompletableFuture.supplyAsync(task, REAPER), output);
+    }
+
+    // Trabajo con el número indicado o null si no existe.
+    public Job get(int id) {
+        return jobs.get(id);
+    }
+
+    // Trabajo más reciente (el que usan fg y wait sin argumentos) o null si no hay ninguno.
+    public Job current() {
+        Map.Entry<Integer, Job> last = jobs.lastEntry();
+        return last != null ? last.getValue() : null;
+    }
+
+    // Busca un trabajo a partir de su especificación: %n, %% o %+ (el actual) o un pid.
+    // Si 'numberIsJob' es true, un número sin % se interpreta como número de trabajo (fg).
+    public Job find(String spec, boolean numberIsJob) {
+        try {
+            if (spec.equals("%%") || spec.equals("%+") || spec.equals("%")) {
+                return current();
+            }
+            if (spec.startsWith("%")) {
+                return get(Integer.parseInt(spec.substring(1)));
+            }
+            return numberIsJob ? get(Integer.parseInt(spec)) : findByPid(Long.parseLong(spec));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Trabajos activos en orden.
+    public Collection<Job> jobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    // Trabajo que contiene el proceso con este pid o null.
+    public Job findByPid(long pid) {
+        for (Job job : jobs.values()) {
+            for (Process p : job.processes) {
+                if (p.pid() == pid) {
+                    return job;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Quita un trabajo de la tabla (ya se ha informado de su estado).
+    public void remove(Job job) {
+        jobs.remove(job.id, job);
+    }
+
+    // Anuncia los trabajos que han terminado desde la última vez y los quita de la tabla.
+    public void reportFinished(PrintStream out) {
+        Job job;
+        while ((job = finished.poll()) != null) {
+            // Si ya se informó de él (jobs, wait o fg) no se vuelve a anunciar.
+            if (jobs.remove(job.id, job)) {
+                out.println(format(job));
+            }
+        }
+    }
+
+    // Línea de estado de un trabajo: [1]  Hecho    sleep 10 &
+    public static String format(Job job) {
+        return String.format("[%d]  %-12s %s", job.id, job.describeState(), job.command);
+    }
+
+    // Texto del comando de una línea, para mostrarlo en jobs.
+    public static String describe(TLine tline) {
+        StringBuilder sb = new StringBuilder();
+        for (TCommand command : tline.getCommands()) {
+            if (!sb.isEmpty()) {
+                sb.append(" | ");
+            }
+            sb.append(String.join(" ", command.getArgv()));
+        }
+        return sb.append(" &").toString();
+    }
+}
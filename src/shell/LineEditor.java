@@ -0,0 +1,450 @@
+package shell;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Editor de línea para el modo interactivo en terminales Unix.
+// Pone el terminal en modo sin búfer (stty) al leer la primera línea y lo deja así entre un prompt
+// y el siguiente; solo vuelve al modo normal (restore) antes de ejecutar una línea que puede usar
+// el terminal, así que las líneas vacías o que solo cambian el estado de la shell no lanzan ningún
+// proceso stty. Soporta:
+//   - Tab: completa nombres de comandos (primera palabra) y rutas (resto de palabras).
+//   - Flechas arriba/abajo: recorren el historial; Ctrl-R: búsqueda inversa en el historial.
+//   - Flechas izquierda/derecha, Inicio/Fin, Ctrl-A/E, Ctrl-U/K, Supr, Retroceso.
+//   - Ctrl-C descarta la línea; Ctrl-D en una línea vacía termina la entrada.
+public final class LineEditor {
+
+    private static final int CTRL_A = 1;
+    private static final int CTRL_C = 3;
+    private static final int CTRL_D = 4;
+    private static final int CTRL_E = 5;
+    private static final int CTRL_G = 7;
+    private static final int BACKSPACE = 8;
+    private static final int TAB = 9;
+    private static final int CTRL_K = 11;
+    private static final int CTRL_L = 12;
+    private static final int CTRL_R = 18;
+    private static final int CTRL_U = 21;
+    private static final int ESC = 27;
+    private static final int DELETE = 127;
+
+    // Caracteres que se escapan con '\' al insertar una palabra completada.
+    private static final String SPECIAL = " \t\\'\"|&<>;#$`*?[](){}";
+
+    private final InputStream in = System.in;
+    private final PrintStream out = System.out;
+    // Modo del terminal antes de empezar (stty -g), para restaurarlo.
+    private final String savedMode;
+    // El terminal está en modo sin búfer (lo lee también el hook de salida de la JVM).
+    private volatile boolean raw;
+
+    private final StringBuilder line = new StringBuilder();
+    private int cursor;
+    private String prompt;
+    // Entrada del historial que se está mostrando (size + 1 es la línea nueva) y la línea nueva.
+    private int historyIndex;
+    private String draft;
+    // El Tab anterior no pudo completar nada: el siguiente muestra la lista de candidatos.
+    private boolean pendingList;
+
+    private LineEditor(String savedMode) {
+        this.savedMode = savedMode;
+    }
+
+    // Crea el editor si la entrada es un terminal que se puede controlar con stty; si no, devuelve null.
+    public static LineEditor open() {
+        if (System.console() == null || ShellContext.WINDOWS) {
+            return null;
+        }
+        String mode = stty("-g");
+        if (mode == null) {
+            return null;
+        }
+        Completion.preload();
+        LineEditor editor = new LineEditor(mode.trim());
+        // Si la JVM termina mientras se lee una línea, el terminal no debe quedar sin eco.
+        Runtime.getRuntime().addShutdownHook(new Thread(editor::restore));
+        return editor;
+    }
+
+    // Ejecuta stty sobre el terminal y devuelve su salida, o null si falla.
+    private static String stty(String... args) {
+        List<String> command = new ArrayList<>();
+        command.add("stty");
+        command.addAll(List.of(args));
+        try {
+            Process p = new ProcessBuilder(command)
+                    .redirectInput(new File("/dev/tty"))
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            String output = new String(p.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            return p.waitFor() == 0 ? output : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    // Muestra el prompt y lee una línea. Devuelve null al final de la entrada (Ctrl-D).
+    public String readLine(String prompt) throws IOException {
+        this.prompt = prompt;
+        line.setLength(0);
+        cursor = 0;
+        historyIndex = History.size() + 1;
+        draft = "";
+        pendingList = false;
+        out.print(prompt);
+        out.flush();
+
+        // Sin eco, sin búfer de línea y sin señales: cada tecla llega según se pulsa.
+        if (!raw) {
+            if (stty("-icanon", "-echo", "-isig", "min", "1", "time", "0") == null) {
+                return readCooked();
+            }
+            raw = true;
+        }
+        return edit();
+    }
+
+    // Devuelve el terminal al modo normal (eco, búfer de línea y Ctrl-C) para ejecutar un comando.
+    public void restore() {
+        if (raw) {
+            stty(savedMode);
+            raw = false;
+        }
+    }
+
+    // Lectura sin edición si no se pudo cambiar el modo del terminal.
+    private String readCooked() throws IOException {
+        int c;
+        while ((c = in.read()) >= 0 && c != '\n') {
+            line.append((char) c);
+        }
+        return c < 0 && line.isEmpty() ? null : new String(line.toString().getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+    }
+
+    private String edit() throws IOException {
+        while (true) {
+            int c = in.read();
+            if (c < 0) {
+                return line.isEmpty() ? null : line.toString();
+            }
+            if (c != TAB) {
+                pendingList = false;
+            }
+            switch (c) {
+                case '\r', '\n' -> {
+                    out.print("\n");
+                    out.flush();
+                    return line.toString();
+                }
+                case CTRL_D -> {
+                    if (line.isEmpty()) {
+                        out.print("\n");
+                        out.flush();
+                        return null;
+                    }
+                    deleteAt(cursor);
+                }
+                case CTRL_C -> {
+                    out.print("^C\n");
+                    line.setLength(0);
+                    cursor = 0;
+                    historyIndex = History.size() + 1;
+                    redraw();
+                }
+                case TAB -> complete();
+                case CTRL_R -> {
+                    if (reverseSearch()) {
+                        out.print("\n");
+                        out.flush();
+                        return line.toString();
+                    }
+                }
+                case BACKSPACE, DELETE -> {
+                    if (cursor > 0) {
+                        deleteAt(--cursor);
+                    }
+                }
+                case CTRL_A -> move(0);
+                case CTRL_E -> move(line.length());
+                case CTRL_U -> {
+                    line.delete(0, cursor);
+                    cursor = 0;
+                    redraw();
+                }
+                case CTRL_K -> {
+                    line.setLength(cursor);
+                    redraw();
+                }
+                case CTRL_L -> {
+                    out.print("\033[H\033[2J");
+                    redraw();
+                }
+                case ESC -> escape();
+                default -> {
+                    if (c >= ' ') {
+                        insert(readChar(c));
+                    }
+                }
+            }
+        }
+    }
+
+    // Secuencias de escape de las teclas especiales (flechas, Inicio, Fin, Supr).
+    private void escape() throws IOException {
+        int c = in.read();
+        if (c != '[' && c != 'O') {
+            return;
+        }
+        StringBuilder params = new StringBuilder();
+        while ((c = in.read()) >= 0 && (c < 0x40 || c > 0x7E)) {
+            params.append((char) c);
+        }
+        switch (c) {
+            case 'A' -> showHistory(historyIndex - 1);
+            case 'B' -> showHistory(historyIndex + 1);
+            case 'C' -> move(Math.min(cursor + 1, line.length()));
+            case 'D' -> move(Math.max(cursor - 1, 0));
+            case 'H' -> move(0);
+            case 'F' -> move(line.length());
+            case '~' -> {
+                switch (params.toString()) {
+                    case "1", "7" -> move(0);
+                    case "4", "8" -> move(line.length());
+                    case "3" -> deleteAt(cursor);
+                    default -> {
+                    }
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    // Lee el resto de un carácter UTF-8 a partir de su primer byte.
+    private String readChar(int first) throws IOException {
+        int extra = first >= 0xF0 ? 3 : first >= 0xE0 ? 2 : first >= 0xC0 ? 1 : 0;
+        byte[] bytes = new byte[extra + 1];
+        bytes[0] = (byte) first;
+        for (int i = 1; i <= extra; i++) {
+            bytes[i] = (byte) in.read();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void insert(String text) {
+        line.insert(cursor, text);
+        cursor += text.length();
+        redraw();
+    }
+
+    private void deleteAt(int index) {
+        if (index < line.length()) {
+            line.deleteCharAt(index);
+            redraw();
+        }
+    }
+
+    private void move(int position) {
+        cursor = position;
+        redraw();
+    }
+
+    // Vuelve a pintar el prompt y la línea y deja el cursor en su sitio.
+    private void redraw() {
+        StringBuilder sb = new StringBuilder("\r").append(prompt).append(line).append("\033[K");
+        int back = line.length() - cursor;
+        if (back > 0) {
+            sb.append("\033[").append(back).append('D');
+        }
+        out.print(sb);
+        out.flush();
+    }
+
+    private void beep() {
+        out.print('\007');
+        out.flush();
+    }
+
+    // Muestra la entrada 'index' del historial (size + 1 vuelve a la línea que se estaba escribiendo).
+    private void showHistory(int index) {
+        int size = History.size();
+        if (index < 1 || index > size + 1) {
+            beep();
+            return;
+        }
+        if (historyIndex == size + 1) {
+            draft = line.toString();
+        }
+        historyIndex = index;
+        line.setLength(0);
+        line.append(index == size + 1 ? draft : History.get(index));
+        move(line.length());
+    }
+
+    // Búsqueda inversa incremental. Devuelve true si se pulsa Intro para ejecutar la coincidencia;
+    // con cualquier otra tecla de control la coincidencia queda en la línea para seguir editándola
+    // y con Ctrl-G o Ctrl-C se recupera la línea original.
+    private boolean reverseSearch() throws IOException {
+        String original = line.toString();
+        StringBuilder query = new StringBuilder();
+        int found = 0;
+        while (true) {
+            String match = found > 0 ? History.get(found) : "";
+            out.print("\r(búsqueda inversa)`" + query + "': " + match + "\033[K");
+            out.flush();
+
+            int c = in.read();
+            if (c < 0 || c == CTRL_G || c == CTRL_C) {
+                line.setLength(0);
+                line.append(original);
+                move(line.length());
+                return false;
+            }
+            if (c == CTRL_R) {
+                int next = found > 0 ? History.search(query.toString(), found) : 0;
+                if (next > 0) {
+                    found = next;
+                } else {
+                    beep();
+                }
+            } else if (c == BACKSPACE || c == DELETE) {
+                if (!query.isEmpty()) {
+                    query.setLength(query.length() - 1);
+                    found = query.isEmpty() ? 0 : History.search(query.toString(), Integer.MAX_VALUE);
+                }
+            } else if (c >= ' ' && c != DELETE) {
+                query.append(readChar(c));
+                // La coincidencia actual sigue valiendo si contiene el texto ampliado.
+                int from = found > 0 ? found + 1 : Integer.MAX_VALUE;
+                int next = History.search(query.toString(), from);
+                if (next > 0) {
+                    found = next;
+                } else {
+                    beep();
+                }
+            } else {
+                line.setLength(0);
+                line.append(match);
+                historyIndex = found > 0 ? found : History.size() + 1;
+                move(line.length());
+                return c == '\r' || c == '\n';
+            }
+        }
+    }
+
+    // Completa la palabra que termina en el cursor.
+    private void complete() {
+        int start = cursor;
+        while (start > 0 && !isBoundary(start - 1)) {
+            start--;
+        }
+        String word = unescape(line.substring(start, cursor));
+
+        // Es un comando si es la primera palabra de la línea o va detrás de |, & o ;.
+        int before = start - 1;
+        while (before >= 0 && Character.isWhitespace(line.charAt(before))) {
+            before--;
+        }
+        boolean command = (before < 0 || "|&;".indexOf(line.charAt(before)) >= 0) && word.indexOf('/') < 0;
+        Completion.Matches matches = command ? Completion.commands(word) : Completion.files(word);
+
+        if (matches.total() == 0) {
+            beep();
+            return;
+        }
+        if (matches.total() == 1) {
+            String only = matches.shown().getFirst();
+            replace(start, escape(only) + (only.endsWith("/") ? "" : " "));
+            return;
+        }
+        if (matches.common().length() > word.length()) {
+            replace(start, escape(matches.common()));
+            return;
+        }
+        // Nada más que completar: el primer Tab avisa y el segundo muestra los candidatos.
+        if (!pendingList) {
+            pendingList = true;
+            beep();
+            return;
+        }
+        pendingList = false;
+        list(matches);
+    }
+
+    // Palabra completada en lugar de la que había entre 'start' y el cursor.
+    private void replace(int start, String text) {
+        line.replace(start, cursor, text);
+        cursor = start + text.length();
+        redraw();
+    }
+
+    // Muestra los candidatos en columnas debajo de la línea y vuelve a pintarla.
+    private void list(Completion.Matches matches) {
+        int width = 0;
+        for (String candidate : matches.shown()) {
+            width = Math.max(width, candidate.length() + 2);
+        }
+        int columns = Math.max(1, terminalWidth() / width);
+        StringBuilder sb = new StringBuilder("\n");
+        for (int i = 0; i < matches.shown().size(); i++) {
+            String candidate = matches.shown().get(i);
+            boolean endOfRow = (i + 1) % columns == 0 || i + 1 == matches.shown().size();
+            sb.append(candidate).append(endOfRow ? "\n" : " ".repeat(width - candidate.length()));
+        }
+        if (matches.total() > matches.shown().size()) {
+            sb.append("... y ").append(matches.total() - matches.shown().size()).append(" más\n");
+        }
+        out.print(sb);
+        redraw();
+    }
+
+    private static int terminalWidth() {
+        try {
+            return Integer.parseInt(System.getenv().getOrDefault("COLUMNS", "80"));
+        } catch (NumberFormatException e) {
+            return 80;
+        }
+    }
+
+    // Indica si el carácter separa palabras (un espacio escapado con '\' no lo hace).
+    private boolean isBoundary(int index) {
+        char c = line.charAt(index);
+        if (index > 0 && line.charAt(index - 1) == '\\') {
+            return false;
+        }
+        return Character.isWhitespace(c) || "|&<>;".indexOf(c) >= 0;
+    }
+
+    private static String escape(String word) {
+        StringBuilder sb = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (SPECIAL.indexOf(c) >= 0) {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String word) {
+        StringBuilder sb = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c == '\\' && i + 1 < word.length()) {
+                c = word.charAt(++i);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,217 @@
+package shell;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Métricas de ejecución de la shell.
+// Cada comando ejecutado deja una muestra (tiempo total, tiempo de lanzamiento, CPU de los hijos,
+// código de salida y bytes movidos por la JVM en tuberías) que se acumula en histogramas por
+// tipo de ejecución. Los histogramas usan cubetas en potencias de 2 con contadores atómicos,
+// así que registrar una muestra no reserva memoria ni toma ningún cerrojo.
+public final class Metrics {
+
+    // Tipos de ejecución que se miden por separado.
+    public enum Kind {
+        SIMPLE, REDIRECT, PIPELINE, BUILTIN
+    }
+
+    // Primer y último intervalo entre lecturas de CPU mientras se espera a un proceso.
+    private static final long FIRST_SAMPLE_MILLIS = 10;
+    private static final long MAX_SAMPLE_MILLIS = 1000;
+
+    // Muestra de un comando. Los tiempos están en nanosegundos; cpu es -1 si no se pudo medir.
+    public record Sample(Kind kind, long wallNanos, long spawnNanos, long cpuNanos, int status, long pipeBytes) {
+    }
+
+    // Histograma de valores en nanosegundos con cubetas [2^i, 2^(i+1)).
+    public static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private volatile long max;
+
+        void record(long value) {
+            if (value < 0) {
+                return;
+            }
+            buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(value, 1)));
+            count.increment();
+            sum.add(value);
+            // El máximo se actualiza sin cerrojo; una carrera solo puede perder un máximo intermedio.
+            if (value > max) {
+                max = value;
+            }
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long mean() {
+            long n = count.sum();
+            return n == 0 ? 0 : sum.sum() / n;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        // Percentil aproximado: límite superior de la cubeta que lo contiene.
+        public long percentile(double p) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(p / 100.0 * n);
+            long seen = 0;
+            for (int i = 0; i < 64; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(i == 63 ? Long.MAX_VALUE : (1L << (i + 1)) - 1, max);
+                }
+            }
+            return max;
+        }
+
+        void reset() {
+            for (int i = 0; i < 64; i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            sum.reset();
+            max = 0;
+        }
+    }
+
+    // Histogramas de un tipo de ejecución.
+    public static final class Stats {
+        public final Histogram wall = new Histogram();
+        public final Histogram spawn = new Histogram();
+        public final Histogram cpu = new Histogram();
+
+        void reset() {
+            wall.reset();
+            spawn.reset();
+            cpu.reset();
+        }
+    }
+
+    private static final Map<Kind, Stats> STATS = new ConcurrentHashMap<>();
+    private static final Map<Integer, LongAdder> EXIT_CODES = new ConcurrentHashMap<>();
+    private static final LongAdder PIPE_BYTES = new LongAdder();
+    private static final ThreadLocal<Sample> LAST = new ThreadLocal<>();
+    // Tiempo de lanzamiento acumulado por los comandos de cada hilo (lo usa la grabación de sesiones).
+    private static final ThreadLocal<long[]> SPAWNED = ThreadLocal.withInitial(() -> new long[1]);
+
+    static {
+        for (Kind kind : Kind.values()) {
+            STATS.put(kind, new Stats());
+        }
+    }
+
+    private Metrics() {
+    }
+
+    // Registra la muestra de un comando terminado.
+    public static void record(Sample sample) {
+        Stats stats = STATS.get(sample.kind());
+        stats.wall.record(sample.wallNanos());
+        stats.spawn.record(sample.spawnNanos());
+        stats.cpu.record(sample.cpuNanos());
+        EXIT_CODES.computeIfAbsent(sample.status(), k -> new LongAdder()).increment();
+        PIPE_BYTES.add(sample.pipeBytes());
+        LAST.set(sample);
+        if (sample.spawnNanos() > 0) {
+            SPAWNED.get()[0] += sample.spawnNanos();
+        }
+    }
+
+    // Registra un comando a partir del instante en que empezó (System.nanoTime()).
+    public static void record(Kind kind, long start, long spawnNanos, long cpuNanos, int status, long pipeBytes) {
+        record(new Sample(kind, System.nanoTime() - start, spawnNanos, cpuNanos, status, pipeBytes));
+    }
+
+    // Última muestra registrada por este hilo (la usa el builtin time).
+    public static Sample last() {
+        return LAST.get();
+    }
+
+    // Tiempo de lanzamiento de todos los comandos registrados por este hilo, en nanosegundos.
+    // La diferencia entre dos lecturas es lo que se tardó en lanzar los procesos entre medias.
+    public static long spawned() {
+        return SPAWNED.get()[0];
+    }
+
+    // Olvida la última muestra de este hilo.
+    public static void clearLast() {
+        LAST.remove();
+    }
+
+    public static Stats stats(Kind kind) {
+        return STATS.get(kind);
+    }
+
+    // Vacía todas las métricas acumuladas.
+    public static void reset() {
+        STATS.values().forEach(Stats::reset);
+        EXIT_CODES.clear();
+        PIPE_BYTES.reset();
+    }
+
+    // Espera a que termine el proceso leyendo su CPU (ProcessHandle.Info) mientras sigue vivo:
+    // una vez recogido el proceso, el sistema ya no la ofrece. Las lecturas se espacian cada vez
+    // más (10 ms, 20 ms, ... hasta 1 s) para que un comando largo apenas tenga coste extra.
+    // Devuelve el código de salida y deja en cpu[0] la última lectura (o -1 si no hubo ninguna).
+    public static int waitFor(Process p, long[] cpu) throws InterruptedException {
+        long interval = FIRST_SAMPLE_MILLIS;
+        cpu[0] = -1;
+        while (!p.waitFor(interval, TimeUnit.MILLISECONDS)) {
+            p.info().totalCpuDuration().map(Duration::toNanos).ifPresent(n -> cpu[0] = n);
+            interval = Math.min(interval * 2, MAX_SAMPLE_MILLIS);
+        }
+        return p.exitValue();
+    }
+
+    // Exporta todas las métricas como JSON. Los tiempos se expresan en microsegundos.
+    public static String toJson() {
+        StringBuilder sb = new StringBuilder("{\n  \"kinds\": {");
+        boolean first = true;
+        for (Kind kind : Kind.values()) {
+            Stats stats = STATS.get(kind);
+            sb.append(first ? "\n" : ",\n");
+            first = false;
+            sb.append("    \"").append(kind.name().toLowerCase()).append("\": {")
+                    .append("\"count\": ").append(stats.wall.count())
+                    .append(", \"wall_us\": ").append(json(stats.wall))
+                    .append(", \"spawn_us\": ").append(json(stats.spawn))
+                    .append(", \"cpu_us\": ").append(json(stats.cpu))
+                    .append('}');
+        }
+        sb.append("\n  },\n  \"exit_codes\": {");
+        first = true;
+        for (Map.Entry<Integer, LongAdder> entry : new TreeMap<>(EXIT_CODES).entrySet()) {
+            sb.append(first ? "" : ", ").append('"').append(entry.getKey()).append("\": ").append(entry.getValue().sum());
+            first = false;
+        }
+        sb.append("},\n  \"pipe_bytes\": ").append(PIPE_BYTES.sum()).append("\n}\n");
+        return sb.toString();
+    }
+
+    private static String json(Histogram h) {
+        return "{\"count\": " + h.count()
+                + ", \"mean\": " + micros(h.mean())
+                + ", \"p50\": " + micros(h.percentile(50))
+                + ", \"p90\": " + micros(h.percentile(90))
+                + ", \"p99\": " + micros(h.percentile(99))
+                + ", \"max\": " + micros(h.max()) + "}";
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1000;
+    }
+}
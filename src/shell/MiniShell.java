@@ -1,39 +1,162 @@
 package shell;
 
 // Imports del paquete tokenizer, java utils y excepciones.
+import builtins.Builtin;
+import builtins.Builtins;
+import exceptions.CommandNotFoundException;
+import exceptions.EventNotFoundException;
 import exceptions.MissingFileException;
+import exceptions.SyntaxException;
 import tokenizer.TCommand;
 import tokenizer.TLine;
-import tokenizer.Tokenizer;
 import java.io.*;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Objects;
 
 public class MiniShell {
 
+    // Tamaño del buffer de lectura de la entrada (scripts, -c y consola).
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
+    // Código de salida de los comandos que no se encuentran o no se pueden lanzar.
+    public static final int STATUS_NOT_FOUND = 127;
+    public static final int STATUS_INTERRUPTED = 130;
+    // Código de salida de timeout cuando la propia orden es incorrecta.
+    private static final int STATUS_TIMEOUT_USAGE = 125;
+
+    // Uso: MiniShell [-e] [-t duración] [--record grabación] [-c "comando" | fichero]
+    //   sin argumentos   -> modo interactivo con prompt.
+    //   -c "comando"     -> ejecuta las líneas del texto indicado y termina.
+    //   fichero          -> ejecuta las líneas del script y termina.
+    //   -e               -> termina en cuanto un comando falla (como set -e).
+    //   -t duración      -> plazo máximo de cada comando (como set -t): al agotarlo se termina con 124.
+    //   --daemon socket  -> atiende como demonio a los clientes (shell.Client) que se conecten al socket Unix.
+    //   --record fichero -> graba cada línea, su análisis, sus tiempos y su código de salida para
+    //                       reproducir la sesión con shell.Replay.
     public static void  main (String [] args) {
-        // Creamos un Scanner para leer entradas de usuario en consola.
-        Scanner scanner = new Scanner(System.in);
+        String command = null;
+        String script = null;
+        String daemon = null;
+        String record = null;
+
+        // Interpretar los argumentos de la línea de comandos.
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-c")) {
+                if (i + 1 >= args.length) {
+                    System.err.println("minishell: -c: falta el comando");
+                    System.exit(2);
+                }
+                command = args[++i];
+            } else if (args[i].equals("-e")) {
+                ShellContext.shell().setExitOnError(true);
+            } else if (args[i].equals("-t")) {
+                Duration timeout = i + 1 < args.length ? Watchdog.parse(args[++i]) : null;
+                if (timeout == null || timeout.isZero()) {
+                    System.err.println("minishell: -t: duración no válida");
+                    System.exit(2);
+                }
+                ShellContext.shell().setDefaultTimeout(timeout);
+            } else if (args[i].equals("--daemon")) {
+                if (i + 1 >= args.length) {
+                    System.err.println("minishell: --daemon: falta la ruta del socket");
+                    System.exit(2);
+                }
+                daemon = args[++i];
+            } else if (args[i].equals("--record")) {
+                if (i + 1 >= args.length) {
+                    System.err.println("minishell: --record: falta el fichero de la grabación");
+                    System.exit(2);
+                }
+                record = args[++i];
+            } else if (script == null && command == null) {
+                script = args[i];
+            }
+        }
+
+        if (record != null) {
+            try {
+                Recording.start(Path.of(record));
+            } catch (IOException e) {
+                System.err.println("minishell: --record: " + record + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+
+        // En modo demonio cada cliente trae sus propios comandos.
+        if (daemon != null) {
+            try {
+                Daemon.serve(Path.of(daemon));
+            } catch (IOException e) {
+                System.err.println("minishell: --daemon: " + daemon + ": " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
+        // Elegir la fuente de las líneas: texto de -c, fichero de script o la consola.
+        BufferedReader reader;
+        boolean interactive = false;
+        if (command != null) {
+            reader = new BufferedReader(new StringReader(command));
+        } else if (script != null) {
+            try {
+                reader = new BufferedReader(new InputStreamReader(new FileInputStream(script)), INPUT_BUFFER_SIZE);
+            } catch (FileNotFoundException e) {
+                System.err.println("minishell: " + script + ": no se puede abrir el fichero");
+                System.exit(STATUS_NOT_FOUND);
+                return;
+            }
+        } else {
+            reader = new BufferedReader(new InputStreamReader(System.in), INPUT_BUFFER_SIZE);
+            interactive = true;
+            // El historial se carga en segundo plano mientras se muestra el primer prompt.
+            History.start();
+        }
+
+        // El código de salida de la shell es el del último comando ejecutado.
+        int status = run(reader, interactive);
+        System.out.flush();
+        System.exit(status);
+    }
+
+    // Ejecuta las líneas con el contexto indicado (directorio, entorno y flujos propios), de modo que
+    // varios intérpretes pueden ejecutarse a la vez en la misma JVM, cada uno en su hilo.
+    public static int run(ShellContext context, BufferedReader reader, boolean interactive) {
+        return context.run(() -> run(reader, interactive));
+    }
+
+    // Bucle principal: lee cada línea, la tokeniza y la ejecuta. Devuelve el último código de salida.
+    public static int run(BufferedReader reader, boolean interactive) {
+        ShellContext context = ShellContext.current();
+        int status = 0;
+        // En un terminal la línea se lee con el editor (autocompletado e historial con las flechas).
+        LineEditor editor = interactive ? LineEditor.open() : null;
 
         while (true) {
-            // Obtener el directorio actual y el usuario del sistema (para imprimirlo en cada prompt).
-            String cwd = System.getProperty("user.dir");
-            String user = System.getProperty("user.name");
-            
-            // Mostrar el directorio actual
-            System.out.print(user + "@:" + cwd + "$ > ");
-
-            // Leer una línea de texto introducida por el usuario.
+            // En modo interactivo se anuncian los trabajos terminados y se muestra el prompt con el directorio actual.
+            String prompt = null;
+            if (interactive) {
+                context.jobs().reportFinished(System.out);
+                prompt = ShellContext.USER + "@:" + context.cwd() + "$ > ";
+                if (editor == null) {
+                    System.out.print(prompt);
+                }
+            }
+
+            // Leer una línea de texto.
             String input;
             try {
-                input = scanner.nextLine();
-            } catch (Exception e) {
-                // Si ocurre un error o se usa (Ctrl + D), salimos del bucle.
+                input = editor != null ? editor.readLine(prompt) : reader.readLine();
+            } catch (IOException e) {
+                // Si ocurre un error de lectura, salimos del bucle.
                 break;
             }
 
-            // Si la entrada es null, se sale del bucle.
+            // Si la entrada es null (fin de fichero o Ctrl + D), se sale del bucle.
             if (input == null) {
                 break;
             }
@@ -46,53 +169,292 @@ public class MiniShell {
                 continue;
             }
 
-            // Si el usuario escribe "exit", terminamos la shell.
-            if (input.equals("exit")) {
-                System.out.println("Saliendo...");
-                break;
+            // En modo interactivo se expanden las referencias al historial (!!, !n, !prefijo)
+            // y la línea resultante se guarda en el historial antes de ejecutarla.
+            if (interactive) {
+                try {
+                    String expanded = History.expand(input);
+                    if (!expanded.equals(input)) {
+                        System.out.println(expanded);
+                        input = expanded;
+                    }
+                } catch (EventNotFoundException e) {
+                    System.err.println(e.getMessage());
+                    status = 1;
+                    continue;
+                }
+                History.add(input);
             }
 
-            // Variable donde se guardará el resultado del tokenizer.
-            TLine tline;
+            // Plan compilado de la línea (las líneas repetidas se toman de la caché de planes).
+            Plan plan;
+            long parseStart = System.nanoTime();
             try {
-                // Llamar al metodo tokenize para dividir la línea en comandos y argumentos.
-                tline = Tokenizer.tokenize(input);
+                // Dividir la línea en listas, tuberías, comandos y argumentos.
+                plan = Plan.compile(input);
             } catch (MissingFileException me) {
                 // Capturar error al no especificar archivo.
                 System.err.println("Error de redirección: " + me.getMessage());
-                continue;
+                plan = null;
+            } catch (SyntaxException se) {
+                // Capturar errores de sintaxis, como comillas sin cerrar.
+                System.err.println("Error de sintaxis: " + se.getMessage());
+                plan = null;
             } catch (Exception e) {
                 // Capturar cualquier otro error.
                 System.err.println("Error al crear un token: " + e.getMessage());
-                continue;
+                plan = null;
             }
 
-            // Si el tokenizer devuelve null, no hay comandos que ejecutar.
-            if (tline == null) {
+            long parseNanos = System.nanoTime() - parseStart;
+
+            if (plan == null) {
+                status = 2;
+                context.setLastStatus(status);
+                Recording.record(input, null, parseNanos, -1, -1, status);
+                // Con set -e la shell termina en cuanto un comando falla.
+                if (context.isExitOnError()) {
+                    break;
+                }
                 continue;
             }
 
+            // Si hay here-documents (<<), sus cuerpos son las líneas siguientes hasta cada delimitador.
+            for (TLine tline : plan.hereDocuments()) {
+                tline.setHereInput(readHereDocument(tline, editor, reader, interactive));
+            }
+
+            // Los comandos que pueden usar el terminal lo reciben en modo normal.
+            if (editor != null && plan.needsTerminal()) {
+                editor.restore();
+            }
+
+            // El plan termina la shell con "exit [n]" o, con set -e, cuando un comando falla.
+            long spawned = Metrics.spawned();
+            long executeStart = System.nanoTime();
+            Plan.Result result = plan.execute();
+            status = result.status();
+            if (Recording.active()) {
+                // La espera es lo que tardó la línea descontando el lanzamiento de sus procesos.
+                long spawnNanos = Metrics.spawned() - spawned;
+                Recording.record(input, plan, parseNanos, spawnNanos, System.nanoTime() - executeStart - spawnNanos, status);
+            }
+            if (result.exit()) {
+                if (editor != null) {
+                    editor.restore();
+                }
+                if (interactive) {
+                    System.out.println("Saliendo...");
+                }
+                return status;
+            }
+        }
+
+        if (editor != null) {
+            editor.restore();
+        }
+        return status;
+    }
+
+    // Lee el cuerpo de un here-document hasta la línea que contiene solo el delimitador.
+    // El cuerpo se queda en memoria y se entrega después a la entrada del comando, sin fichero temporal.
+    private static String readHereDocument(TLine tline, LineEditor editor, BufferedReader reader, boolean interactive) {
+        String delimiter = tline.getHereDelimiter();
+        StringBuilder body = new StringBuilder();
+        while (true) {
+            String line;
             try {
-                // Si el comando es "cd", se manejará mediante un metodo interno.
-                if (isCD(tline)) {
-                    executeCD(tline);
+                if (editor != null) {
+                    line = editor.readLine("> ");
+                } else {
+                    if (interactive) {
+                        System.out.print("> ");
+                        System.out.flush();
+                    }
+                    line = reader.readLine();
                 }
-                // Si es un comando sin pipes, se ejecuta con el ProcessBuilder.
-                else if (tline.getNcommands() == 1) {
-                    executeSimpleWithRedAndBackground(tline);
+            } catch (IOException e) {
+                line = null;
+            }
+            if (line == null) {
+                System.err.println("minishell: aviso: here-document terminado por fin de fichero (se esperaba \"" + delimiter + "\")");
+                break;
+            }
+            // Con <<- se quitan los tabuladores iniciales (también en la línea del delimitador).
+            if (tline.isHereStripTabs()) {
+                int tabs = 0;
+                while (tabs < line.length() && line.charAt(tabs) == '\t') {
+                    tabs++;
                 }
-                // Si es un comando con pipes, *WIP*
-                else {
-                    pipes(tline);
+                line = line.substring(tabs);
+            }
+            if (line.equals(delimiter)) {
+                break;
+            }
+            body.append(line).append('\n');
+        }
+        return body.toString();
+    }
+
+    // Ejecuta una línea ya tokenizada y devuelve su código de salida.
+    public static int execute(TLine tline) {
+        try {
+            // Se ejecutan las sustituciones $(...) y se expanden los comodines de los argumentos.
+            Expander.expand(tline);
+            if (tline.getNcommands() == 0) {
+                return 0;
+            }
+            // "timeout duración comando": el resto de la línea se ejecuta con un plazo.
+            if (isTimeout(tline)) {
+                return executeTimeout(tline);
+            }
+            // Con set -t cada comando en primer plano tiene un plazo, salvo si ya está dentro de uno.
+            Duration limit = ShellContext.current().defaultTimeout();
+            if (limit != null && !tline.isBackground() && !Watchdog.active()) {
+                try (Watchdog.Deadline deadline = Watchdog.start(limit, Watchdog.DEFAULT_KILL_AFTER)) {
+                    return deadline.status(execute(tline));
                 }
-            } catch (Exception e) {
-                // Capturar errores generales.
-                System.err.println("Error: " + e.getMessage());
             }
+            // Si la línea empieza por "time", se ejecuta el resto midiendo su duración.
+            if (isTime(tline)) {
+                return executeTimed(tline);
+            }
+            // Si el comando es "cd", se manejará mediante un metodo interno.
+            if (isCD(tline)) {
+                return executeCD(tline);
+            }
+            // Si es un comando interno (cat, head, grep...), se ejecuta dentro de la JVM.
+            else if (tline.getNcommands() == 1 && Builtins.get(tline.getCommands().getFirst().getArgv()) != null) {
+                return executeBuiltin(tline);
+            }
+            // Si es un comando sin pipes, se ejecuta con el ProcessBuilder.
+            else if (tline.getNcommands() == 1) {
+                return executeSimpleWithRedAndBackground(tline);
+            }
+            // Si es un comando con pipes, se ejecutan todas las etapas a la vez.
+            else {
+                return pipes(tline);
+            }
+        } catch (Exception e) {
+            // Capturar errores generales.
+            System.err.println("Error: " + e.getMessage());
+            return 1;
         }
+    }
 
-        // Cerrar scanner para ahorrar recursos.
-        scanner.close();
+    // Comprobar si la línea empieza por la palabra "time".
+    public static boolean isTime(TLine tline) {
+        return "time".equals(tline.getCommands().getFirst().getFilename());
+    }
+
+    // Copia de la línea sin las 'words' primeras palabras del primer comando (time, timeout n...).
+    private static TLine withoutPrefix(TLine tline, int words) {
+        TLine rest = new TLine();
+        List<String> first = tline.getCommands().getFirst().getArgv();
+        if (first.size() > words) {
+            TCommand command = new TCommand(first.get(words), first.subList(words, first.size()));
+            command.setVariables(tline.getCommands().getFirst().getVariables());
+            command.setMergeError(tline.getCommands().getFirst().isMergeError());
+            rest.addCommand(command);
+        }
+        for (TCommand command : tline.getCommands().subList(1, tline.getNcommands())) {
+            rest.addCommand(command);
+        }
+        rest.setRedirectInput(tline.getRedirectInput());
+        rest.setHereInput(tline.getHereInput());
+        rest.setRedirectOutput(tline.getRedirectOutput());
+        rest.setAppendOutput(tline.isAppendOutput());
+        rest.setRedirectError(tline.getRedirectError());
+        rest.setAppendError(tline.isAppendError());
+        rest.setBackground(tline.isBackground());
+        return rest;
+    }
+
+    // Metodo para "time comando...": ejecuta el resto de la línea y muestra sus métricas en stderr.
+    public static int executeTimed(TLine tline) {
+        // Copia de la línea sin la palabra "time" delante del primer comando.
+        TLine timed = withoutPrefix(tline, 1);
+
+        Metrics.clearLast();
+        long start = System.nanoTime();
+        int status = timed.getNcommands() > 0 ? execute(timed) : 0;
+        long wall = System.nanoTime() - start;
+
+        // El lanzamiento y la CPU salen de la muestra que haya dejado el comando ejecutado.
+        Metrics.Sample sample = Metrics.last();
+        System.err.printf("%nreal\t%s%nspawn\t%s%ncpu\t%s%nstatus\t%d%n",
+                seconds(wall),
+                sample != null ? seconds(sample.spawnNanos()) : "-",
+                sample != null ? seconds(sample.cpuNanos()) : "-",
+                status);
+        return status;
+    }
+
+    // Comprobar si la línea empieza por la palabra "timeout".
+    public static boolean isTimeout(TLine tline) {
+        return "timeout".equals(tline.getCommands().getFirst().getFilename());
+    }
+
+    // Metodo para "timeout [-k margen] duración comando...": ejecuta el resto de la línea y, si no ha
+    // terminado en ese tiempo, termina todo su árbol de procesos (SIGTERM y, pasado el margen, SIGKILL).
+    // Devuelve 124 si se agotó el plazo (137 si hizo falta SIGKILL) y 125 si la orden es incorrecta.
+    public static int executeTimeout(TLine tline) {
+        List<String> argv = tline.getCommands().getFirst().getArgv();
+        Duration killAfter = Watchdog.DEFAULT_KILL_AFTER;
+        int i = 1;
+        if (i < argv.size() && argv.get(i).equals("-k")) {
+            killAfter = i + 1 < argv.size() ? Watchdog.parse(argv.get(i + 1)) : null;
+            if (killAfter == null) {
+                System.err.println("timeout: -k: duración no válida");
+                return STATUS_TIMEOUT_USAGE;
+            }
+            i += 2;
+        }
+        if (i >= argv.size()) {
+            System.err.println("timeout: falta la duración");
+            return STATUS_TIMEOUT_USAGE;
+        }
+        Duration timeout = Watchdog.parse(argv.get(i));
+        if (timeout == null) {
+            System.err.println("timeout: duración no válida: " + argv.get(i));
+            return STATUS_TIMEOUT_USAGE;
+        }
+        TLine rest = withoutPrefix(tline, i + 1);
+        if (rest.getNcommands() == 0) {
+            System.err.println("timeout: falta el comando");
+            return STATUS_TIMEOUT_USAGE;
+        }
+        // Una duración 0 desactiva el plazo, como en timeout de coreutils.
+        if (timeout.isZero()) {
+            return execute(rest);
+        }
+        try (Watchdog.Deadline deadline = Watchdog.start(timeout, killAfter)) {
+            return deadline.status(execute(rest));
+        }
+    }
+
+    // Formatea una duración en segundos con milisegundos, o "-" si no se pudo medir.
+    private static String seconds(long nanos) {
+        return nanos < 0 ? "-" : String.format("%.3fs", nanos / 1e9);
+    }
+
+    // Comprobar si el comando es "exit".
+    public static boolean isExit(TLine tline) {
+        return tline.getNcommands() == 1 && "exit".equals(tline.getCommands().getFirst().getFilename());
+    }
+
+    // Código con el que termina "exit [n]": el indicado o, sin argumento, el del último comando.
+    static int exitStatus(TLine tline, int last) {
+        List<String> argv = tline.getCommands().getFirst().getArgv();
+        if (argv.size() < 2) {
+            return last;
+        }
+        try {
+            return Integer.parseInt(argv.get(1)) & 0xFF;
+        } catch (NumberFormatException e) {
+            System.err.println("exit: " + argv.get(1) + ": se requiere un argumento numérico");
+            return 2;
+        }
     }
 
     // Comprobar si el comando es "cd".
@@ -108,7 +470,9 @@ public class MiniShell {
     }
 
     // Metodo para implementar el comando "cd" para cambiar directorios.
-    public static void executeCD(TLine tline) {
+    public static int executeCD(TLine tline) {
+        // El directorio que se cambia es el del intérprete que ejecuta la línea.
+        ShellContext context = ShellContext.current();
         // Obtener el comando "cd" y sus argumentos.
         TCommand command = tline.getCommands().getFirst();
         List<String> argv = command.getArgv();
@@ -117,7 +481,7 @@ public class MiniShell {
 
         // Si el usuario no da argumentos, se va al directorio HOME.
         if (argv.size() < 2) {
-            target = System.getProperty("user.home");
+            target = ShellContext.HOME;
         } else {
             // Si hay argumentos, se toma como destino.
             target = argv.get(1);
@@ -125,7 +489,7 @@ public class MiniShell {
 
         // Si el argumento empieza con "~", se sustituye por el directorio HOME.
         if (target.startsWith("~")) {
-            target = System.getProperty("user.home") + target.substring(1);
+            target = ShellContext.HOME + target.substring(1);
         }
 
         // Creamos un objeto File con la ruta objetivo.
@@ -133,7 +497,7 @@ public class MiniShell {
 
         // Si la ruta no es absoluta, se convierte a absoluta relativa al directorio actual.
         if (!newDir.isAbsolute()) {
-            newDir = new File(System.getProperty("user.dir"), target);
+            newDir = context.resolve(target);
         }
 
         try {
@@ -141,209 +505,299 @@ public class MiniShell {
             newDir = newDir.getCanonicalFile();
         // Se verifica si el directorio existe y es válido.
         if (newDir.exists() && newDir.isDirectory()) {
-            // Se cambia la propiedad del directorio actual.
-            System.setProperty("user.dir", newDir.getAbsolutePath());
+            // Se cambia el directorio actual (el de la sesión si se ejecuta dentro del demonio).
+            context.setCwd(newDir.getAbsolutePath());
+            return 0;
         } else {
             // Si no existe, se muestra un mensaje de error.
             System.err.println("cd: directorio no encontrado: " + target);
+            return 1;
         }
         } catch (IOException e) {
             System.err.println("cd: error al acceder al directorio: " + e.getMessage());
+            return 1;
         }
     }
 
     // Metodo para ejecutar comandos simples sin pipes ni redirecciones.
-    public static void executeSimple(TLine tline) {
+    public static int executeSimple(TLine tline) {
         // Obtener el comando (nombre + argumentos)
         TCommand command = tline.getCommands().getFirst();
         List<String> argv = command.getArgv();
 
-        // Identificar el sistema operativo para realizar una lógica distinta en caso de ser Windows.
-        String os = System.getProperty("os.name").toLowerCase();
-
-        // Se declara un ProcessBuilder
-        ProcessBuilder pb;
-
-        if (os.contains("win")) {
-            // En caso del sistema operativo ser windows se añade al argumento los prefijos cmd.exe y /c para que se puedan ejecutar comandos directamente.
-            pb = new ProcessBuilder("cmd.exe", "/c", String.join(" ", argv));
-        } else {
-            // Si no es Windows se crea normalmente.
-            pb = new ProcessBuilder(argv);
-        }
-
-        // Establecer el directorio actual.
-        pb.directory(new File(System.getProperty("user.dir")));
+        // Instante de inicio para las métricas.
+        long start = System.nanoTime();
+        try {
+            // Crear el ProcessBuilder con el directorio actual.
+            ProcessBuilder pb = createProcessBuilder(command);
 
-        // Heredamos la entrada/salida del proceso actual (para verlo en consola).
-        pb.inheritIO();
+            // Heredamos la entrada/salida del proceso actual (para verlo en consola).
+            pb.inheritIO();
 
-        try {
             // Iniciar el proceso.
-            Process p = pb.start();
-
-            // Esperar a que termine y obtener el código de salida.
-            p.waitFor();
+            Process p = Relay.start(pb);
+            long spawn = System.nanoTime() - start;
+
+            // Esperar a que termine y obtener el código de salida (y la CPU que ha consumido).
+            long[] cpu = new long[1];
+            int status = Metrics.waitFor(p, cpu);
+            Metrics.record(Metrics.Kind.SIMPLE, start, spawn, cpu[0], status, 0);
+            return status;
+        } catch (CommandNotFoundException e) {
+            // Si el comando no existe.
+            System.err.println("Fallo al ejecutar: " + argv.getFirst() + " - " + e.getMessage());
+            Metrics.record(Metrics.Kind.SIMPLE, start, -1, -1, STATUS_NOT_FOUND, 0);
+            return STATUS_NOT_FOUND;
         } catch (IOException e) {
-            // Si el comando no existe o falla.
+            // Si el comando falla al lanzarse.
             System.err.println("Fallo al ejecutar: " + argv.getFirst() + " - " + e.getMessage());
+            Metrics.record(Metrics.Kind.SIMPLE, start, -1, -1, 1, 0);
+            return 1;
         } catch (InterruptedException e) {
             // Si el proceso es interrumpido.
             System.err.println("Ejecución interrumpida");
+            return STATUS_INTERRUPTED;
         }
     }
 
-    // Metodo para ejecutar comandos con pipes |.
-    public static void pipes(TLine tline)   {
-        // Obtiene la lista de comandos individuales (TCommand) a partir de la línea completa.
-        List<TCommand> commands = tline.getCommands();
-        // Identifica el sistema operativo.
-        String ops = System.getProperty("os.name").toLowerCase();
-        // Almacena los procesos creados para cada comando en el orden de ejecución.
-        List<Process> processes = new ArrayList<>();
-        
+    // Metodo para ejecutar un comando interno sin crear ningún proceso, respetando las redirecciones.
+    public static int executeBuiltin(TLine tline) {
+        List<String> argv = tline.getCommands().getFirst().getArgv();
+        Builtin builtin = Builtins.get(argv);
+
+        // Si se ejecuta en background, se lanza en un hilo virtual como un trabajo más y se vuelve al prompt.
+        if (tline.isBackground()) {
+            JobOutput output;
+            try {
+                output = JobOutput.open();
+            } catch (IOException e) {
+                System.err.println("Fallo al ejecutar: " + argv.getFirst() + " - " + e.getMessage());
+                return 1;
+            }
+            JobTable.Job job = ShellContext.current().jobs().submit(JobTable.describe(tline), () -> runBuiltin(builtin, argv, tline, output), output);
+            System.out.println("[" + job.getId() + "] Builtin en background iniciado");
+            return 0;
+        }
+        long start = System.nanoTime();
+        int status = runBuiltin(builtin, argv, tline, null);
+        Metrics.record(Metrics.Kind.BUILTIN, start, -1, -1, status, 0);
+        return status;
+    }
+
+    // Abre los ficheros de redirección, ejecuta el builtin y los cierra al terminar. Si es un
+    // trabajo con la salida capturada, lo que iría a la consola va a 'output'.
+    private static int runBuiltin(Builtin builtin, List<String> argv, TLine tline, JobOutput output) {
+        ShellContext context = ShellContext.current();
+        InputStream in = context.stdin();
+        OutputStream out = context.stdout();
+        OutputStream err = context.stderr();
         try {
-            // Mantiene una referencia al proceso anterior.
-            Process previous = null;
-           
-           // Recorre cada comando en la lista de comandos.
-            for (TCommand current : commands) {
-
-                // Comando actual.
-                // Argumentos del comando actual.
-                List<String> argv = current.getArgv();
-                // Crea un ProcessBuilder según su SO.
-                ProcessBuilder pb;
-
-                if (ops.contains("win")) {
-                    // En Windows: usar cmd.exe /c para comandos internos
-                    pb = new ProcessBuilder("cmd.exe", "/c", String.join(" ", argv));
-                } else {
-                    // En Linux/macOS: ejecutar directamente
-                    pb = new ProcessBuilder(argv);
+            if (output != null) {
+                out = output.stream(false);
+                err = output.stream(true);
+            }
+            InputStream input = Redirections.openInput(tline);
+            if (input != null) {
+                in = input;
+            }
+            if (tline.getRedirectOutput() != null) {
+                out = new FileOutputStream(Builtins.resolve(tline.getRedirectOutput()), tline.isAppendOutput());
+            }
+            if (tline.getRedirectError() != null) {
+                err = new FileOutputStream(Builtins.resolve(tline.getRedirectError()), tline.isAppendError());
+            }
+            // 2>&1 o &>: los errores se escriben en el mismo flujo que la salida.
+            if (tline.getCommands().getFirst().isMergeError()) {
+                err = out;
+            }
+            // Con un plazo activo, al vencer se cortan su entrada y su salida (ver Watchdog.Guard).
+            try (Watchdog.Guard guard = Watchdog.guard()) {
+                OutputStream guarded = guard.output(out, out != context.stdout());
+                return builtin.run(argv, guard.input(in, in != context.stdin()), guarded, err == out ? guarded : err);
+            }
+        } catch (IOException e) {
+            // Si ha vencido el plazo el error es el corte de sus flujos: basta con el código 124.
+            if (!Watchdog.expired()) {
+                System.err.println("Fallo al ejecutar: " + argv.getFirst() + " - " + e.getMessage());
+            }
+            return 1;
+        } finally {
+            // Solo se cierran los ficheros abiertos aquí, nunca los flujos de la shell.
+            try {
+                if (in != context.stdin()) {
+                    in.close();
                 }
-                // Establece el directorio de trabajo del proceso.
-                pb.directory(new File(System.getProperty("user.dir")));
-
-                // Se inicia el proceso actual.
-                Process currentProcess = pb.start();
-
-                // En caso de que no sea el primer comando, se conecta la entrada del proceso actual a la salida del proceso anterior.
-                if (previous != null) {
-                    // Conecta la salida del proceso anterior a la entrada del proceso actual.
-                    try (
-                            InputStream is = previous.getInputStream();
-                            OutputStream os = currentProcess.getOutputStream()
-                    ) {
-                        // Buffer temporal para transferir los datos entre procesos.
-                        byte[] buffer = new byte[1024];
-                        int length;
-                        // Lee datos del proceso anterior y los escribe en el siguiente.
-                        while ((length = is.read(buffer)) != -1) {
-                            os.write(buffer, 0, length);
-                        }
-                        // Asegura que todos los datos del buffer se envían.
-                        os.flush();
-                    }
+                if (out != context.stdout()) {
+                    out.close();
+                } else {
+                    out.flush();
                 }
-                // Añade el proceso actual a la lista de procesos.
-                processes.add(currentProcess);
-                previous = currentProcess;
-
-            }
-              // Espera al último proceso a completar.
-              Process last = processes.getLast();
-              last.waitFor();
-
-              // Captura y muestra la salida del último proceso.  
-              try (BufferedReader br = new BufferedReader(new InputStreamReader(last.getInputStream()))) {
-                String line;
-                
-                while((line = br.readLine()) != null) {
-        
-                    System.out.println(line);
-        
+                if (err != context.stderr() && err != out) {
+                    err.close();
                 }
-              }
-              // Espera a que todos los procesos del pipe terminen correctamente.     
-              for (Process p : processes) {
-                p.waitFor();
-              }
-        } catch (InterruptedException | IOException e) {
+            } catch (IOException ignored) {
+                // No hay nada más que hacer si falla el cierre.
+            }
+        }
+    }
+
+    // Metodo para ejecutar comandos con pipes |.
+    public static int pipes(TLine tline) {
+        try {
+            // En background la tubería se registra como trabajo y no se espera.
+            if (tline.isBackground()) {
+                JobOutput output = JobOutput.open();
+                Pipeline.Running running = Pipeline.start(tline, output);
+                JobTable.Job job = ShellContext.current().jobs().add(JobTable.describe(tline), running.processes(), running.onExit(), output);
+                System.out.println("[" + job.getId() + "] Tubería en background iniciada " + running.processes().getLast().pid());
+                return 0;
+            }
+            // Todas las etapas se ejecutan a la vez, conectadas directamente por el sistema operativo.
+            // Pipeline registra sus propias métricas (lanzamiento, CPU y bytes movidos).
+            return Pipeline.run(tline);
+        } catch (CommandNotFoundException e) {
             System.err.println("Error en la ejecución del comando: " + e.getMessage());
+            return STATUS_NOT_FOUND;
+        } catch (IOException e) {
+            System.err.println("Error en la ejecución del comando: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            System.err.println("Ejecución interrumpida");
+            return STATUS_INTERRUPTED;
+        }
+    }
+
+    // Crea el ProcessBuilder de un comando según el sistema operativo y el directorio actual.
+    // Fuera de Windows el nombre del comando se resuelve antes con la caché de $PATH, de modo que
+    // un comando inexistente se detecta sin intentar lanzar el proceso.
+    public static ProcessBuilder createProcessBuilder(List<String> argv) throws CommandNotFoundException {
+        // En Windows se realiza una lógica distinta (el sistema operativo se identifica una sola vez).
+        return createProcessBuilder(argv, null);
+    }
+
+    private static ProcessBuilder createProcessBuilder(List<String> argv, Map<String, String> variables)
+            throws CommandNotFoundException {
+        if (ShellContext.WINDOWS) {
+            // En caso del sistema operativo ser windows se añade al argumento los prefijos cmd.exe y /c para que se puedan ejecutar comandos directamente.
+            return processBuilder(List.of("cmd.exe", "/c", String.join(" ", argv)), variables);
+        }
+        // Si no es Windows se lanza directamente la ruta absoluta del ejecutable.
+        String path = CommandResolver.resolve(argv.getFirst());
+        if (path == null) {
+            throw new CommandNotFoundException(argv.getFirst());
+        }
+        return processBuilder(withExecutable(argv, path), variables);
+    }
+
+    // Igual que createProcessBuilder(argv), pero usa el ejecutable que el plan resolvió al compilar
+    // la línea mientras la caché de comandos no haya cambiado desde entonces. Las variables
+    // VAR=valor escritas delante del comando se añaden solo a su entorno. Con 2>&1, &> o |& los
+    // errores se unen a la salida en el propio sistema operativo (redirectErrorStream), sin
+    // ningún hilo que copie bytes: van al mismo fichero, tubería o consola que la salida.
+    public static ProcessBuilder createProcessBuilder(TCommand command) throws CommandNotFoundException {
+        String path = command.getExecutable();
+        ProcessBuilder pb = path == null || command.getGeneration() != CommandResolver.generation()
+                ? createProcessBuilder(command.getArgv(), command.getVariables())
+                : processBuilder(withExecutable(command.getArgv(), path), command.getVariables());
+        return pb.redirectErrorStream(command.isMergeError());
+    }
+
+    // Comando que se pasa a ProcessBuilder. El programa recibe como argv[0] el mismo texto que se
+    // usa para lanzarlo, así que se deja el nombre que escribió el usuario (los mensajes de error
+    // y los programas que miran su propio nombre no cambian) siempre que la JVM lo vaya a encontrar
+    // en el mismo sitio: si lleva '/' o si el PATH del contexto es el de la JVM, que es el que usa
+    // ProcessBuilder para buscarlo. Solo con un PATH distinto (export PATH=...) hace falta pasar la
+    // ruta resuelta.
+    private static List<String> withExecutable(List<String> argv, String path) {
+        String name = argv.getFirst();
+        if (path.equals(name) || name.indexOf('/') >= 0
+                || Objects.equals(ShellContext.current().getenv("PATH"), System.getenv("PATH"))) {
+            return argv;
         }
+        List<String> command = new ArrayList<>(argv);
+        command.set(0, path);
+        return command;
+    }
+
+    private static ProcessBuilder processBuilder(List<String> command, Map<String, String> variables) {
+        ShellContext context = ShellContext.current();
+        ProcessBuilder pb = new ProcessBuilder(command);
 
+        // Establecer el directorio actual y, si el intérprete o el comando lo han cambiado, el entorno.
+        // ProcessBuilder ya parte del de la JVM, así que solo se aplican las diferencias.
+        pb.directory(new File(context.cwd()));
+        Environment environment = variables != null ? context.environment().with(variables) : context.environment();
+        if (!environment.isProcess()) {
+            environment.applyTo(pb.environment());
+        }
+        return pb;
     }
-     public static void executeSimpleWithRedAndBackground(TLine tLine) {
+
+     public static int executeSimpleWithRedAndBackground(TLine tLine) {
         TCommand command = tLine.getCommands().getFirst();
         List<String> argv = command.getArgv();
 
         //Si no hay redirecciones ni se ejecuta en background se manda al executeSimple.
-        if (tLine.getRedirectError() == null && tLine.getRedirectOutput() == null && !tLine.isBackground()) {
-            executeSimple(tLine);
-            return;
+        if (tLine.getRedirectInput() == null && tLine.getHereInput() == null && tLine.getRedirectError() == null
+                && tLine.getRedirectOutput() == null && !tLine.isBackground()) {
+            return executeSimple(tLine);
         }
-        // Identificar el sistema operativo para realizar una lógica distinta en caso de ser Windows.
-        String os = System.getProperty("os.name").toLowerCase();
-
-        // Se declara un ProcessBuilder
+        // Crear el ProcessBuilder con el directorio actual.
         ProcessBuilder pb;
-
-        if (os.contains("win")) {
-            // En caso del sistema operativo ser windows se añade al argumento los prefijos cmd.exe y /c para que se puedan ejecutar comandos directamente.
-            pb = new ProcessBuilder("cmd.exe", "/c", String.join(" ", argv));
-        } else {
-            // Si no es Windows se crea normalmente.
-            pb = new ProcessBuilder(argv);
+        try {
+            pb = createProcessBuilder(command);
+        } catch (CommandNotFoundException e) {
+            System.err.println("Fallo al ejecutar: " + argv.getFirst() + " - " + e.getMessage());
+            return STATUS_NOT_FOUND;
         }
-
-        // Establecer el directorio actual.
-        pb.directory(new File(System.getProperty("user.dir")));
         // Heredamos la entrada/salida del proceso actual (para verlo en consola).
         pb.inheritIO();
 
 
-        //Antes de nada, se maneja las redirecciones de entrada, en este caso <
-        if (tLine.getRedirectInput() != null) {
-            //Se crea un objeto file para lo que leerá de entrada
-            File inputfile = new File(tLine.getRedirectInput());
-            pb.redirectInput(inputfile);
-        }
-        //Se manejan las redirecciones de salida > y >>
-        if (tLine.getRedirectOutput() != null) {
-            File outputfile = new File(tLine.getRedirectOutput());
-            //Se maneja si es un append o sobrescribir
-            if (tLine.isAppendOutput()) {
-                // Se hace >> (Usando el Redirect.appendTo)
-                pb.redirectOutput(ProcessBuilder.Redirect.appendTo(outputfile));
-            } else {
-                //Se sobrescribe > (Usando el Redirect.to)
-                pb.redirectOutput(ProcessBuilder.Redirect.to(outputfile));
-            }
-        }
-        if (tLine.getRedirectError() != null) {
-            File errorfile = new File(tLine.getRedirectError());
-            pb.redirectError(errorfile);
-        }
+        //Se manejan las redirecciones de entrada <, de salida > y >> y de errores 2> y 2>>.
+        //Los ficheros se resuelven respecto al directorio actual de la shell y los abre el sistema operativo.
+        pb.redirectInput(Redirections.input(tLine));
+        pb.redirectOutput(Redirections.output(tLine));
+        pb.redirectError(Redirections.error(tLine));
 
-        //Se inicia el proceso
+        //Se inicia el proceso (midiendo cuánto tarda en lanzarse)
+        long start = System.nanoTime();
         try {
-            Process p1 = pb.start();
+            //En background, con set -o jobcapture o joblog, lo que iría a la consola se captura
+            JobOutput output = tLine.isBackground() ? JobOutput.open() : null;
+            boolean[] captured = output != null ? output.prepare(pb, true) : null;
+            Process p1 = Relay.start(pb);
+            long spawn = System.nanoTime() - start;
+            if (output != null) {
+                output.drain(p1, captured);
+            }
+            //El texto de << o <<< se escribe en la entrada del proceso mientras este la lee
+            Redirections.feed(tLine, p1);
         //Se controla si esta en background, si es true no se ejecuta un waitFor para esperarle.
             if (tLine.isBackground()) {
-                //Se muestra el pid del comando si está en background
-                System.out.println("Proceso en background iniciado " + p1.pid());
+                //Se registra en la tabla de trabajos y se muestra su número y el pid del comando
+                JobTable.Job job = ShellContext.current().jobs().add(JobTable.describe(tLine), p1, output);
+                System.out.println("[" + job.getId() + "] Proceso en background iniciado " + p1.pid());
+                //Las métricas del trabajo se registran cuando termine
+                p1.onExit().thenAccept(p -> Metrics.record(Metrics.Kind.REDIRECT, start, spawn, -1, p.exitValue(), 0));
+                return 0;
             } else {
                 //Se espera hasta que acabe el proceso para poder usar el shell
-                int n = p1.waitFor();
+                long[] cpu = new long[1];
+                int n = Metrics.waitFor(p1, cpu);
+                Metrics.record(Metrics.Kind.REDIRECT, start, spawn, cpu[0], n, 0);
                 if (n != 0) {
                     System.out.println("Proceso finalizado : " + n);
                 }
+                return n;
             }
         } catch (IOException e) {
             System.err.println("Fallo al ejecutar: " + argv.getFirst() + " - " + e.getMessage());
+            Metrics.record(Metrics.Kind.REDIRECT, start, -1, -1, 1, 0);
+            return 1;
         } catch (InterruptedException e) {
             System.err.println("Ejecución interrumpida");
+            return STATUS_INTERRUPTED;
         }
     }
 }
\ No newline at end of file
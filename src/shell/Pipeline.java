@@ -0,0 +1,376 @@
+package shell;
+
+// Imports del paquete tokenizer, builtins y java utils.
+import builtins.Builtin;
+import builtins.Builtins;
+import tokenizer.TCommand;
+import tokenizer.TLine;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+// Clase encargada de ejecutar una línea con tuberías (cmd1 | cmd2 | ...).
+// Todas las etapas se lanzan a la vez. Los comandos externos consecutivos se conectan
+// directamente en el kernel con ProcessBuilder.startPipeline; los builtins se ejecutan
+// en hilos virtuales que leen y escriben de los extremos de esas tuberías en paralelo.
+// Las redirecciones de la línea se aplican a la primera etapa (<) y a la última (>, >>, 2>, 2>>).
+public final class Pipeline {
+
+    // Tamaño de la tubería en memoria entre dos builtins consecutivos.
+    private static final int PIPE_SIZE = 64 * 1024;
+
+    private Pipeline() {
+    }
+
+    // Etapa builtin pendiente de arrancar, con sus extremos de entrada y salida.
+    private static final class BuiltinStage {
+        final Builtin builtin;
+        final List<String> argv;
+        InputStream in;
+        OutputStream out;
+        OutputStream err = ShellContext.current().stderr();
+        // 2>&1 o |&: los errores se escriben en el mismo flujo que la salida.
+        boolean mergeError;
+        Thread thread;
+        int status;
+        // Salida de la shell si es la última etapa (no se cierra al terminar).
+        OutputStream shellOut;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        BuiltinStage(Builtin builtin, List<String> argv) {
+            this.builtin = builtin;
+            this.argv = argv;
+        }
+    }
+
+    // Flujo de salida que cuenta los bytes que escribe un builtin de la tubería.
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private final LongAdder counter;
+
+        CountingOutputStream(OutputStream out, LongAdder counter) {
+            super(out);
+            this.counter = counter;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            counter.increment();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            counter.add(len);
+        }
+    }
+
+    // Tubería en ejecución: procesos externos y builtins de todas sus etapas.
+    public static final class Running {
+        private final List<Process> processes;
+        private final List<BuiltinStage> stages;
+        private final Process lastProcess;
+        private final BuiltinStage lastStage;
+        private final long start;
+        private final long spawnNanos;
+        // Bytes que han pasado por la JVM (los que escriben los builtins).
+        private final LongAdder bytes = new LongAdder();
+
+        private Running(List<Process> processes, List<BuiltinStage> stages, Process lastProcess, BuiltinStage lastStage,
+                        long start, long spawnNanos) {
+            this.processes = processes;
+            this.stages = stages;
+            this.lastProcess = lastProcess;
+            this.lastStage = lastStage;
+            this.start = start;
+            this.spawnNanos = spawnNanos;
+        }
+
+        // Procesos externos de la tubería, en orden.
+        public List<Process> processes() {
+            return processes;
+        }
+
+        // Espera a que terminen todas las etapas y devuelve el código de salida de la última.
+        // Registra las métricas de la tubería, con la CPU sumada de todos sus procesos.
+        public int waitFor() throws InterruptedException {
+            long cpu = waitAll(processes);
+            for (BuiltinStage stage : stages) {
+                stage.thread.join();
+            }
+            int status = status();
+            Metrics.record(Metrics.Kind.PIPELINE, start, spawnNanos, cpu, status, bytes.sum());
+            return status;
+        }
+
+        // Se completa, sin bloquear ningún hilo, cuando han terminado todas las etapas.
+        public CompletableFuture<Integer> onExit() {
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            for (Process p : processes) {
+                futures.add(p.onExit());
+            }
+            for (BuiltinStage stage : stages) {
+                futures.add(stage.done);
+            }
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+                int status = status();
+                Metrics.record(Metrics.Kind.PIPELINE, start, spawnNanos, -1, status, bytes.sum());
+                return status;
+            });
+        }
+
+        private int status() {
+            return lastStage != null ? lastStage.status : lastProcess.exitValue();
+        }
+    }
+
+    // Ejecuta todas las etapas de la línea y devuelve el código de salida de la última.
+    public static int run(TLine tline) throws IOException, InterruptedException {
+        return start(tline).waitFor();
+    }
+
+    // Ejecuta la línea llevando la salida de la última etapa a 'sink' en lugar de a la consola
+    // (salvo que la línea la redirija a un fichero) y devuelve su código de salida.
+    // La usa la sustitución de comandos $(...).
+    public static int capture(TLine tline, OutputStream sink) throws IOException, InterruptedException {
+        Running running = start(tline, sink, null);
+        if (running.lastProcess != null) {
+            try (InputStream stdout = running.lastProcess.getInputStream()) {
+                stdout.transferTo(sink);
+            }
+        }
+        return running.waitFor();
+    }
+
+    // Lanza todas las etapas de la línea a la vez y devuelve la tubería en ejecución sin esperarla.
+    public static Running start(TLine tline) throws IOException {
+        return start(tline, null, null);
+    }
+
+    // Igual, pero lo que las etapas escribirían en la consola se guarda en 'output' (un trabajo en
+    // background con la salida capturada; null si no se captura).
+    public static Running start(TLine tline, JobOutput output) throws IOException {
+        return start(tline, null, output);
+    }
+
+    private static Running start(TLine tline, OutputStream sink, JobOutput jobOutput) throws IOException {
+        long start = System.nanoTime();
+        ShellContext context = ShellContext.current();
+        List<TCommand> commands = tline.getCommands();
+        int n = commands.size();
+
+        List<Process> processes = new ArrayList<>();
+        List<BuiltinStage> stages = new ArrayList<>();
+        // Proceso o builtin de la última etapa, para saber qué código de salida devolver.
+        Process lastProcess = null;
+        BuiltinStage lastStage = null;
+        // Etapa anterior: o bien un builtin o bien el último proceso de un grupo externo.
+        BuiltinStage previousBuiltin = null;
+        Process previousProcess = null;
+        // Procesos cuya salida o errores hay que leer para guardarlos en 'output'.
+        List<Process> captured = new ArrayList<>();
+        List<boolean[]> prepared = new ArrayList<>();
+
+        try {
+            int i = 0;
+            while (i < n) {
+                List<String> argv = commands.get(i).getArgv();
+                Builtin builtin = Builtins.get(argv);
+
+                if (builtin != null) {
+                    BuiltinStage stage = new BuiltinStage(builtin, argv);
+                    stage.mergeError = commands.get(i).isMergeError();
+                    if (jobOutput != null) {
+                        stage.err = jobOutput.stream(true);
+                    }
+                    if (i == 0) {
+                        // En background un builtin no debe quitarle la entrada de la consola a la shell.
+                        InputStream file = Redirections.openInput(tline);
+                        stage.in = file != null ? file : tline.isBackground() ? InputStream.nullInputStream() : context.stdin();
+                    } else if (previousBuiltin != null) {
+                        // Dos builtins seguidos se conectan con una tubería en memoria.
+                        PipedInputStream pipeIn = new PipedInputStream(PIPE_SIZE);
+                        previousBuiltin.out = new PipedOutputStream(pipeIn);
+                        stage.in = pipeIn;
+                    } else {
+                        stage.in = previousProcess.getInputStream();
+                    }
+                    stages.add(stage);
+                    if (i == n - 1) {
+                        OutputStream file = Redirections.openOutput(tline);
+                        if (file != null) {
+                            stage.out = file;
+                        } else {
+                            stage.out = sink != null ? sink : jobOutput != null ? jobOutput.stream(false) : context.stdout();
+                            stage.shellOut = stage.out;
+                        }
+                        OutputStream errors = Redirections.openError(tline);
+                        if (errors != null) {
+                            stage.err = errors;
+                        }
+                        lastStage = stage;
+                    }
+                    previousBuiltin = stage;
+                    previousProcess = null;
+                    i++;
+                    continue;
+                }
+
+                // Se agrupan los comandos externos consecutivos para que el kernel los conecte entre sí.
+                int j = i;
+                List<ProcessBuilder> builders = new ArrayList<>();
+                while (j < n && (j == i || Builtins.get(commands.get(j).getArgv()) == null)) {
+                    ProcessBuilder pb = MiniShell.createProcessBuilder(commands.get(j));
+                    // Los errores de cada etapa van directamente a la consola (salvo 2> en la última),
+                    // o con 2>&1 y |& a donde vaya su salida (ver createProcessBuilder).
+                    pb.redirectError(j == n - 1 ? Redirections.error(tline) : ProcessBuilder.Redirect.INHERIT);
+                    builders.add(pb);
+                    j++;
+                }
+
+                // Si el grupo está al principio lee de la entrada de la shell (o del fichero de <) y si
+                // está al final escribe en su salida (o en el de > y >>). El sistema operativo abre esos
+                // ficheros y conecta el proceso directamente. En otro caso el extremo queda como PIPE
+                // hacia un builtin.
+                if (i == 0) {
+                    builders.getFirst().redirectInput(Redirections.input(tline));
+                }
+                if (j == n) {
+                    ProcessBuilder.Redirect output = Redirections.output(tline);
+                    // Si se captura la salida, en lugar de la consola se lee de una tubería.
+                    if (sink != null && output == ProcessBuilder.Redirect.INHERIT) {
+                        output = ProcessBuilder.Redirect.PIPE;
+                    }
+                    builders.getLast().redirectOutput(output);
+                }
+                List<boolean[]> groupPrepared = new ArrayList<>();
+                if (jobOutput != null) {
+                    for (int k = 0; k < builders.size(); k++) {
+                        groupPrepared.add(jobOutput.prepare(builders.get(k), j == n && k == builders.size() - 1));
+                    }
+                }
+
+                List<Process> group = Relay.startPipeline(builders);
+                processes.addAll(group);
+                if (jobOutput != null) {
+                    captured.addAll(group);
+                    prepared.addAll(groupPrepared);
+                }
+                if (i == 0) {
+                    Redirections.feed(tline, group.getFirst());
+                }
+                if (previousBuiltin != null) {
+                    previousBuiltin.out = group.getFirst().getOutputStream();
+                }
+                if (j == n) {
+                    lastProcess = group.getLast();
+                }
+                previousProcess = group.getLast();
+                previousBuiltin = null;
+                i = j;
+            }
+        } catch (IOException e) {
+            // Si alguna etapa no se puede lanzar (o no se puede abrir un fichero de redirección)
+            // no se deja ninguna otra en marcha ni ningún fichero abierto.
+            for (Process p : processes) {
+                p.destroy();
+            }
+            for (BuiltinStage stage : stages) {
+                closeQuietly(stage.in, context.stdin());
+                closeQuietly(stage.out, stage.shellOut);
+                closeQuietly(stage.err, context.stderr());
+            }
+            throw e;
+        }
+
+        for (int k = 0; k < captured.size(); k++) {
+            jobOutput.drain(captured.get(k), prepared.get(k));
+        }
+
+        Running running = new Running(processes, stages, lastProcess, lastStage, start, System.nanoTime() - start);
+
+        // Una vez conectadas todas las etapas se arrancan los builtins, cada uno en su hilo virtual.
+        // Lo que escriben se cuenta para las métricas de bytes movidos por la tubería.
+        for (BuiltinStage stage : stages) {
+            stage.out = new CountingOutputStream(stage.out, running.bytes);
+            if (stage.shellOut != null) {
+                stage.shellOut = stage.out;
+            }
+            if (stage.mergeError) {
+                stage.err = stage.out;
+            }
+            stage.thread = Thread.ofVirtual().start(() -> runStage(stage));
+        }
+
+        return running;
+    }
+
+    // Ejecuta un builtin de la tubería y cierra sus extremos al terminar para que
+    // la etapa siguiente vea fin de fichero y la anterior deje de escribir.
+    private static void runStage(BuiltinStage stage) {
+        ShellContext context = ShellContext.current();
+        try (Watchdog.Guard guard = Watchdog.guard()) {
+            OutputStream out = guard.output(stage.out, stage.out != stage.shellOut);
+            stage.status = stage.builtin.run(stage.argv, guard.input(stage.in, stage.in != context.stdin()), out,
+                    stage.err == stage.out ? out : stage.err);
+        } catch (IOException e) {
+            // Si la etapa siguiente ya ha terminado (tubería rota) no es un error del usuario.
+            stage.status = 1;
+        } finally {
+            closeQuietly(stage.in, context.stdin());
+            closeQuietly(stage.out, stage.shellOut);
+            if (stage.err != stage.out) {
+                closeQuietly(stage.err, context.stderr());
+            }
+            stage.done.complete(null);
+        }
+    }
+
+    // Cierra un extremo de la tubería salvo que sea un flujo de la propia shell.
+    private static void closeQuietly(AutoCloseable stream, Object shellStream) {
+        if (stream == null || stream == shellStream) {
+            if (stream instanceof OutputStream out) {
+                try {
+                    out.flush();
+                } catch (IOException ignored) {
+                    // La salida de la shell ya no está disponible.
+                }
+            }
+            return;
+        }
+        try {
+            stream.close();
+        } catch (Exception ignored) {
+            // El otro extremo ya estaba cerrado.
+        }
+    }
+
+    // Espera a que terminen todos los procesos de la tubería y devuelve la CPU total que han
+    // consumido (en nanosegundos) o -1 si no se pudo medir en ninguno.
+    static long waitAll(List<Process> processes) throws InterruptedException {
+        long total = -1;
+        long[] cpu = new long[1];
+        try {
+            for (Process p : processes) {
+                Metrics.waitFor(p, cpu);
+                if (cpu[0] >= 0) {
+                    total = Math.max(total, 0) + cpu[0];
+                }
+            }
+        } catch (InterruptedException e) {
+            // Si se interrumpe la espera no dejamos etapas huérfanas.
+            for (Process p : processes) {
+                p.destroy();
+            }
+            throw e;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,229 @@
+package shell;
+
+import builtins.Builtins;
+import exceptions.ArgumentListTooLongException;
+import exceptions.MissingFileException;
+import exceptions.SyntaxException;
+import tokenizer.TCommand;
+import tokenizer.TLine;
+import tokenizer.TList;
+import tokenizer.Tokenizer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Plan de ejecución compilado de una línea: el árbol de listas, tuberías y comandos que produce el
+// tokenizer, con los ejecutables ya resueltos en $PATH. Los planes no se modifican nunca y se
+// guardan por el texto de la línea, así que un script que repite las mismas líneas (bucles,
+// scripts de mantenimiento) las analiza y resuelve una sola vez. Cada ejecución trabaja sobre una
+// copia de las tuberías, porque la expansión de argumentos cambia sus comandos.
+//
+// La ejecución sigue los operadores de la lista: '&&' y '||' se saltan el elemento según el código
+// del anterior, y un grupo ( ... ) se ejecuta con una copia del contexto (como una subshell: sus
+// cd, set y exit no afectan al resto de la línea).
+public final class Plan {
+
+    // Número de líneas distintas que se guardan (las menos usadas recientemente se descartan).
+    private static final int CACHE_SIZE = 512;
+
+    // Builtins que solo cambian o consultan el estado de la shell: no leen del terminal ni esperan
+    // a nada, así que pueden ejecutarse sin devolver el terminal al modo normal (ver LineEditor).
+    private static final Set<String> TERMINAL_FREE = Set.of(
+            "cd", "export", "unset", "set", "hash", "type", "jobs", "history", "stats", "exit");
+
+    private static final Map<String, Plan> CACHE = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Plan> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    // Resultado de ejecutar un plan: el código de salida y si la shell debe terminar
+    // (por un "exit" o por un fallo con set -e).
+    public record Result(int status, boolean exit) {
+    }
+
+    private final TList list;
+    // Tuberías con here-document (<<), cuyo cuerpo se lee después de compilar la línea.
+    private final List<TLine> hereDocuments;
+    // Algún comando de la línea puede usar el terminal (ver needsTerminal()).
+    private final boolean needsTerminal;
+
+    private Plan(TList list) {
+        this.list = list;
+        List<TLine> lines = list.lines();
+        this.hereDocuments = lines.stream().filter(line -> line.getHereDelimiter() != null).toList();
+        boolean terminal = !hereDocuments.isEmpty();
+        for (TLine line : lines) {
+            terminal |= line.getTargetSources() != null && !line.getTargetSources().isEmpty();
+            for (TCommand command : line.getCommands()) {
+                preResolve(command);
+                terminal |= needsTerminal(command);
+            }
+        }
+        this.needsTerminal = terminal;
+    }
+
+    // Devuelve el plan de la línea, compilándolo solo si no estaba en la caché. Las líneas con
+    // here-document no se guardan: su cuerpo viene a continuación y puede cambiar cada vez.
+    public static Plan compile(String source) throws MissingFileException, SyntaxException {
+        synchronized (CACHE) {
+            Plan plan = CACHE.get(source);
+            if (plan != null) {
+                return plan;
+            }
+        }
+        TList list = Tokenizer.parse(source);
+        Plan plan = new Plan(list != null ? list : new TList());
+        if (plan.hereDocuments.isEmpty()) {
+            synchronized (CACHE) {
+                CACHE.put(source, plan);
+            }
+        }
+        return plan;
+    }
+
+    // Indica si la línea lanza procesos o builtins que pueden leer del terminal o tardar (y entonces
+    // Ctrl-C debe llegarles). Las líneas que solo asignan variables o usan builtins como cd o export
+    // no lo necesitan.
+    public boolean needsTerminal() {
+        return needsTerminal;
+    }
+
+    private static boolean needsTerminal(TCommand command) {
+        // Una sustitución $(...) ejecuta comandos, aunque sea en una asignación, y un nombre de
+        // comando que sale de una variable puede ser cualquier programa.
+        if (command.getSources() != null) {
+            for (Map.Entry<Integer, String> source : command.getSources().entrySet()) {
+                if (source.getKey() == command.getAssignments() || source.getValue().contains("$(")
+                        || source.getValue().indexOf('`') >= 0) {
+                    return true;
+                }
+            }
+        }
+        List<String> argv = command.getArgv();
+        return argv.size() > command.getAssignments() && !TERMINAL_FREE.contains(argv.get(command.getAssignments()));
+    }
+
+    // Tuberías con here-document, en orden, para que la shell lea sus cuerpos antes de ejecutar.
+    public List<TLine> hereDocuments() {
+        return hereDocuments;
+    }
+
+    // Árbol de la línea tal como lo produjo el tokenizer (no debe modificarse).
+    TList list() {
+        return list;
+    }
+
+    // Ejecuta la lista en el contexto del hilo actual.
+    public Result execute() {
+        return execute(list);
+    }
+
+    // Ejecuta la lista enviando la salida de todas sus tuberías a 'sink' (sustitución de comandos).
+    int capture(OutputStream sink) {
+        return capture(list, sink);
+    }
+
+    private static Result execute(TList list) {
+        ShellContext context = ShellContext.current();
+        List<TList.Item> items = list.getItems();
+        // "exit" sin argumentos termina con el código del último comando.
+        int status = context.lastStatus();
+        for (int i = 0; i < items.size(); i++) {
+            TList.Item item = items.get(i);
+            if (skip(item, status)) {
+                continue;
+            }
+            if (item.line() != null) {
+                TLine line = item.line().copy();
+                if (MiniShell.isExit(line)) {
+                    // "exit $?" y similares: el argumento se expande antes de leerlo.
+                    try {
+                        Expander.expand(line);
+                    } catch (ArgumentListTooLongException e) {
+                        System.err.println("Error: " + e.getMessage());
+                        status = 1;
+                        context.setLastStatus(status);
+                        continue;
+                    }
+                    return new Result(MiniShell.exitStatus(line, status), true);
+                }
+                status = MiniShell.execute(line);
+            } else {
+                status = context.copy().run(() -> execute(item.group()).status());
+            }
+            context.setLastStatus(status);
+
+            // Con set -e un fallo termina la shell, salvo en los comandos de una cadena && o ||
+            // que no son el último (su fallo es precisamente la condición).
+            if (status != 0 && context.isExitOnError() && endsChain(items, i)) {
+                return new Result(status, true);
+            }
+        }
+        return new Result(status, false);
+    }
+
+    private static int capture(TList list, OutputStream sink) {
+        int status = ShellContext.current().lastStatus();
+        for (TList.Item item : list.getItems()) {
+            if (skip(item, status)) {
+                continue;
+            }
+            if (item.group() != null) {
+                status = ShellContext.current().copy().run(() -> capture(item.group(), sink));
+                continue;
+            }
+            TLine line = item.line().copy();
+            try {
+                Expander.expand(line);
+                if (line.getNcommands() == 0) {
+                    status = 0;
+                } else if (MiniShell.isCD(line)) {
+                    status = MiniShell.executeCD(line);
+                } else {
+                    status = Pipeline.capture(line, sink);
+                }
+            } catch (IOException e) {
+                System.err.println("Error en la ejecución del comando: " + e.getMessage());
+                status = 1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return MiniShell.STATUS_INTERRUPTED;
+            }
+        }
+        return status;
+    }
+
+    // '&&' se salta el elemento si el anterior ha fallado y '||' si ha terminado bien.
+    private static boolean skip(TList.Item item, int status) {
+        return item.operator() == TList.Operator.AND ? status != 0
+                : item.operator() == TList.Operator.OR && status == 0;
+    }
+
+    // Indica si el elemento i es el último de su cadena && / ||.
+    private static boolean endsChain(List<TList.Item> items, int i) {
+        return i + 1 == items.size() || items.get(i + 1).operator() == TList.Operator.SEQUENCE;
+    }
+
+    // Resuelve en $PATH el ejecutable de un comando cuyo nombre no depende de la expansión.
+    // La ruta se guarda con la generación de la caché de comandos: si $PATH o sus directorios
+    // cambian, la ruta caduca y se vuelve a resolver al ejecutar.
+    private static void preResolve(TCommand command) {
+        String name = command.getFilename();
+        if (ShellContext.WINDOWS || Builtins.isShellBuiltin(name) || command.getAssignments() > 0
+                || (command.getSources() != null && command.getSources().containsKey(0))
+                || (command.getPatterns() != null && command.getPatterns().containsKey(0))) {
+            return;
+        }
+        int generation = CommandResolver.generation();
+        String path = CommandResolver.resolve(name);
+        if (path != null) {
+            command.setExecutable(path, generation);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package shell;
+
+import tokenizer.TCommand;
+import tokenizer.TLine;
+import tokenizer.TList;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Grabación de sesiones (MiniShell --record fichero) para reproducirlas después con shell.Replay
+// y medir el coste de la propia shell antes y después de un cambio.
+//
+// El fichero es binario y solo se añade al final: empieza con una cabecera fija y después cada
+// registro va precedido de su longitud, así que una shell que termina a medias deja como mucho
+// un registro incompleto, que al leer se ignora. Hay dos tipos de registro:
+//   - 'S' inicio de sesión: instante (ms desde 1970) y directorio de trabajo.
+//   - 'L' línea ejecutada: nanosegundos desde el inicio de la sesión, el texto de la línea, los
+//     cuerpos de sus here-documents, el árbol que produjo el tokenizer (codificado, o nada si la
+//     línea tenía un error de sintaxis), los tiempos de análisis, lanzamiento y espera y el código
+//     de salida.
+// Los números van como enteros de longitud variable (7 bits por byte), de modo que una línea
+// corta ocupa unas decenas de bytes.
+public final class Recording {
+
+    private static final byte[] MAGIC = {'M', 'S', 'H', 'R', 'E', 'C'};
+    private static final int VERSION = 1;
+    private static final byte SESSION = 'S';
+    private static final byte LINE = 'L';
+
+    // Sesión grabada: cuándo empezó, en qué directorio y sus líneas en orden.
+    public record Session(long startMillis, String cwd, List<Entry> entries) {
+    }
+
+    // Línea grabada. 'parsed' es el árbol codificado con encode(), o null si no se pudo analizar.
+    // Los tiempos están en nanosegundos.
+    public record Entry(long offsetNanos, String input, List<String> hereInputs, byte[] parsed,
+                        long parseNanos, long spawnNanos, long waitNanos, int status) {
+    }
+
+    // Grabación en curso (solo hay una por JVM) o null si no se graba.
+    private static volatile Recording active;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FileChannel channel;
+    private final long start = System.nanoTime();
+    private final Encoder record = new Encoder();
+    private final Encoder frame = new Encoder();
+
+    private Recording(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    // Empieza a grabar en el fichero indicado, añadiendo una sesión nueva al final si ya existe.
+    public static void start(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        try {
+            if (channel.size() == 0) {
+                Encoder header = new Encoder();
+                header.write(MAGIC);
+                header.write(VERSION);
+                channel.write(ByteBuffer.wrap(header.toByteArray()));
+            } else {
+                checkHeader(file);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        Recording recording = new Recording(channel);
+        Encoder session = recording.record;
+        session.write(SESSION);
+        session.writeLong(System.currentTimeMillis());
+        session.writeString(ShellContext.current().cwd());
+        recording.flush();
+        active = recording;
+    }
+
+    // Indica si se está grabando la sesión.
+    static boolean active() {
+        return active != null;
+    }
+
+    // Graba una línea ya ejecutada. 'plan' es null si la línea tenía un error de sintaxis (y entonces
+    // el lanzamiento y la espera son -1: no se ejecutó nada).
+    // Un fallo al escribir detiene la grabación pero no la shell.
+    static void record(String input, Plan plan, long parseNanos, long spawnNanos, long waitNanos, int status) {
+        Recording recording = active;
+        if (recording == null) {
+            return;
+        }
+        recording.lock.lock();
+        try {
+            Encoder out = recording.record;
+            out.write(LINE);
+            out.writeLong(System.nanoTime() - recording.start);
+            out.writeString(input);
+            List<TLine> hereDocuments = plan != null ? plan.hereDocuments() : List.of();
+            out.writeLong(hereDocuments.size());
+            for (TLine tline : hereDocuments) {
+                out.writeString(tline.getHereInput());
+            }
+            out.writeBlock(plan != null ? encode(plan.list()) : null);
+            out.writeLong(parseNanos);
+            out.writeLong(spawnNanos);
+            out.writeLong(waitNanos);
+            out.writeLong(status);
+            recording.flush();
+        } catch (IOException e) {
+            System.err.println("minishell: --record: " + e.getMessage() + " (se deja de grabar)");
+            active = null;
+        } finally {
+            recording.lock.unlock();
+        }
+    }
+
+    // Escribe el registro preparado precedido de su longitud, con una sola escritura.
+    private void flush() throws IOException {
+        frame.reset();
+        frame.writeLong(record.size());
+        record.writeTo(frame);
+        record.reset();
+        ByteBuffer bytes = ByteBuffer.wrap(frame.buffer(), 0, frame.size());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    // Lee todas las sesiones de una grabación.
+    public static List<Session> read(Path file) throws IOException {
+        List<Session> sessions = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || in.readUnsignedByte() != VERSION) {
+                throw new IOException("no es una grabación de minishell (o es de otra versión)");
+            }
+            List<Entry> entries = null;
+            while (true) {
+                byte[] data;
+                try {
+                    int length = (int) readLong(in);
+                    data = new byte[length];
+                    in.readFully(data);
+                } catch (EOFException e) {
+                    // Fin del fichero o último registro a medias.
+                    break;
+                }
+                DataInputStream r = new DataInputStream(new ByteArrayInputStream(data));
+                byte type = r.readByte();
+                if (type == SESSION) {
+                    entries = new ArrayList<>();
+                    sessions.add(new Session(readLong(r), readString(r), entries));
+                } else if (type == LINE && entries != null) {
+                    long offset = readLong(r);
+                    String input = readString(r);
+                    int count = (int) readLong(r);
+                    List<String> hereInputs = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        hereInputs.add(readString(r));
+                    }
+                    byte[] parsed = readBytes(r);
+                    entries.add(new Entry(offset, input, hereInputs, parsed,
+                            readLong(r), readLong(r), readLong(r), (int) readLong(r)));
+                }
+            }
+        }
+        return sessions;
+    }
+
+    private static void checkHeader(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] header = in.readNBytes(MAGIC.length + 1);
+            if (header.length != MAGIC.length + 1 || !Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length)
+                    || header[MAGIC.length] != VERSION) {
+                throw new IOException("el fichero existe y no es una grabación de minishell");
+            }
+        }
+    }
+
+    // Codificación canónica del árbol de una línea: dos análisis del mismo texto dan los mismos
+    // bytes, así que Replay puede comprobar que el tokenizer sigue produciendo lo mismo.
+    public static byte[] encode(TList list) {
+        Encoder out = new Encoder();
+        encode(list, out);
+        return out.toByteArray();
+    }
+
+    private static void encode(TList list, Encoder out) {
+        out.writeLong(list.getItems().size());
+        for (TList.Item item : list.getItems()) {
+            out.write(item.operator().ordinal() << 1 | (item.group() != null ? 1 : 0));
+            if (item.group() != null) {
+                encode(item.group(), out);
+                continue;
+            }
+            TLine line = item.line();
+            out.writeLong(line.getCommands().size());
+            for (TCommand command : line.getCommands()) {
+                out.writeLong(command.getArgv().size());
+                for (String arg : command.getArgv()) {
+                    out.writeString(arg);
+                }
+                out.writeLong(command.getAssignments());
+                out.write(command.isMergeError() ? 1 : 0);
+                encode(command.getSources(), out);
+                encode(command.getPatterns(), out);
+            }
+            out.writeString(line.getRedirectInput());
+            out.writeString(line.getRedirectOutput());
+            out.writeString(line.getRedirectError());
+            out.writeString(line.getHereDelimiter());
+            encode(line.getTargetSources(), out);
+            out.write((line.isBackground() ? 1 : 0) | (line.isAppendOutput() ? 2 : 0)
+                    | (line.isAppendError() ? 4 : 0) | (line.isHereStripTabs() ? 8 : 0));
+        }
+    }
+
+    // Los mapas se escriben ordenados por clave para que la codificación no dependa del tipo de mapa.
+    private static void encode(Map<?, String> map, Encoder out) {
+        if (map == null) {
+            out.writeLong(0);
+            return;
+        }
+        out.writeLong(map.size());
+        for (Map.Entry<?, String> entry : new TreeMap<>(map).entrySet()) {
+            out.writeString(String.valueOf(entry.getKey()));
+            out.writeString(entry.getValue());
+        }
+    }
+
+    // Entero de longitud variable: 7 bits por byte, con el bit alto indicando que sigue otro.
+    // Los negativos (como un código de salida -1) se guardan en zigzag para que sigan siendo cortos.
+    private static long readLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return (value >>> 1) ^ -(value & 1);
+            }
+        }
+        throw new IOException("entero mal codificado en la grabación");
+    }
+
+    // Cadenas y bloques de bytes: longitud + 1 (0 si es null) y el contenido.
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        long length = readLong(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) (length - 1)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    // Búfer de escritura con los mismos formatos que leen readLong y readBytes.
+    private static final class Encoder extends ByteArrayOutputStream {
+
+        void writeLong(long value) {
+            long v = (value << 1) ^ (value >> 63);
+            while ((v & ~0x7fL) != 0) {
+                write((int) (v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            write((int) v);
+        }
+
+        void writeBlock(byte[] bytes) {
+            if (bytes == null) {
+                writeLong(0);
+                return;
+            }
+            writeLong(bytes.length + 1L);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeString(String value) {
+            writeBlock(value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package shell;
+
+import builtins.Builtins;
+import tokenizer.TLine;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Redirecciones de una línea (<, <<, <<<, >, >>, 2>, 2>>, &>, &>>) traducidas a lo que necesita cada tipo de etapa.
+// La unión de errores y salida (2>&1, &>, |&) es de cada comando: ver MiniShell.createProcessBuilder.
+// Para los procesos externos se devuelve un ProcessBuilder.Redirect, de modo que es el sistema
+// operativo quien abre el fichero y ningún byte pasa por la JVM. Los builtins reciben el flujo
+// ya abierto. Las rutas relativas se resuelven respecto al directorio actual de la shell.
+// El texto de un here-document o here-string se entrega desde memoria, sin fichero temporal: un
+// builtin lo lee directamente y a un proceso se le escribe en su tubería de entrada desde un hilo
+// virtual mientras el proceso la va leyendo.
+final class Redirections {
+
+    private Redirections() {
+    }
+
+    // Entrada de la primera etapa: el fichero de <, una tubería para el texto de << o <<<
+    // (ver feed) o, si no hay, la consola.
+    static ProcessBuilder.Redirect input(TLine tline) {
+        if (tline.getHereInput() != null) {
+            return ProcessBuilder.Redirect.PIPE;
+        }
+        if (tline.getRedirectInput() == null) {
+            return ProcessBuilder.Redirect.INHERIT;
+        }
+        return ProcessBuilder.Redirect.from(Builtins.resolve(tline.getRedirectInput()));
+    }
+
+    // Salida de la última etapa: el fichero de > o >> o, si no hay, la consola.
+    static ProcessBuilder.Redirect output(TLine tline) {
+        if (tline.getRedirectOutput() == null) {
+            return ProcessBuilder.Redirect.INHERIT;
+        }
+        return redirect(tline.getRedirectOutput(), tline.isAppendOutput());
+    }
+
+    // Errores de la última etapa: el fichero de 2> o 2>> o, si no hay, la consola.
+    static ProcessBuilder.Redirect error(TLine tline) {
+        if (tline.getRedirectError() == null) {
+            return ProcessBuilder.Redirect.INHERIT;
+        }
+        return redirect(tline.getRedirectError(), tline.isAppendError());
+    }
+
+    // Abre la entrada de un builtin al principio de la línea, o null si no hay redirección.
+    static InputStream openInput(TLine tline) throws IOException {
+        if (tline.getHereInput() != null) {
+            return new ByteArrayInputStream(tline.getHereInput().getBytes(StandardCharsets.UTF_8));
+        }
+        return tline.getRedirectInput() == null ? null : new FileInputStream(Builtins.resolve(tline.getRedirectInput()));
+    }
+
+    // Abre la salida de un builtin al final de la línea, o null si no hay redirección.
+    static OutputStream openOutput(TLine tline) throws IOException {
+        return tline.getRedirectOutput() == null ? null
+                : new FileOutputStream(Builtins.resolve(tline.getRedirectOutput()), tline.isAppendOutput());
+    }
+
+    // Abre la salida de errores de un builtin al final de la línea, o null si no hay redirección.
+    static OutputStream openError(TLine tline) throws IOException {
+        return tline.getRedirectError() == null ? null
+                : new FileOutputStream(Builtins.resolve(tline.getRedirectError()), tline.isAppendError());
+    }
+
+    // Escribe el texto de << o <<< en la entrada del proceso desde un hilo virtual y la cierra al
+    // terminar. Si el proceso deja de leer antes (tubería rota), el resto se descarta.
+    static void feed(TLine tline, Process process) {
+        if (tline.getHereInput() == null) {
+            return;
+        }
+        byte[] bytes = tline.getHereInput().getBytes(StandardCharsets.UTF_8);
+        Thread.ofVirtual().start(() -> {
+            try (OutputStream stdin = process.getOutputStream()) {
+                stdin.write(bytes);
+            } catch (IOException e) {
+                // El proceso ha terminado o ha cerrado su entrada.
+            }
+        });
+    }
+
+    private static ProcessBuilder.Redirect redirect(String name, boolean append) {
+        return append ? ProcessBuilder.Redirect.appendTo(Builtins.resolve(name))
+                : ProcessBuilder.Redirect.to(Builtins.resolve(name));
+    }
+}
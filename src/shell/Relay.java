@@ -0,0 +1,291 @@
+package shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Reenvío de la entrada y salida de los procesos cuando el contexto del intérprete no usa los
+// flujos de la JVM (sesiones del demonio, intérpretes embebidos). Esos procesos no pueden heredar
+// descriptores: lo que heredarían (entrada, salida o errores) se conecta con tuberías que se
+// reenvían en hilos virtuales a los flujos del contexto.
+public final class Relay {
+
+    // Cada cuánto comprueba el reenvío de la entrada si el proceso sigue vivo.
+    private static final long INPUT_POLL_MILLIS = 50;
+    private static final int RELAY_BUFFER_SIZE = 64 * 1024;
+
+    private static boolean routing;
+
+    private Relay() {
+    }
+
+    // Sustituye System.out y System.err por flujos que escriben en los del contexto del hilo que
+    // escribe, para que los mensajes de la shell lleguen a cada intérprete por su salida.
+    static synchronized void installRouting() {
+        if (routing) {
+            return;
+        }
+        ShellContext.shell();
+        System.setOut(routing(false));
+        System.setErr(routing(true));
+        routing = true;
+    }
+
+    private static PrintStream routing(boolean error) {
+        return new PrintStream(new OutputStream() {
+            private PrintStream target() {
+                ShellContext context = ShellContext.current();
+                return error ? context.stderr() : context.stdout();
+            }
+
+            @Override
+            public void write(int b) {
+                target().write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                target().write(b, off, len);
+            }
+
+            @Override
+            public void flush() {
+                target().flush();
+            }
+        }, true);
+    }
+
+    // Lanza el proceso; si el contexto no usa los flujos de la JVM, los heredados se reenvían.
+    public static Process start(ProcessBuilder pb) throws IOException {
+        ShellContext context = ShellContext.current();
+        if (context.inheritsIO()) {
+            return tracked(pb.start());
+        }
+        boolean[] relayed = prepare(pb, true, true);
+        return relay(context, tracked(pb.start()), relayed);
+    }
+
+    // Lanza una tubería de procesos (ProcessBuilder.startPipeline) con el mismo tratamiento:
+    // la entrada del primero, la salida del último y los errores de todos.
+    public static List<Process> startPipeline(List<ProcessBuilder> builders) throws IOException {
+        ShellContext context = ShellContext.current();
+        if (context.inheritsIO()) {
+            List<Process> processes = ProcessBuilder.startPipeline(builders);
+            processes.forEach(Watchdog::track);
+            return processes;
+        }
+        List<boolean[]> relayed = new ArrayList<>(builders.size());
+        for (int i = 0; i < builders.size(); i++) {
+            relayed.add(prepare(builders.get(i), i == 0, i == builders.size() - 1));
+        }
+        List<Process> processes = ProcessBuilder.startPipeline(builders);
+        processes.forEach(Watchdog::track);
+        List<Process> result = new ArrayList<>(processes.size());
+        for (int i = 0; i < processes.size(); i++) {
+            result.add(relay(context, processes.get(i), relayed.get(i)));
+        }
+        return result;
+    }
+
+    // Apunta el proceso en el plazo de ejecución (timeout) del hilo, si lo hay.
+    private static Process tracked(Process process) {
+        Watchdog.track(process);
+        return process;
+    }
+
+    // Cambia a PIPE los flujos que el proceso heredaría. Devuelve cuáles hay que reenviar.
+    private static boolean[] prepare(ProcessBuilder pb, boolean first, boolean last) {
+        boolean[] relayed = new boolean[3];
+        if (first && pb.redirectInput() == ProcessBuilder.Redirect.INHERIT) {
+            pb.redirectInput(ProcessBuilder.Redirect.PIPE);
+            relayed[0] = true;
+        }
+        if (last && pb.redirectOutput() == ProcessBuilder.Redirect.INHERIT) {
+            pb.redirectOutput(ProcessBuilder.Redirect.PIPE);
+            relayed[1] = true;
+        }
+        if (pb.redirectError() == ProcessBuilder.Redirect.INHERIT && !pb.redirectErrorStream()) {
+            pb.redirectError(ProcessBuilder.Redirect.PIPE);
+            relayed[2] = true;
+        }
+        return relayed;
+    }
+
+    // Arranca los hilos virtuales de reenvío del proceso.
+    private static Process relay(ShellContext context, Process process, boolean[] relayed) {
+        if (!relayed[0] && !relayed[1] && !relayed[2]) {
+            return process;
+        }
+        List<Thread> outputs = new ArrayList<>(2);
+        if (relayed[0]) {
+            Thread.ofVirtual().start(() -> relayInput(context.stdin(), process));
+        }
+        if (relayed[1]) {
+            outputs.add(Thread.ofVirtual().start(() -> relayOutput(process.getInputStream(), context.stdout())));
+        }
+        if (relayed[2]) {
+            outputs.add(Thread.ofVirtual().start(() -> relayOutput(process.getErrorStream(), context.stderr())));
+        }
+        return new RelayedProcess(process, relayed, outputs);
+    }
+
+    // Pasa la entrada del contexto al proceso. La de una sesión del demonio se consulta con espera
+    // limitada mientras el proceso siga vivo, y si termina sin leer un bloque el bloque se devuelve
+    // a la sesión para el comando siguiente. Cualquier otra se copia hasta su final.
+    private static void relayInput(InputStream in, Process process) {
+        try (OutputStream stdin = process.getOutputStream()) {
+            if (!(in instanceof SessionInput session)) {
+                byte[] buffer = new byte[RELAY_BUFFER_SIZE];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    stdin.write(buffer, 0, n);
+                    stdin.flush();
+                }
+                return;
+            }
+            while (process.isAlive()) {
+                byte[] chunk = session.poll(INPUT_POLL_MILLIS);
+                if (chunk == null) {
+                    continue;
+                }
+                if (chunk.length == 0) {
+                    return;
+                }
+                try {
+                    stdin.write(chunk);
+                    stdin.flush();
+                } catch (IOException e) {
+                    session.unread(chunk);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // El proceso ya había cerrado su entrada.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void relayOutput(InputStream from, PrintStream to) {
+        byte[] buffer = new byte[RELAY_BUFFER_SIZE];
+        try (from) {
+            int n;
+            while ((n = from.read(buffer)) > 0) {
+                to.write(buffer, 0, n);
+                to.flush();
+            }
+        } catch (IOException e) {
+            // El proceso o el cliente han cerrado la conexión.
+        }
+    }
+
+    // Proceso cuyos flujos se reenvían: al esperarlo se espera también a que se haya reenviado
+    // toda su salida, para que no se mezcle con la del comando siguiente.
+    private static final class RelayedProcess extends Process {
+        private final Process process;
+        private final boolean[] relayed;
+        private final List<Thread> outputs;
+
+        RelayedProcess(Process process, boolean[] relayed, List<Thread> outputs) {
+            this.process = process;
+            this.relayed = relayed;
+            this.outputs = outputs;
+        }
+
+        private void joinOutputs() {
+            for (Thread thread : outputs) {
+                boolean interrupted = false;
+                while (thread.isAlive()) {
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return relayed[0] ? OutputStream.nullOutputStream() : process.getOutputStream();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return relayed[1] ? InputStream.nullInputStream() : process.getInputStream();
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return relayed[2] ? InputStream.nullInputStream() : process.getErrorStream();
+        }
+
+        @Override
+        public int waitFor() throws InterruptedException {
+            int status = process.waitFor();
+            joinOutputs();
+            return status;
+        }
+
+        @Override
+        public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+            if (!process.waitFor(timeout, unit)) {
+                return false;
+            }
+            joinOutputs();
+            return true;
+        }
+
+        @Override
+        public CompletableFuture<Process> onExit() {
+            return process.onExit().thenApply(p -> {
+                joinOutputs();
+                return this;
+            });
+        }
+
+        @Override
+        public int exitValue() {
+            return process.exitValue();
+        }
+
+        @Override
+        public void destroy() {
+            process.destroy();
+        }
+
+        @Override
+        public Process destroyForcibly() {
+            process.destroyForcibly();
+            return this;
+        }
+
+        @Override
+        public boolean supportsNormalTermination() {
+            return process.supportsNormalTermination();
+        }
+
+        @Override
+        public boolean isAlive() {
+            return process.isAlive();
+        }
+
+        @Override
+        public long pid() {
+            return process.pid();
+        }
+
+        @Override
+        public ProcessHandle toHandle() {
+            return process.toHandle();
+        }
+    }
+}
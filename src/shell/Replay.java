@@ -0,0 +1,251 @@
+package shell;
+
+import exceptions.MissingFileException;
+import exceptions.SyntaxException;
+import tokenizer.TLine;
+import tokenizer.TList;
+import tokenizer.Tokenizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Reproduce una sesión grabada con MiniShell --record y compara sus tiempos con los grabados.
+// Uso: Replay [--tokenize] [--paced] grabación
+//   --tokenize -> solo analiza cada línea con el tokenizer (sin caché de planes ni ejecución) y
+//                 comprueba que el árbol es el mismo que se grabó.
+//   --paced    -> respeta las pausas originales entre líneas (por defecto, a máxima velocidad).
+// Al terminar muestra los percentiles de cada fase (análisis, lanzamiento y espera), grabados y
+// reproducidos, y cuántas líneas dieron un árbol o un código de salida distinto.
+public final class Replay {
+
+    private Replay() {
+    }
+
+    public static void main(String[] args) {
+        boolean tokenize = false;
+        boolean paced = false;
+        String file = null;
+        for (String arg : args) {
+            if (arg.equals("--tokenize")) {
+                tokenize = true;
+            } else if (arg.equals("--paced")) {
+                paced = true;
+            } else if (file == null && !arg.startsWith("-")) {
+                file = arg;
+            } else {
+                file = null;
+                break;
+            }
+        }
+        if (file == null) {
+            System.err.println("uso: Replay [--tokenize] [--paced] grabación");
+            System.exit(2);
+        }
+
+        List<Recording.Session> sessions;
+        try {
+            sessions = Recording.read(Path.of(file));
+        } catch (IOException e) {
+            System.err.println("replay: " + file + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        Report report = new Report(tokenize);
+        for (Recording.Session session : sessions) {
+            if (tokenize) {
+                tokenize(session, paced, report);
+            } else {
+                execute(session, paced, report);
+            }
+        }
+        System.out.flush();
+        report.print(System.out, sessions.size(), paced);
+        System.exit(report.mismatches() == 0 ? 0 : 1);
+    }
+
+    // Analiza cada línea con el tokenizer, como haría la shell la primera vez que la ve.
+    private static void tokenize(Recording.Session session, boolean paced, Report report) {
+        long start = System.nanoTime();
+        for (Recording.Entry entry : session.entries()) {
+            pace(start, entry, paced);
+            byte[] parsed;
+            long parseStart = System.nanoTime();
+            try {
+                TList list = Tokenizer.parse(entry.input());
+                parsed = Recording.encode(list != null ? list : new TList());
+            } catch (MissingFileException | SyntaxException e) {
+                parsed = null;
+            }
+            report.add(entry, System.nanoTime() - parseStart, -1, -1, parsed, entry.status());
+        }
+    }
+
+    // Ejecuta cada línea como el bucle de MiniShell.run, en el directorio en que empezó la sesión.
+    private static void execute(Recording.Session session, boolean paced, Report report) {
+        ShellContext context = ShellContext.current();
+        if (session.cwd() != null && new File(session.cwd()).isDirectory()) {
+            context.setCwd(session.cwd());
+        }
+        long start = System.nanoTime();
+        for (Recording.Entry entry : session.entries()) {
+            pace(start, entry, paced);
+            Plan plan;
+            long parseStart = System.nanoTime();
+            try {
+                plan = Plan.compile(entry.input());
+            } catch (MissingFileException | SyntaxException e) {
+                plan = null;
+            }
+            long parseNanos = System.nanoTime() - parseStart;
+            if (plan == null) {
+                context.setLastStatus(2);
+                report.add(entry, parseNanos, -1, -1, null, 2);
+                continue;
+            }
+
+            List<TLine> hereDocuments = plan.hereDocuments();
+            for (int i = 0; i < hereDocuments.size(); i++) {
+                hereDocuments.get(i).setHereInput(i < entry.hereInputs().size() ? entry.hereInputs().get(i) : "");
+            }
+            long spawned = Metrics.spawned();
+            long executeStart = System.nanoTime();
+            Plan.Result result = plan.execute();
+            long spawnNanos = Metrics.spawned() - spawned;
+            long waitNanos = System.nanoTime() - executeStart - spawnNanos;
+            report.add(entry, parseNanos, spawnNanos, waitNanos, Recording.encode(plan.list()), result.status());
+            // Un "exit" terminaba la sesión grabada.
+            if (result.exit()) {
+                break;
+            }
+        }
+    }
+
+    // Con --paced espera hasta el instante de la sesión en que se ejecutó la línea.
+    private static void pace(long start, Recording.Entry entry, boolean paced) {
+        if (!paced) {
+            return;
+        }
+        long delay = start + entry.offsetNanos() - System.nanoTime();
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay / 1_000_000, (int) (delay % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Tiempos grabados y reproducidos de cada fase, y diferencias encontradas.
+    private static final class Report {
+        private final boolean tokenize;
+        private final Samples recordedParse = new Samples();
+        private final Samples recordedSpawn = new Samples();
+        private final Samples recordedWait = new Samples();
+        private final Samples parse = new Samples();
+        private final Samples spawn = new Samples();
+        private final Samples wait = new Samples();
+        private int lines;
+        private int parseMismatches;
+        private int statusMismatches;
+
+        Report(boolean tokenize) {
+            this.tokenize = tokenize;
+        }
+
+        void add(Recording.Entry entry, long parseNanos, long spawnNanos, long waitNanos, byte[] parsed, int status) {
+            lines++;
+            recordedParse.add(entry.parseNanos());
+            recordedSpawn.add(entry.spawnNanos());
+            recordedWait.add(entry.waitNanos());
+            parse.add(parseNanos);
+            spawn.add(spawnNanos);
+            wait.add(waitNanos);
+            if (!Arrays.equals(parsed, entry.parsed())) {
+                parseMismatches++;
+                System.err.println("replay: el análisis ha cambiado: " + entry.input());
+            }
+            if (status != entry.status()) {
+                statusMismatches++;
+                System.err.println("replay: código de salida " + status + " (grabado " + entry.status() + "): "
+                        + entry.input());
+            }
+        }
+
+        int mismatches() {
+            return parseMismatches + (tokenize ? 0 : statusMismatches);
+        }
+
+        void print(PrintStream out, int sessions, boolean paced) {
+            out.printf("replay: %d líneas en %d sesiones, %s, %s%n", lines, sessions,
+                    tokenize ? "solo tokenizer" : "ejecución completa",
+                    paced ? "al ritmo original" : "a máxima velocidad");
+            out.printf("%-18s %8s %10s %10s %10s %10s%n", "fase (µs)", "n", "p50", "p90", "p99", "max");
+            row(out, "análisis grabado", recordedParse);
+            row(out, "análisis", parse);
+            if (!tokenize) {
+                row(out, "lanzamiento grab.", recordedSpawn);
+                row(out, "lanzamiento", spawn);
+                row(out, "espera grabada", recordedWait);
+                row(out, "espera", wait);
+            }
+            out.printf("análisis distintos: %d%n", parseMismatches);
+            if (!tokenize) {
+                out.printf("códigos distintos: %d%n", statusMismatches);
+            }
+            out.flush();
+        }
+
+        private static void row(PrintStream out, String name, Samples samples) {
+            out.printf(Locale.ROOT, "%-18s %8d %10.1f %10.1f %10.1f %10.1f%n", name, samples.size(),
+                    micros(samples.percentile(50)), micros(samples.percentile(90)),
+                    micros(samples.percentile(99)), micros(samples.percentile(100)));
+        }
+
+        private static double micros(long nanos) {
+            return nanos / 1000.0;
+        }
+    }
+
+    // Tiempos de una fase. Los percentiles son exactos (una grabación cabe de sobra en memoria),
+    // para que una diferencia pequeña entre dos versiones de la shell no quede dentro de una cubeta.
+    private static final class Samples {
+        private long[] values = new long[256];
+        private int size;
+        private boolean sorted = true;
+
+        // Los valores negativos (fase que no se midió) no cuentan.
+        void add(long value) {
+            if (value < 0) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            sorted = false;
+        }
+
+        int size() {
+            return size;
+        }
+
+        // Percentil por rango más cercano.
+        long percentile(double p) {
+            if (size == 0) {
+                return 0;
+            }
+            if (!sorted) {
+                Arrays.sort(values, 0, size);
+                sorted = true;
+            }
+            int rank = (int) Math.ceil(p / 100.0 * size);
+            return values[Math.max(rank, 1) - 1];
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Entrada estándar de una sesión del demonio: bloques de bytes que llegan del cliente por el socket.
+// Se lee como un InputStream normal (builtins) o bloque a bloque con espera limitada (reenvío a un
+// proceso), de modo que al terminar el proceso el bloque que no llegó a escribirse se devuelve y
+// lo recibe el siguiente comando.
+// Solo se guardan unos pocos bloques: si el comando no lee, quien los añade espera.
+final class SessionInput extends InputStream {
+
+    // Marca de fin de la entrada (el cliente ha cerrado su stdin).
+    private static final byte[] EOF = new byte[0];
+
+    // Bloques pendientes como mucho (cada uno de hasta Daemon.MAX_FRAME_SIZE bytes).
+    private static final int CAPACITY = 4;
+
+    private final LinkedBlockingDeque<byte[]> chunks = new LinkedBlockingDeque<>(CAPACITY);
+    // Cerrojo en lugar de synchronized: la lectura se bloquea esperando al cliente y un hilo virtual
+    // bloqueado dentro de synchronized retiene su hilo portador.
+    private final ReentrantLock lock = new ReentrantLock();
+    private byte[] current;
+    private int offset;
+    private boolean eof;
+
+    // Añade un bloque recibido del cliente, esperando a que haya sitio.
+    void add(byte[] data) throws InterruptedException {
+        chunks.put(data);
+    }
+
+    // El cliente no enviará más datos.
+    void finish() throws InterruptedException {
+        chunks.put(EOF);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            if (fill(-1) < 0) {
+                return -1;
+            }
+            int n = Math.min(len, current.length - offset);
+            System.arraycopy(current, offset, b, off, n);
+            offset += n;
+            return n;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int available() {
+        lock.lock();
+        try {
+            return current != null ? current.length - offset : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Devuelve lo que queda del bloque actual o el siguiente, esperando como mucho 'millis'.
+    // Devuelve null si no ha llegado nada y un array vacío al final de la entrada.
+    byte[] poll(long millis) throws InterruptedException {
+        lock.lock();
+        try {
+            int state = fill(millis);
+            if (state < 0) {
+                return EOF;
+            }
+            if (state == 0) {
+                return null;
+            }
+            byte[] rest = offset == 0 ? current : Arrays.copyOfRange(current, offset, current.length);
+            current = null;
+            return rest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Devuelve un bloque que no se pudo entregar, para que lo lea el siguiente consumidor.
+    void unread(byte[] data) {
+        lock.lock();
+        try {
+            current = data;
+            offset = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Deja un bloque listo en 'current'. Devuelve 1 si hay datos, 0 si se agota la espera y -1 al final.
+    private int fill(long millis) throws InterruptedException {
+        if (current != null && offset < current.length) {
+            return 1;
+        }
+        if (eof) {
+            return -1;
+        }
+        byte[] next = millis < 0 ? chunks.take() : chunks.poll(millis, TimeUnit.MILLISECONDS);
+        if (next == null) {
+            return 0;
+        }
+        if (next == EOF) {
+            eof = true;
+            return -1;
+        }
+        current = next;
+        offset = 0;
+        return 1;
+    }
+}
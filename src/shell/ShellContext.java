@@ -0,0 +1,244 @@
+package shell;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+// Estado de un intérprete: directorio actual, entorno y variables, último código de salida, opciones (set -e, -t, -o)
+// y flujos estándar. Sustituye a las propiedades globales de la JVM (user.dir) para que varios
+// intérpretes puedan ejecutarse a la vez en el mismo proceso: cada uno ejecuta sus líneas con su
+// contexto asociado al hilo, y los hilos que lanza (etapas builtin, sustituciones) lo heredan.
+// Sin contexto explícito se usa el de la propia shell, creado a partir de la JVM.
+//
+// Uso embebido:
+//   ShellContext context = new ShellContext(dir, ShellContext.processEnvironment(), in, out, err);
+//   int status = MiniShell.run(context, reader, false);
+public final class ShellContext {
+
+    // Datos de la plataforma: no cambian durante la ejecución, se leen una sola vez.
+    static final boolean WINDOWS = System.getProperty("os.name").toLowerCase().contains("win");
+    static final String HOME = System.getProperty("user.home");
+    static final String USER = System.getProperty("user.name");
+
+    private static final Map<String, String> PROCESS_ENVIRONMENT = System.getenv();
+    private static final ShellContext SHELL = new ShellContext(System.getProperty("user.dir"), PROCESS_ENVIRONMENT,
+            System.in, System.out, System.err);
+    private static final InheritableThreadLocal<ShellContext> CURRENT = new InheritableThreadLocal<>();
+
+    private volatile String cwd;
+    // Ni el entorno ni las variables se modifican en su sitio: cada cambio publica uno nuevo, así que
+    // una copia del contexto (subshell, sustitución) los comparte sin copiarlos.
+    private volatile Environment environment;
+    // Variables de la shell que no se exportan a los comandos (VAR=valor sin export).
+    private volatile Map<String, String> variables = Map.of();
+    private volatile int lastStatus;
+    private volatile boolean exitOnError;
+    // set -t: plazo máximo de cada comando en primer plano (null si no hay).
+    private volatile Duration defaultTimeout;
+    // set -o jobcapture / joblog: dónde va la salida de los trabajos en segundo plano.
+    private volatile JobOutput.Mode jobCapture = JobOutput.Mode.OFF;
+    private final InputStream in;
+    private final PrintStream out;
+    private final PrintStream err;
+    // Si los flujos son los de la JVM, los procesos los heredan directamente; si no, se reenvían.
+    private final boolean inheritsIO;
+    // Trabajos en segundo plano de este intérprete; las subshells comparten la tabla.
+    private final JobTable jobs;
+
+    public ShellContext(String cwd, Map<String, String> environment, InputStream in, PrintStream out, PrintStream err) {
+        this(cwd, Environment.of(environment), in, out, err, in == System.in && out == System.out && err == System.err,
+                new JobTable());
+    }
+
+    private ShellContext(String cwd, Environment environment, InputStream in, PrintStream out, PrintStream err,
+                         boolean inheritsIO, JobTable jobs) {
+        this.cwd = cwd;
+        this.environment = environment;
+        this.in = in;
+        this.out = out;
+        this.err = err;
+        this.inheritsIO = inheritsIO;
+        this.jobs = jobs;
+    }
+
+    // Copia para una subshell (grupos entre paréntesis, sustituciones): empieza con el mismo
+    // estado y flujos, pero sus cambios no afectan a este contexto. La tabla de trabajos es la misma.
+    public ShellContext copy() {
+        ShellContext copy = new ShellContext(cwd, environment, in, out, err, inheritsIO, jobs);
+        copy.variables = variables;
+        copy.lastStatus = lastStatus;
+        copy.exitOnError = exitOnError;
+        copy.defaultTimeout = defaultTimeout;
+        copy.jobCapture = jobCapture;
+        return copy;
+    }
+
+    // Contexto del hilo actual, o el de la shell si no hay ninguno asociado.
+    public static ShellContext current() {
+        ShellContext context = CURRENT.get();
+        return context != null ? context : SHELL;
+    }
+
+    // Contexto de la propia shell (el de la línea de comandos).
+    static ShellContext shell() {
+        return SHELL;
+    }
+
+    // Entorno con el que se arrancó la JVM.
+    public static Map<String, String> processEnvironment() {
+        return PROCESS_ENVIRONMENT;
+    }
+
+    // Ejecuta el cuerpo con este contexto asociado al hilo actual.
+    public int run(IntSupplier body) {
+        ShellContext previous = CURRENT.get();
+        if (!inheritsIO) {
+            Relay.installRouting();
+        }
+        CURRENT.set(this);
+        try {
+            return body.getAsInt();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    public String cwd() {
+        return cwd;
+    }
+
+    public void setCwd(String dir) {
+        cwd = dir;
+    }
+
+    // Resuelve una ruta relativa respecto al directorio actual.
+    public File resolve(String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(cwd, path);
+    }
+
+    public Environment environment() {
+        return environment;
+    }
+
+    public String getenv(String name) {
+        return environment.get(name);
+    }
+
+    // Cambia (o quita, con value null) una variable del entorno de los comandos.
+    public synchronized void setenv(String name, String value) {
+        environment = environment.with(name, value);
+    }
+
+    // Valor de una variable para la expansión de $VAR: primero las de la shell y después el entorno.
+    public String variable(String name) {
+        String value = variables.get(name);
+        return value != null ? value : environment.get(name);
+    }
+
+    // VAR=valor: si la variable ya está exportada cambia en el entorno; si no, queda solo en la shell.
+    public synchronized void assign(String name, String value) {
+        if (environment.get(name) != null) {
+            environment = environment.with(name, value);
+        } else {
+            variables = with(variables, name, value);
+        }
+    }
+
+    // export VAR[=valor]: pasa la variable al entorno de los comandos. Sin valor exporta la de la shell.
+    public synchronized void export(String name, String value) {
+        if (value == null) {
+            value = variables.get(name);
+            if (value == null) {
+                return;
+            }
+        }
+        variables = with(variables, name, null);
+        environment = environment.with(name, value);
+    }
+
+    // unset VAR: quita la variable de la shell y del entorno.
+    public synchronized void unset(String name) {
+        variables = with(variables, name, null);
+        environment = environment.with(name, null);
+    }
+
+    // Variables de la shell que no están en el entorno.
+    public Map<String, String> variables() {
+        return variables;
+    }
+
+    private static Map<String, String> with(Map<String, String> map, String name, String value) {
+        if (value == null && !map.containsKey(name)) {
+            return map;
+        }
+        Map<String, String> copy = new HashMap<>(map);
+        if (value == null) {
+            copy.remove(name);
+        } else {
+            copy.put(name, value);
+        }
+        return Map.copyOf(copy);
+    }
+
+    public int lastStatus() {
+        return lastStatus;
+    }
+
+    public void setLastStatus(int status) {
+        lastStatus = status;
+    }
+
+    // set -e: terminar en cuanto un comando devuelva un código distinto de 0.
+    public boolean isExitOnError() {
+        return exitOnError;
+    }
+
+    public void setExitOnError(boolean exitOnError) {
+        this.exitOnError = exitOnError;
+    }
+
+    public Duration defaultTimeout() {
+        return defaultTimeout;
+    }
+
+    public void setDefaultTimeout(Duration timeout) {
+        defaultTimeout = timeout;
+    }
+
+    public JobOutput.Mode jobCapture() {
+        return jobCapture;
+    }
+
+    public void setJobCapture(JobOutput.Mode mode) {
+        jobCapture = mode;
+    }
+
+    public JobTable jobs() {
+        return jobs;
+    }
+
+    public InputStream stdin() {
+        return in;
+    }
+
+    public PrintStream stdout() {
+        return out;
+    }
+
+    public PrintStream stderr() {
+        return err;
+    }
+
+    boolean inheritsIO() {
+        return inheritsIO;
+    }
+}
@@ -0,0 +1,78 @@
+package shell;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Búfer de salida que guarda los datos en memoria hasta un límite y, a partir de ahí, los pasa a
+// un fichero temporal. Se usa para capturar la salida de las sustituciones de comandos y de los
+// trabajos de parallel sin que una salida enorme llene el heap. El fichero temporal se borra al
+// cerrar el búfer.
+public final class SpillBuffer extends OutputStream {
+
+    // Bytes que se guardan en memoria antes de pasar a disco.
+    static final int MEMORY_LIMIT = 1024 * 1024;
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+    private final int memoryLimit;
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private Path file;
+    private OutputStream fileOut;
+
+    public SpillBuffer() {
+        this(MEMORY_LIMIT);
+    }
+
+    // Con un límite propio, para quien tiene muchos búferes a la vez.
+    public SpillBuffer(int memoryLimit) {
+        this.memoryLimit = memoryLimit;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if (fileOut == null && memory.size() + len > memoryLimit) {
+            spill();
+        }
+        if (fileOut != null) {
+            fileOut.write(b, off, len);
+        } else {
+            memory.write(b, off, len);
+        }
+    }
+
+    // Pasa lo que hay en memoria al fichero temporal y sigue escribiendo allí.
+    private void spill() throws IOException {
+        file = Files.createTempFile("minishell-subst", ".out");
+        fileOut = new BufferedOutputStream(Files.newOutputStream(file), FILE_BUFFER_SIZE);
+        memory.writeTo(fileOut);
+        memory = null;
+    }
+
+    // Flujo para leer todo lo escrito, desde memoria o desde el fichero temporal.
+    public synchronized InputStream read() throws IOException {
+        if (fileOut == null) {
+            return new ByteArrayInputStream(memory.toByteArray());
+        }
+        fileOut.flush();
+        return Files.newInputStream(file);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (fileOut != null) {
+            fileOut.close();
+            Files.deleteIfExists(file);
+            fileOut = null;
+        }
+    }
+}
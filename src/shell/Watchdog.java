@@ -0,0 +1,444 @@
+package shell;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Plazos de ejecución de los comandos ("timeout DURACIÓN comando" y el plazo por defecto de
+// "set -t"). Un solo hilo programado vigila todos los plazos, sin crear un hilo por comando.
+// Cuando un plazo vence se envía SIGTERM a los procesos lanzados dentro de él y a todos sus
+// descendientes (ProcessHandle.descendants), y si alguno sigue vivo pasado el margen, SIGKILL.
+// Los procesos se apuntan solos: Relay registra cada proceso que lanza en el plazo del hilo.
+// Un builtin no tiene proceso al que enviar señales: ejecuta con sus flujos envueltos (guard) y al
+// vencer el plazo se cortan, de modo que su siguiente lectura o escritura falla aunque esté
+// bloqueado esperando datos.
+public final class Watchdog {
+
+    // Códigos de salida de un comando que ha agotado su plazo (como timeout de coreutils).
+    public static final int STATUS_TIMEOUT = 124;
+    public static final int STATUS_KILLED = 137;
+
+    // Margen por defecto entre SIGTERM y SIGKILL.
+    public static final Duration DEFAULT_KILL_AFTER = Duration.ofSeconds(2);
+
+    // Cada cuánto mira si ha vencido el plazo un builtin que espera datos del terminal de la shell.
+    private static final long INPUT_POLL_MILLIS = 50;
+
+    private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "minishell-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Plazo activo en el hilo que ejecuta el comando; lo heredan los hilos que lance (etapas builtin).
+    private static final InheritableThreadLocal<Deadline> CURRENT = new InheritableThreadLocal<>();
+
+    static {
+        // Los plazos cancelados se quitan de la cola en lugar de esperar a su vencimiento.
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private Watchdog() {
+    }
+
+    // Abre un plazo para lo que se ejecute en este hilo hasta cerrarlo con Deadline.close().
+    public static Deadline start(Duration timeout, Duration killAfter) {
+        Deadline deadline = new Deadline(killAfter, Thread.currentThread(), CURRENT.get());
+        deadline.term = TIMER.schedule(deadline::expire, timeout.toNanos(), TimeUnit.NANOSECONDS);
+        CURRENT.set(deadline);
+        return deadline;
+    }
+
+    // Indica si el hilo está ejecutando dentro de un plazo.
+    public static boolean active() {
+        return CURRENT.get() != null;
+    }
+
+    // Apunta un proceso recién lanzado en el plazo activo del hilo, si lo hay.
+    public static void track(Process process) {
+        Deadline deadline = CURRENT.get();
+        if (deadline != null) {
+            deadline.add(process);
+        }
+    }
+
+    // Indica si ha vencido el plazo activo del hilo.
+    public static boolean expired() {
+        Deadline deadline = CURRENT.get();
+        return deadline != null && deadline.expired();
+    }
+
+    // Abre la vigilancia de los flujos del builtin que se ejecuta en este hilo. Sin plazo activo
+    // los flujos se usan tal cual.
+    public static Guard guard() {
+        Guard guard = new Guard(CURRENT.get(), Thread.currentThread());
+        if (guard.deadline != null) {
+            guard.deadline.add(guard);
+        }
+        return guard;
+    }
+
+    // Convierte una duración como la de timeout de coreutils: un número (con decimales) seguido
+    // opcionalmente de s, m, h o d. Devuelve null si no es válida.
+    public static Duration parse(String text) {
+        if (text.isEmpty()) {
+            return null;
+        }
+        long unit = switch (text.charAt(text.length() - 1)) {
+            case 's' -> 1_000_000_000L;
+            case 'm' -> 60_000_000_000L;
+            case 'h' -> 3_600_000_000_000L;
+            case 'd' -> 86_400_000_000_000L;
+            default -> 0;
+        };
+        String number = unit == 0 ? text : text.substring(0, text.length() - 1);
+        try {
+            double value = Double.parseDouble(number);
+            if (!(value >= 0) || Double.isInfinite(value) || !number.matches("[0-9.]+")) {
+                return null;
+            }
+            return Duration.ofNanos((long) Math.min(value * (unit == 0 ? 1_000_000_000L : unit), Long.MAX_VALUE));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Plazo de un comando: sus procesos y en qué punto de la escalada está.
+    public static final class Deadline implements AutoCloseable {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Duration killAfter;
+        private final Thread owner;
+        private final Deadline outer;
+        private final List<Process> processes = new ArrayList<>();
+        // Builtins en ejecución dentro del plazo.
+        private final List<Guard> guards = new ArrayList<>();
+        // Procesos a los que se envió SIGTERM con todos sus descendientes de ese momento.
+        private final LinkedHashSet<ProcessHandle> signalled = new LinkedHashSet<>();
+        private ScheduledFuture<?> term;
+        private boolean expired;
+        private boolean killed;
+        private boolean closed;
+
+        private Deadline(Duration killAfter, Thread owner, Deadline outer) {
+            this.killAfter = killAfter;
+            this.owner = owner;
+            this.outer = outer;
+        }
+
+        private void add(Process process) {
+            lock.lock();
+            try {
+                processes.add(process);
+                if (expired) {
+                    // Lanzado justo después de vencer: se termina igual.
+                    terminate(process.toHandle());
+                }
+            } finally {
+                lock.unlock();
+            }
+            // Un proceso que ya ha terminado no se vuelve a mirar (ni se retiene en memoria).
+            process.onExit().thenRun(() -> remove(process));
+            if (outer != null) {
+                outer.add(process);
+            }
+        }
+
+        private void remove(Process process) {
+            lock.lock();
+            try {
+                processes.remove(process);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void add(Guard guard) {
+            lock.lock();
+            try {
+                guards.add(guard);
+                if (expired) {
+                    guard.cut();
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (outer != null) {
+                outer.add(guard);
+            }
+        }
+
+        private void remove(Guard guard) {
+            lock.lock();
+            try {
+                guards.remove(guard);
+            } finally {
+                lock.unlock();
+            }
+            if (outer != null) {
+                outer.remove(guard);
+            }
+        }
+
+        // SIGTERM a todo el árbol de procesos y SIGKILL programado para los que sobrevivan.
+        private void expire() {
+            lock.lock();
+            try {
+                if (closed && processes.isEmpty() && guards.isEmpty()) {
+                    return;
+                }
+                expired = true;
+                for (Process process : processes) {
+                    terminate(process.toHandle());
+                }
+                for (Guard guard : guards) {
+                    guard.cut();
+                }
+                // Un comando sin procesos ni builtins vigilados solo se puede interrumpir.
+                if (processes.isEmpty() && guards.isEmpty() && !closed) {
+                    owner.interrupt();
+                }
+                TIMER.schedule(this::kill, killAfter.toNanos(), TimeUnit.NANOSECONDS);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Los descendientes se recogen antes de terminar al padre: después quedarían huérfanos
+        // y ya no se podrían encontrar.
+        private void terminate(ProcessHandle handle) {
+            if (!handle.isAlive()) {
+                return;
+            }
+            List<ProcessHandle> tree = new ArrayList<>(handle.descendants().toList());
+            tree.addFirst(handle);
+            signalled.addAll(tree);
+            for (ProcessHandle process : tree) {
+                process.destroy();
+            }
+        }
+
+        private void kill() {
+            lock.lock();
+            try {
+                for (ProcessHandle handle : List.copyOf(signalled)) {
+                    if (handle.isAlive()) {
+                        killed = true;
+                        // Los que hayan creado procesos nuevos mientras tanto también caen.
+                        handle.descendants().forEach(ProcessHandle::destroyForcibly);
+                        handle.destroyForcibly();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Indica si el plazo venció antes de que terminara el comando.
+        public boolean expired() {
+            lock.lock();
+            try {
+                return expired;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Código de salida del comando: el suyo, o 124 (137 si hizo falta SIGKILL) si agotó el plazo.
+        public int status(int status) {
+            lock.lock();
+            try {
+                return killed ? STATUS_KILLED : expired ? STATUS_TIMEOUT : status;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Cierra el plazo en este hilo. Si no quedan procesos vivos (el comando ha terminado) se
+        // cancela; si el comando sigue en background, el plazo continúa vigilándolo.
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                closed = true;
+                processes.removeIf(process -> !process.isAlive());
+                if (processes.isEmpty() && guards.isEmpty() && !expired) {
+                    term.cancel(false);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (CURRENT.get() == this) {
+                if (outer != null) {
+                    CURRENT.set(outer);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+            // Una interrupción pendiente del plazo no debe afectar al comando siguiente.
+            if (expired() && Thread.currentThread() == owner) {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    // Flujos de un builtin vigilados por un plazo. Al vencer, los flujos envueltos fallan con
+    // "plazo agotado", los ficheros y tuberías propios del builtin se cierran y se interrumpe su
+    // hilo, así que una lectura bloqueada termina aunque el builtin no compruebe nada. Los flujos
+    // de la shell no se cierran nunca: el terminal se consulta a intervalos mientras no hay nada que
+    // leer y la entrada de una sesión del demonio atiende a la interrupción.
+    public static final class Guard implements AutoCloseable {
+        private final Deadline deadline;
+        private final Thread thread;
+        private final List<AutoCloseable> owned = new ArrayList<>();
+        private volatile boolean cut;
+
+        private Guard(Deadline deadline, Thread thread) {
+            this.deadline = deadline;
+            this.thread = thread;
+        }
+
+        // Entrada del builtin; 'ours' indica si es suya (fichero o tubería) y se puede cerrar.
+        public InputStream input(InputStream in, boolean ours) {
+            if (deadline == null) {
+                return in;
+            }
+            if (ours) {
+                own(in);
+            }
+            boolean terminal = !ours && in == System.in && System.console() != null;
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    byte[] one = new byte[1];
+                    return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    // La lectura del terminal no se puede interrumpir: se espera a que haya datos.
+                    while (terminal && len > 0 && in.available() == 0) {
+                        check();
+                        pause();
+                    }
+                    check();
+                    try {
+                        return in.read(b, off, len);
+                    } catch (IOException e) {
+                        check();
+                        throw e;
+                    }
+                }
+
+                // Sin esto, close() cerraría también la entrada de la shell.
+                @Override
+                public void close() throws IOException {
+                    if (ours) {
+                        in.close();
+                    }
+                }
+            };
+        }
+
+        // Salida del builtin; 'ours' como en input.
+        public OutputStream output(OutputStream out, boolean ours) {
+            if (deadline == null) {
+                return out;
+            }
+            if (ours) {
+                own(out);
+            }
+            return new FilterOutputStream(out) {
+                @Override
+                public void write(int b) throws IOException {
+                    check();
+                    out.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    check();
+                    try {
+                        out.write(b, off, len);
+                    } catch (IOException e) {
+                        check();
+                        throw e;
+                    }
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    check();
+                    out.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (ours) {
+                        out.close();
+                    } else if (!cut) {
+                        out.flush();
+                    }
+                }
+            };
+        }
+
+        private void own(AutoCloseable stream) {
+            synchronized (owned) {
+                owned.add(stream);
+            }
+        }
+
+        // Lo llama el plazo al vencer.
+        private void cut() {
+            cut = true;
+            synchronized (owned) {
+                for (AutoCloseable stream : owned) {
+                    try {
+                        stream.close();
+                    } catch (Exception ignored) {
+                        // Ya estaba cerrado.
+                    }
+                }
+            }
+            thread.interrupt();
+        }
+
+        private void check() throws InterruptedIOException {
+            if (cut) {
+                throw new InterruptedIOException("plazo agotado");
+            }
+        }
+
+        private void pause() throws InterruptedIOException {
+            try {
+                Thread.sleep(INPUT_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                check();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        // El builtin ha terminado: deja de vigilarse. Una interrupción pendiente del corte no debe
+        // afectar a lo que ejecute después este hilo.
+        @Override
+        public void close() {
+            if (deadline != null) {
+                deadline.remove(this);
+                if (cut) {
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+}
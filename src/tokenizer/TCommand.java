@@ -1,10 +1,18 @@
 package tokenizer;
 import java.util.List;
+import java.util.Map;
 
 public class TCommand {
     String filename;    // El nombre del archivo ejecutable o comando
     int argc; // Número de argumentos
     List<String> argv;  // Lista de argumentos
+    Map<Integer, String> patterns; // Patrones glob de los argumentos con comodines sin comillas (null si no hay)
+    Map<Integer, String> sources;  // Texto original de los argumentos que hay que expandir, como $(...) (null si no hay)
+    int assignments;    // Número de palabras VAR=valor al principio de argv (variables solo para este comando)
+    Map<String, String> variables; // Variables VAR=valor ya expandidas, que se añaden al entorno del comando
+    boolean mergeError; // 2>&1 o |&: los errores del comando van a donde va su salida
+    String executable;  // Ruta del ejecutable resuelta al compilar el plan (null si no se resolvió)
+    int generation;     // Generación de la caché de comandos en la que se resolvió 'executable'
 
     public List<String> getArgv() {
         return argv;
@@ -22,6 +30,59 @@ public class TCommand {
         this.argc = argc;
     }
 
+    public Map<Integer, String> getPatterns() {
+        return patterns;
+    }
+
+    public void setPatterns(Map<Integer, String> patterns) {
+        this.patterns = patterns;
+    }
+
+    public Map<Integer, String> getSources() {
+        return sources;
+    }
+
+    public void setSources(Map<Integer, String> sources) {
+        this.sources = sources;
+    }
+
+    public int getAssignments() {
+        return assignments;
+    }
+
+    public void setAssignments(int assignments) {
+        this.assignments = assignments;
+    }
+
+    public Map<String, String> getVariables() {
+        return variables;
+    }
+
+    public void setVariables(Map<String, String> variables) {
+        this.variables = variables;
+    }
+
+    public boolean isMergeError() {
+        return mergeError;
+    }
+
+    public void setMergeError(boolean mergeError) {
+        this.mergeError = mergeError;
+    }
+
+    public String getExecutable() {
+        return executable;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public void setExecutable(String executable, int generation) {
+        this.executable = executable;
+        this.generation = generation;
+    }
+
     public String getFilename() {
         return filename;
     }
@@ -36,6 +97,19 @@ public class TCommand {
         this.argc = argv.size();
     }
 
+    // Copia para ejecutar el comando sin modificar el original (la expansión cambia argv).
+    public TCommand copy() {
+        TCommand copy = new TCommand(filename, argv);
+        copy.patterns = patterns;
+        copy.sources = sources;
+        copy.assignments = assignments;
+        copy.variables = variables;
+        copy.mergeError = mergeError;
+        copy.executable = executable;
+        copy.generation = generation;
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "Command: " + filename + ", Args: " + argv;
@@ -2,6 +2,7 @@ package tokenizer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 // Clase para representar una línea de comandos completa (tline)
 public class TLine {
@@ -70,6 +71,26 @@ public class TLine {
     boolean background;              // Indica si el proceso debe ejecutarse en segundo plano
     boolean appendOutput;            // Indica si la redirección de salida es en modo append
     boolean appendError;            // Indica si la redirección de salida es en modo append
+    String hereDelimiter;            // Delimitador del here-document (<<), cuyo cuerpo va en las líneas siguientes
+    boolean hereStripTabs;           // Con <<- se quitan los tabuladores al principio de cada línea del cuerpo
+    String hereInput;                // Texto que recibe la entrada estándar (cuerpo de << o palabra de <<<)
+    Map<String, String> targetSources; // Texto original de los destinos que hay que expandir ($VAR, $(...)), por operador (<, >, 2>, <<<)
+
+    public String getHereDelimiter() { return hereDelimiter; }
+
+    public void setHereDelimiter(String hereDelimiter) { this.hereDelimiter = hereDelimiter; }
+
+    public boolean isHereStripTabs() { return hereStripTabs; }
+
+    public void setHereStripTabs(boolean hereStripTabs) { this.hereStripTabs = hereStripTabs; }
+
+    public String getHereInput() { return hereInput; }
+
+    public void setHereInput(String hereInput) { this.hereInput = hereInput; }
+
+    public Map<String, String> getTargetSources() { return targetSources; }
+
+    public void setTargetSources(Map<String, String> targetSources) { this.targetSources = targetSources; }
 
     public TLine() {
         this.commands = new ArrayList<>();
@@ -86,6 +107,26 @@ public class TLine {
         ncommands = commands.size();
     }
 
+    // Copia para ejecutar la línea sin modificar la original: los planes compilados se reutilizan
+    // y la expansión de argumentos cambia los comandos.
+    public TLine copy() {
+        TLine copy = new TLine();
+        for (TCommand command : commands) {
+            copy.addCommand(command.copy());
+        }
+        copy.redirectInput = redirectInput;
+        copy.redirectOutput = redirectOutput;
+        copy.redirectError = redirectError;
+        copy.background = background;
+        copy.appendOutput = appendOutput;
+        copy.appendError = appendError;
+        copy.hereDelimiter = hereDelimiter;
+        copy.hereStripTabs = hereStripTabs;
+        copy.hereInput = hereInput;
+        copy.targetSources = targetSources;
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "TLine{" +
@@ -97,6 +138,7 @@ public class TLine {
                 ", background=" + background +
                 ", appendOutput=" + appendOutput +
                 ", appendError=" + appendError +
+                ", hereDelimiter='" + hereDelimiter + '\'' +
                 '}';
     }
 }
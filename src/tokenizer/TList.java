@@ -0,0 +1,60 @@
+package tokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Clase para representar una lista de comandos: tuberías (TLine) o grupos entre paréntesis
+// separados por ';', '&&', '||' o '&'. Es la raíz del árbol que produce el tokenizer.
+public class TList {
+
+    // Operador que une un elemento con el anterior.
+    public enum Operator {
+        SEQUENCE,   // ';', '&' o principio de la lista: se ejecuta siempre
+        AND,        // '&&': solo si el anterior termina con 0
+        OR          // '||': solo si el anterior termina con un código distinto de 0
+    }
+
+    // Elemento de la lista: una tubería o un grupo ( ... ), nunca los dos.
+    public record Item(Operator operator, TLine line, TList group) {
+    }
+
+    List<Item> items;                // Elementos en orden
+
+    public TList() {
+        this.items = new ArrayList<>();
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void add(Operator operator, TLine line) {
+        items.add(new Item(operator, line, null));
+    }
+
+    public void addGroup(Operator operator, TList group) {
+        items.add(new Item(operator, null, group));
+    }
+
+    // Todas las tuberías de la lista, incluidas las de los grupos, en el orden en que aparecen.
+    public List<TLine> lines() {
+        List<TLine> lines = new ArrayList<>();
+        collect(lines);
+        return lines;
+    }
+
+    private void collect(List<TLine> lines) {
+        for (Item item : items) {
+            if (item.line() != null) {
+                lines.add(item.line());
+            } else {
+                item.group().collect(lines);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TList{" + "items=" + items + '}';
+    }
+}
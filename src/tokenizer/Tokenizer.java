@@ -1,17 +1,46 @@
 package tokenizer;
 
 import exceptions.MissingFileException;
+import exceptions.SyntaxException;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
+// Analizador léxico y sintáctico de una línea de comandos.
+// La línea es una lista (TList) de tuberías (TLine) y grupos entre paréntesis unidos por ';', '&&',
+// '||' o '&'. Recorre la entrada carácter a carácter una sola vez y construye el árbol directamente:
+// las comillas y los escapes se resuelven al vuelo y solo se crean los Strings finales de argv.
+// Si una palabra tiene comodines (*, ? o [) fuera de comillas se guarda además su patrón glob, con
+// las partes entre comillas o escapadas protegidas con '\', para que la shell la expanda después.
+// Las palabras con sustitución de comandos ($(...) o `...`) o variables ($VAR, ${VAR}, $?, $$) se
+// guardan con su texto original, que la shell vuelve a interpretar al expandirlas (después de
+// ejecutar las sustituciones). Las palabras VAR=valor al principio de un comando se cuentan aparte.
 public final class Tokenizer {
 
-    public static TLine tokenize(String input) throws MissingFileException {
-        TLine tline = new TLine();
+    private final String input;     // Línea de entrada
+    private final int length;       // Longitud de la línea
+    private int pos;                // Posición actual dentro de la línea
+    private final StringBuilder word = new StringBuilder(); // Buffer reutilizado para cada palabra
+    private final StringBuilder pattern = new StringBuilder(); // Patrón glob de la palabra actual
+    private boolean glob;           // La palabra actual tiene comodines sin comillas
+    private boolean expandable;     // La palabra actual tiene sustituciones de comandos o variables
+    private int wordStart;          // Posición donde empieza la palabra actual
+    private Map<Integer, String> patterns; // Patrones de los argumentos del comando actual
+    private Map<Integer, String> sources;  // Texto original de los argumentos con sustituciones
+    private int assignments;        // Palabras VAR=valor al principio del comando actual
+    private boolean mergeError;     // El comando actual lleva 2>&1, &> o |&
+
+    private Tokenizer(String input) {
+        this.input = input;
+        this.length = input.length();
+        this.pos = 0;
+    }
 
+    // Analiza la línea completa: una lista de tuberías y grupos ( ... ) separados por ';', '&&',
+    // '||' o '&'. Devuelve null si la línea está vacía.
+    public static TList parse(String input) throws MissingFileException, SyntaxException {
         // Eliminar espacios al principio y al final de la línea de entrada
         input = input.trim();
 
@@ -20,98 +49,523 @@ public final class Tokenizer {
             return null; // Si la línea está vacía, no hay nada que tokenizar
         }
 
-        // Dividir la línea de comando en partes con posibles tuberías
-        String[] pipelineCommands = input.split("\\|");
+        return new Tokenizer(input).parseList(false);
+    }
+
+    // Analiza una línea que contiene una sola tubería (sin ';', '&&', '||' ni grupos).
+    public static TLine tokenize(String input) throws MissingFileException, SyntaxException {
+        TList list = parse(input);
+        if (list == null || list.getItems().isEmpty()) {
+            return null;
+        }
+        if (list.getItems().size() > 1 || list.getItems().getFirst().line() == null) {
+            throw new SyntaxException("Expected a single pipeline");
+        }
+        return list.getItems().getFirst().line();
+    }
 
-        for (String commandSegment : pipelineCommands) {
-            // Limpiar cada segmento de la tubería y comprobar si no está vacío
-            commandSegment = commandSegment.trim();
-            if (commandSegment.isEmpty()) {
-                continue;  // Si el segmento está vacío, lo saltamos
+    // Recorre una lista hasta el final de la línea o, dentro de un grupo, hasta el ')' que lo cierra.
+    private TList parseList(boolean nested) throws MissingFileException, SyntaxException {
+        TList list = new TList();
+        TList.Operator operator = TList.Operator.SEQUENCE;
+        String pending = null;  // Operador que necesita un comando detrás ("&&" o "||")
+
+        while (true) {
+            skipBlanks();
+            if (pos >= length || peek(0) == ')') {
+                break;
+            }
+            char c = peek(0);
+            if (c == '#') {  // Comentario: se ignora el resto de la línea (scripts)
+                pos = length;
+                break;
+            }
+            if (c == ';' || c == '&' || c == '|') {
+                throw new SyntaxException("Missing command before " + separator());
             }
 
-            // Expresión regular mejorada para capturar las redirecciones, tuberías y argumentos
-            Pattern pattern = Pattern.compile("([\"'].*?[\"']|2>>?|[<>|&]{1,2}|[^\\s\"'<>|&]+)");
-            Matcher matcher = pattern.matcher(commandSegment);
+            if (c == '(') {  // Grupo: una lista completa entre paréntesis
+                pos++;
+                TList group = parseList(true);
+                if (peek(0) != ')') {
+                    throw new SyntaxException("Unterminated group (");
+                }
+                pos++;
+                if (group.getItems().isEmpty()) {
+                    throw new SyntaxException("Empty group ()");
+                }
+                list.addGroup(operator, group);
+                skipBlanks();
+                if (pos < length && !endsItem()) {
+                    throw new SyntaxException("Pipes, redirections and & are not supported after a group");
+                }
+            } else {
+                TLine line = parsePipeline();
+                list.add(operator, line);
+                if (line.background) {
+                    // El '&' de background ya separa la tubería de la siguiente.
+                    operator = TList.Operator.SEQUENCE;
+                    pending = null;
+                    continue;
+                }
+            }
+            pending = null;
 
-            // Lista de tokens obtenidos de la entrada
-            List<String> tokens = new ArrayList<>();
-            while (matcher.find()) {
-                tokens.add(matcher.group());
+            // Separador con el elemento siguiente.
+            skipBlanks();
+            if (pos >= length || peek(0) == ')' || peek(0) == '#') {
+                continue;
+            }
+            pending = separator();
+            pos += pending.length();
+            operator = switch (pending) {
+                case "&&" -> TList.Operator.AND;
+                case "||" -> TList.Operator.OR;
+                default -> TList.Operator.SEQUENCE;
+            };
+            if (pending.equals(";") || pending.equals("&")) {
+                pending = null;
             }
+        }
+
+        if (pending != null) {
+            throw new SyntaxException("Missing command after " + pending);
+        }
+        if (pos < length && !nested) {
+            throw new SyntaxException("Unexpected token )");
+        }
+        return list;
+    }
 
-            List<String> argv = new ArrayList<>();
-            String filename = null;
+    // Separador en la posición actual: ";", "&", "&&" o "||" (un '|' suelto aquí es un error).
+    private String separator() throws SyntaxException {
+        char c = peek(0);
+        if (c == ';') {
+            return ";";
+        }
+        if (c == '&') {
+            return peek(1) == '&' ? "&&" : "&";
+        }
+        if (c == '|' && peek(1) == '|') {
+            return "||";
+        }
+        throw new SyntaxException("Unexpected token " + c);
+    }
 
-            for (int i = 0; i < tokens.size(); i++) {
-                String token = tokens.get(i);
+    // Indica si en la posición actual termina un elemento de la lista.
+    private boolean endsItem() {
+        char c = peek(0);
+        return c == ';' || c == ')' || c == '#' || (c == '&' && peek(1) == '&') || (c == '|' && peek(1) == '|');
+    }
 
-                switch (token) {
-                    case "<<":  // Redirección de entrada especial (heredoc)
-                        if (i + 1 < tokens.size()) {
-                            tline.redirectInput = tokens.get(++i);
-                        } else {
-                            throw new MissingFileException("Missing file for input redirection <<");
-                        }
-                        break;
-                    case "<":  // Redirección de entrada simple
-                        if (i + 1 < tokens.size()) {
-                            tline.redirectInput = tokens.get(++i);
-                        } else {
-                            throw new MissingFileException("Missing file for input redirection <");
-                        }
-                        break;
-                    case ">>":  // Redirección de salida en modo append
-                        if (i + 1 < tokens.size()) {
-                            tline.redirectOutput = tokens.get(++i);  // El siguiente token es el archivo de salida
-                            tline.setAppendOutput(true);
-                        } else {
-                            throw new MissingFileException("Missing file for output redirection >>");
+    // Recorre una tubería separando comandos por '|' y aplicando las redirecciones, hasta el final
+    // de la línea o hasta el separador que la termina (';', '&&', '||', ')' o el '&' de background).
+    private TLine parsePipeline() throws MissingFileException, SyntaxException {
+        TLine tline = new TLine();
+        List<String> argv = new ArrayList<>();
+        patterns = null;
+        sources = null;
+        assignments = 0;
+        mergeError = false;
+
+        while (!tline.background) {
+            skipBlanks();
+            if (pos >= length || endsItem()) {
+                break;
+            }
+
+            char c = input.charAt(pos);
+            switch (c) {
+                case '(' -> throw new SyntaxException("Unexpected token (");
+                case '|' -> {  // Fin del comando actual dentro de la tubería
+                    pos++;
+                    if (peek(0) == '&') {  // |&: los errores también pasan al comando siguiente
+                        pos++;
+                        mergeError = true;
+                    }
+                    addCommand(tline, argv, patterns, sources, assignments, mergeError);
+                    argv = new ArrayList<>();
+                    patterns = null;
+                    sources = null;
+                    assignments = 0;
+                    mergeError = false;
+                }
+                case '&' -> {
+                    if (peek(1) == '>') {  // &> y &>>: salida y errores al mismo fichero
+                        boolean append = peek(2) == '>';
+                        pos += append ? 3 : 2;
+                        tline.redirectOutput = target(tline, ">", "Missing file for output redirection " + (append ? "&>>" : "&>"));
+                        tline.setAppendOutput(append);
+                        tline.redirectError = null;
+                        mergeError = true;
+                    } else {  // Proceso en segundo plano (background): termina la tubería
+                        pos++;
+                        tline.background = true;
+                    }
+                }
+                case '<' -> {
+                    if (peek(1) == '<' && peek(2) == '<') {  // Here-string: la palabra es la entrada
+                        pos += 3;
+                        tline.hereInput = target(tline, "<<<", "Missing word for here-string <<<") + "\n";
+                        tline.redirectInput = null;
+                    } else if (peek(1) == '<') {  // Here-document: el cuerpo son las líneas siguientes
+                        pos += 2;
+                        tline.hereStripTabs = peek(0) == '-';
+                        if (tline.hereStripTabs) {
+                            pos++;
                         }
-                        break;
-                    case ">":  // Redirección de salida simple
-                        if (i + 1 < tokens.size()) {
-                            tline.redirectOutput = tokens.get(++i);  // El siguiente token es el archivo de salida
-                            tline.setAppendOutput(false);
-                        } else {
-                            throw new MissingFileException("Missing file for output redirection >");
+                        tline.hereDelimiter = target(tline, null, "Missing delimiter for here-document <<");
+                        tline.hereInput = null;
+                        tline.redirectInput = null;
+                    } else {  // Redirección de entrada simple
+                        pos++;
+                        tline.redirectInput = target(tline, "<", "Missing file for input redirection <");
+                        tline.hereDelimiter = null;
+                        tline.hereInput = null;
+                    }
+                }
+                case '>' -> {
+                    // Tras 2>&1 los errores siguen en la salida anterior, no en el fichero nuevo.
+                    mergeError = false;
+                    if (peek(1) == '>') {  // Redirección de salida en modo append
+                        pos += 2;
+                        tline.redirectOutput = target(tline, ">", "Missing file for output redirection >>");
+                        tline.setAppendOutput(true);
+                    } else {  // Redirección de salida simple
+                        pos++;
+                        tline.redirectOutput = target(tline, ">", "Missing file for output redirection >");
+                        tline.setAppendOutput(false);
+                    }
+                }
+                default -> {
+                    // "2>" solo es una redirección de errores al principio de una palabra.
+                    if (c == '2' && peek(1) == '>' && peek(2) == '&' && peek(3) == '1'
+                            && (pos + 4 >= length || isBlank(peek(4)) || isOperator(peek(4)))) {
+                        // 2>&1: los errores van a donde va la salida en este momento.
+                        pos += 4;
+                        tline.redirectError = null;
+                        mergeError = true;
+                    } else if (c == '2' && peek(1) == '>') {
+                        mergeError = false;
+                        if (peek(2) == '>') {  // Redirección de errores en modo append
+                            pos += 3;
+                            tline.redirectError = target(tline, "2>", "Missing file for error redirection 2>>");
+                            tline.setAppendError(true);
+                        } else {  // Redirección de errores simple
+                            pos += 2;
+                            tline.redirectError = target(tline, "2>", "Missing file for error redirection 2>");
+                            tline.setAppendError(false);
                         }
-                        break;
-                    case "2>>":  // Redirección de errores en modo append
-                        if (i + 1 < tokens.size()) {
-                            tline.redirectError = tokens.get(++i);
-                            tline.setAppendError(true);  // Indicar que es append
-                        } else {
-                            throw new MissingFileException("Missing file for error redirection 2>>");
+                    } else {
+                        // VAR=valor solo es una asignación antes del nombre del comando.
+                        if (argv.size() == assignments && isAssignment()) {
+                            assignments++;
                         }
-                        break;
-                    case "2>":  // Redirección de errores simple
-                        if (i + 1 < tokens.size()) {
-                            tline.redirectError = tokens.get(++i);
-                            tline.setAppendError(false);  // Indicar que no es append
-                        } else {
-                            throw new MissingFileException("Missing file for error redirection 2>");
+                        argv.add(readWord());  // Agregar el token a los argumentos
+                        if (expandable) {
+                            // Los comodines de estas palabras se tratan al expandirlas.
+                            if (sources == null) {
+                                sources = new HashMap<>();
+                            }
+                            sources.put(argv.size() - 1, input.substring(wordStart, pos));
+                        } else if (glob) {
+                            if (patterns == null) {
+                                patterns = new HashMap<>();
+                            }
+                            patterns.put(argv.size() - 1, pattern.toString());
                         }
-                        break;
-                    case "&":  // Proceso en segundo plano (background)
-                        tline.background = true;
-                        break;
-                    default:
-                        if (filename == null) {
-                            filename = token;  // El primer token es el nombre del comando
+                    }
+                }
+            }
+        }
+
+        addCommand(tline, argv, patterns, sources, assignments, mergeError);
+        return tline;
+    }
+
+    // Crea un comando con los argumentos leídos y lo agrega a la línea. Se evitan comandos vacíos.
+    private static void addCommand(TLine tline, List<String> argv, Map<Integer, String> patterns,
+                                   Map<Integer, String> sources, int assignments, boolean mergeError) {
+        if (!argv.isEmpty()) {
+            // El primer token es el nombre del comando
+            TCommand command = new TCommand(argv.getFirst(), argv);
+            command.setPatterns(patterns);
+            command.setSources(sources);
+            command.setAssignments(assignments);
+            command.setMergeError(mergeError);
+            tline.addCommand(command);
+        }
+    }
+
+    // Indica si la palabra que empieza en la posición actual es VAR=valor (con el nombre sin comillas).
+    private boolean isAssignment() {
+        int i = pos;
+        if (i >= length || !isNameStart(input.charAt(i))) {
+            return false;
+        }
+        while (i < length && isNamePart(input.charAt(i))) {
+            i++;
+        }
+        return i < length && input.charAt(i) == '=';
+    }
+
+    // Lee el fichero destino de una redirección. Si no hay ninguna palabra, lanza la excepción.
+    // Si tiene variables o sustituciones, su texto original se guarda en la línea con la clave 'key'.
+    private String target(TLine tline, String key, String message) throws MissingFileException, SyntaxException {
+        skipBlanks();
+        if (pos >= length || isOperator(input.charAt(pos))) {
+            throw new MissingFileException(message);
+        }
+        String target = readWord();
+        if (key != null && (expandable || tline.targetSources != null)) {
+            if (tline.targetSources == null) {
+                tline.targetSources = new HashMap<>();
+            }
+            if (expandable) {
+                tline.targetSources.put(key, input.substring(wordStart, pos));
+            } else {
+                tline.targetSources.remove(key);
+            }
+        }
+        return target;
+    }
+
+    // Lee una palabra completa, quitando comillas y resolviendo escapes.
+    // Las partes entre comillas y sin comillas seguidas forman una sola palabra (a"b c" -> ab c).
+    private String readWord() throws SyntaxException {
+        word.setLength(0);
+        pattern.setLength(0);
+        glob = false;
+        expandable = false;
+        wordStart = pos;
+        while (pos < length) {
+            char c = input.charAt(pos);
+            if (isBlank(c) || isOperator(c)) {
+                break;
+            }
+            pos++;
+            switch (c) {
+                case '\'' -> {  // Comillas simples: todo es literal hasta la siguiente comilla
+                    int end = input.indexOf('\'', pos);
+                    if (end < 0) {
+                        throw new SyntaxException("Unterminated quote '");
+                    }
+                    for (int i = pos; i < end; i++) {
+                        literal(input.charAt(i));
+                    }
+                    pos = end + 1;
+                }
+                case '"' -> readDoubleQuoted();
+                case '`' -> substitution(backquoteEnd(input, pos - 1));
+                case '\\' -> {  // Escape fuera de comillas: el siguiente carácter es literal
+                    if (pos < length) {
+                        literal(input.charAt(pos++));
+                    }
+                }
+                case '*', '?', '[' -> {  // Comodín sin comillas: la palabra se expandirá
+                    word.append(c);
+                    pattern.append(c);
+                    glob = true;
+                }
+                default -> {
+                    if (c == '$' && pos < length && input.charAt(pos) == '(') {
+                        substitution(substitutionEnd(input, pos - 1));
+                        continue;
+                    }
+                    if (c == '$' && variableEnd(input, pos - 1) > 0) {
+                        substitution(variableEnd(input, pos - 1));
+                        continue;
+                    }
+                    word.append(c);
+                    if (c == '{' || c == '}' || c == ',') {
+                        // Las llaves no son comodines: en el patrón se protegen como literales.
+                        pattern.append('\\');
+                    }
+                    pattern.append(c);
+                }
+            }
+        }
+        return word.toString();
+    }
+
+    // Añade un carácter literal (entre comillas o escapado) a la palabra y, protegido, a su patrón.
+    private void literal(char c) {
+        word.append(c);
+        if ("*?[]{}\\,".indexOf(c) >= 0) {
+            pattern.append('\\');
+        }
+        pattern.append(c);
+    }
+
+    // Sustitución de comandos que empieza en pos - 1 y termina en 'end': se copia tal cual.
+    private void substitution(int end) {
+        word.append(input, pos - 1, end);
+        pos = end;
+        expandable = true;
+    }
+
+    // Lee el contenido entre comillas dobles. Dentro solo se escapan \", \\, \$ y \`.
+    private void readDoubleQuoted() throws SyntaxException {
+        while (pos < length) {
+            char c = input.charAt(pos++);
+            if (c == '"') {
+                return;
+            }
+            if (c == '`') {
+                substitution(backquoteEnd(input, pos - 1));
+                continue;
+            }
+            if (c == '$' && pos < length && input.charAt(pos) == '(') {
+                substitution(substitutionEnd(input, pos - 1));
+                continue;
+            }
+            if (c == '$' && variableEnd(input, pos - 1) > 0) {
+                substitution(variableEnd(input, pos - 1));
+                continue;
+            }
+            if (c == '\\' && pos < length) {
+                char next = input.charAt(pos);
+                if (next == '"' || next == '\\' || next == '$' || next == '`') {
+                    literal(next);
+                    pos++;
+                    continue;
+                }
+            }
+            literal(c);
+        }
+        throw new SyntaxException("Unterminated quote \"");
+    }
+
+    // Posición siguiente al ')' que cierra la sustitución $( que empieza en 'start'.
+    // Se tienen en cuenta los paréntesis anidados, las comillas y los escapes de dentro.
+    public static int substitutionEnd(String s, int start) throws SyntaxException {
+        int depth = 0;
+        for (int i = start + 1; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\' -> i++;
+                case '\'' -> {
+                    i = s.indexOf('\'', i + 1);
+                    if (i < 0) {
+                        throw new SyntaxException("Unterminated quote '");
+                    }
+                }
+                case '"' -> {
+                    i++;
+                    while (i < s.length() && s.charAt(i) != '"') {
+                        if (s.charAt(i) == '\\') {
+                            i++;
                         }
-                        argv.add(token);  // Agregar el token a los argumentos
-                        break;
+                        i++;
+                    }
+                }
+                case '`' -> i = backquoteEnd(s, i) - 1;
+                case '(' -> depth++;
+                case ')' -> {
+                    if (--depth == 0) {
+                        return i + 1;
+                    }
+                }
+                default -> {
                 }
             }
+        }
+        throw new SyntaxException("Unterminated command substitution $(");
+    }
+
+    // Posición siguiente a la referencia a una variable que empieza con el '$' de 'start': $VAR,
+    // ${VAR}, ${VAR:-valor}, $? o $$. Devuelve -1 si el '$' no empieza ninguna (es un '$' literal).
+    public static int variableEnd(String s, int start) throws SyntaxException {
+        int i = start + 1;
+        if (i >= s.length()) {
+            return -1;
+        }
+        char c = s.charAt(i);
+        if (c == '?' || c == '$') {
+            return i + 1;
+        }
+        if (isNameStart(c)) {
+            while (i < s.length() && isNamePart(s.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+        if (c != '{') {
+            return -1;
+        }
+        // ${...}: hasta la llave que cierra, saltando las referencias anidadas del valor por defecto.
+        int depth = 0;
+        for (; i < s.length(); i++) {
+            c = s.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                checkParameter(s.substring(start, i + 1));
+                return i + 1;
+            }
+        }
+        throw new SyntaxException("Unterminated parameter expansion ${");
+    }
 
-            // Crear un comando y agregarlo a la estructura de la línea de comandos
-            if (filename != null && !argv.isEmpty()) {  // Evitar comandos vacíos
-                TCommand command = new TCommand(filename, argv);
-                tline.addCommand(command);
+    // Comprueba que ${...} tiene una forma soportada: ${VAR}, ${VAR:-valor}, ${VAR-valor}, ${?} o ${$}.
+    private static void checkParameter(String text) throws SyntaxException {
+        String inner = text.substring(2, text.length() - 1);
+        int i = 0;
+        if (inner.startsWith("?") || inner.startsWith("$")) {
+            i = 1;
+        } else {
+            while (i < inner.length() && (i == 0 ? isNameStart(inner.charAt(i)) : isNamePart(inner.charAt(i)))) {
+                i++;
             }
         }
+        String rest = inner.substring(i);
+        if (i == 0 || !(rest.isEmpty() || rest.startsWith(":-") || rest.startsWith("-"))) {
+            throw new SyntaxException("Bad substitution " + text);
+        }
+    }
 
-        return tline;
+    public static boolean isNameStart(char c) {
+        return c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    public static boolean isNamePart(char c) {
+        return isNameStart(c) || (c >= '0' && c <= '9');
+    }
+
+    // Posición siguiente a la comilla invertida que cierra la que hay en 'start'.
+    public static int backquoteEnd(String s, int start) throws SyntaxException {
+        for (int i = start + 1; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '`') {
+                return i + 1;
+            }
+        }
+        throw new SyntaxException("Unterminated command substitution `");
+    }
+
+    // Avanza sobre los espacios en blanco.
+    private void skipBlanks() {
+        while (pos < length && isBlank(input.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    // Carácter a 'offset' posiciones de la actual, o 0 si se sale de la línea.
+    private char peek(int offset) {
+        int i = pos + offset;
+        return i < length ? input.charAt(i) : 0;
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    // Caracteres que terminan una palabra sin comillas.
+    private static boolean isOperator(char c) {
+        return c == '|' || c == '&' || c == '<' || c == '>' || c == ';' || c == '(' || c == ')';
     }
 }
@@ -0,0 +1,134 @@
+package shell;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tokenizer.TCommand;
+import tokenizer.TLine;
+import tokenizer.Tokenizer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Expansión de una línea ya tokenizada: variables ($VAR, ${VAR:-valor}, $?, $$), separación en
+// palabras de lo que no va entre comillas, sustituciones $(...) y asignaciones VAR=valor, y cómo
+// export y unset cambian el entorno de un contexto sin tocar el de sus copias.
+class ExpanderTest {
+
+    private ShellContext context;
+
+    @BeforeEach
+    void setUp() {
+        PrintStream sink = new PrintStream(new ByteArrayOutputStream(), true);
+        context = new ShellContext(System.getProperty("java.io.tmpdir"),
+                Map.of("PATH", System.getenv("PATH"), "EXPORTED", "fuera"), InputStream.nullInputStream(), sink, sink);
+    }
+
+    @Test
+    void defaultValueOnlyWhenUnsetOrEmpty() throws Exception {
+        context.assign("EMPTY", "");
+        context.assign("SET", "valor");
+        assertEquals(List.of("echo", "def", "def", "", "valor", "otro valor"),
+                argv("echo ${UNSET:-def} ${EMPTY:-def} \"${EMPTY-def}\" ${SET:-def} \"${UNSET:-otro $SET}\""));
+    }
+
+    @Test
+    void lastStatusAndPid() throws Exception {
+        context.setLastStatus(3);
+        assertEquals(List.of("echo", "3", Long.toString(ProcessHandle.current().pid())), argv("echo $? $$"));
+    }
+
+    @Test
+    void unquotedVariablesAreSplitIntoWords() throws Exception {
+        context.assign("V", "  a  b\tc ");
+        assertEquals(List.of("echo", "a", "b", "c"), argv("echo $V"));
+        assertEquals(List.of("echo", "  a  b\tc "), argv("echo \"$V\""));
+        // Los blancos del principio y del final también separan del texto que va pegado.
+        assertEquals(List.of("echo", "x", "a", "b", "c", "y"), argv("echo x$V\"y\""));
+        context.assign("W", "a b");
+        assertEquals(List.of("echo", "xa", "by"), argv("echo x${W}y"));
+    }
+
+    @Test
+    void emptyUnquotedWordsDisappearButQuotedOnesStay() throws Exception {
+        assertEquals(List.of("echo", "antes", "después"), argv("echo antes $UNSET después"));
+        assertEquals(List.of("echo", "antes", "", "después"), argv("echo antes \"$UNSET\" después"));
+    }
+
+    @Test
+    void substitutionsAreSplitUnlessQuotedAndLoseTrailingNewlines() throws Exception {
+        assertEquals(List.of("echo", "x", "y", "z"), argv("echo $(printf 'x  y\\nz\\n\\n')"));
+        assertEquals(List.of("echo", "x  y\nz"), argv("echo \"$(printf 'x  y\\nz\\n\\n')\""));
+        assertEquals(List.of("echo", ""), argv("echo \"$(true)\""));
+    }
+
+    @Test
+    void assignmentBeforeCommandOnlyAppliesToThatCommand() throws Exception {
+        TLine line = expand("V=x OTHER=$EXPORTED env");
+        TCommand command = line.getCommands().getFirst();
+        assertEquals(List.of("env"), command.getArgv());
+        assertEquals(Map.of("V", "x", "OTHER", "fuera"), command.getVariables());
+        assertNull(context.variable("V"));
+    }
+
+    @Test
+    void standaloneAssignmentChangesTheShellAndLeavesNoCommand() throws Exception {
+        TLine line = expand("A=1 B=$A");
+        assertEquals(0, line.getNcommands());
+        assertEquals("1", context.variable("A"));
+        assertEquals("1", context.variable("B"));
+        // Sin export no llega al entorno de los comandos.
+        assertNull(context.getenv("A"));
+    }
+
+    @Test
+    void exportAndUnsetDoNotLeakIntoCopies() {
+        context.assign("LOCAL", "1");
+        ShellContext copy = context.copy();
+        Environment before = context.environment();
+
+        context.export("LOCAL", null);
+        assertEquals("1", context.getenv("LOCAL"));
+        assertNull(context.variables().get("LOCAL"));
+        // La copia conserva el entorno que tenía y la variable sin exportar.
+        assertNull(copy.getenv("LOCAL"));
+        assertEquals("1", copy.variable("LOCAL"));
+        assertNull(before.get("LOCAL"));
+
+        // Asignar una variable exportada cambia el entorno; unset la quita de todas partes.
+        context.assign("EXPORTED", "dentro");
+        assertEquals("dentro", context.getenv("EXPORTED"));
+        assertEquals("fuera", copy.getenv("EXPORTED"));
+        context.unset("EXPORTED");
+        context.unset("LOCAL");
+        assertNull(context.variable("EXPORTED"));
+        assertNull(context.variable("LOCAL"));
+        assertEquals("fuera", copy.getenv("EXPORTED"));
+    }
+
+    private List<String> argv(String source) throws Exception {
+        return expand(source).getCommands().getFirst().getArgv();
+    }
+
+    private TLine expand(String source) throws Exception {
+        TLine line = Tokenizer.tokenize(source);
+        Exception[] error = new Exception[1];
+        context.run(() -> {
+            try {
+                Expander.expand(line);
+            } catch (Exception e) {
+                error[0] = e;
+            }
+            return 0;
+        });
+        if (error[0] != null) {
+            throw error[0];
+        }
+        return line;
+    }
+}
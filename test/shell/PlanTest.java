@@ -0,0 +1,109 @@
+package shell;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Ejecución de listas de comandos: ';' ejecuta todo, '&&' y '||' saltan según el código del
+// anterior, $? ve el último código y set -e termina en el primer fallo que no es la condición de
+// una cadena && o ||. Las asignaciones dejan rastro de qué comandos se llegaron a ejecutar.
+class PlanTest {
+
+    private ShellContext context;
+
+    @BeforeEach
+    void setUp() {
+        PrintStream sink = new PrintStream(new ByteArrayOutputStream(), true);
+        context = new ShellContext(System.getProperty("java.io.tmpdir"), Map.of("PATH", System.getenv("PATH")),
+                InputStream.nullInputStream(), sink, sink);
+    }
+
+    @Test
+    void semicolonRunsEverythingAndKeepsTheLastStatus() throws Exception {
+        Plan.Result result = run("A=1; false; B=2; false");
+        assertEquals(1, result.status());
+        assertFalse(result.exit());
+        assertEquals("1", context.variable("A"));
+        assertEquals("2", context.variable("B"));
+    }
+
+    @Test
+    void andRunsOnlyAfterSuccess() throws Exception {
+        run("true && A=1; false && B=2");
+        assertEquals("1", context.variable("A"));
+        assertNull(context.variable("B"));
+    }
+
+    @Test
+    void orRunsOnlyAfterFailure() throws Exception {
+        run("false || A=1; true || B=2");
+        assertEquals("1", context.variable("A"));
+        assertNull(context.variable("B"));
+    }
+
+    @Test
+    void chainsAreEvaluatedLeftToRight() throws Exception {
+        // (false && A=1) || B=2: el || ve el fallo de false, porque A=1 no se ejecutó.
+        assertEquals(0, run("false && A=1 || B=2").status());
+        assertNull(context.variable("A"));
+        assertEquals("2", context.variable("B"));
+        // (true || A=1) && B=3: el && ve el éxito de true.
+        run("true || A=1 && B=3");
+        assertNull(context.variable("A"));
+        assertEquals("3", context.variable("B"));
+    }
+
+    @Test
+    void lastStatusIsVisibleToTheNextCommand() throws Exception {
+        run("false; S=$?; true; T=$?");
+        assertEquals("1", context.variable("S"));
+        assertEquals("0", context.variable("T"));
+    }
+
+    @Test
+    void exitOnErrorStopsAtTheFirstFailure() throws Exception {
+        Plan.Result result = run("set -e; false; A=1");
+        assertTrue(result.exit());
+        assertEquals(1, result.status());
+        assertNull(context.variable("A"));
+    }
+
+    @Test
+    void exitOnErrorIgnoresFailedConditions() throws Exception {
+        context.setExitOnError(true);
+        Plan.Result result = run("false || true; false && true; A=1");
+        assertFalse(result.exit());
+        assertEquals("1", context.variable("A"));
+        // El último comando de la cadena sí cuenta.
+        result = run("true && false; B=1");
+        assertTrue(result.exit());
+        assertNull(context.variable("B"));
+    }
+
+    @Test
+    void exitUsesTheLastStatus() throws Exception {
+        Plan.Result result = run("false; exit");
+        assertTrue(result.exit());
+        assertEquals(1, result.status());
+        assertEquals(7, run("exit 7").status());
+    }
+
+    private Plan.Result run(String source) throws Exception {
+        Plan plan = Plan.compile(source);
+        Plan.Result[] result = new Plan.Result[1];
+        context.run(() -> {
+            result[0] = plan.execute();
+            return result[0].status();
+        });
+        return result[0];
+    }
+}
@@ -0,0 +1,113 @@
+package tokenizer;
+
+import exceptions.MissingFileException;
+import exceptions.SyntaxException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// El tokenizer de un solo recorrido debe dar el mismo TLine que el original (LegacyTokenizer) en
+// toda la sintaxis que este ya entendía. Las comillas son la excepción: el original las dejaba en
+// los argumentos y partía la línea por un '|' entre comillas, así que esos casos se comprueban
+// contra el resultado esperado.
+class TokenizerTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "ls",
+            "ls -l /tmp",
+            "   ls   -l    /tmp   ",
+            "ls -l | grep txt",
+            "cat fichero | sort | uniq -c | head -3",
+            "ls|wc -l",
+            "ls | | wc",
+            "sort < entrada",
+            "sort <entrada",
+            "ls > salida",
+            "ls >salida",
+            "ls >> salida",
+            "ls 2> errores",
+            "ls 2>> errores",
+            "sort < entrada > salida 2> errores",
+            "cat < entrada | sort | uniq > salida 2>> errores",
+            "ls >> a > b",
+            "sleep 10 &",
+            "sleep 10&",
+            "ls -l | wc -l &",
+            "sort < entrada > salida &",
+    })
+    void sameTLineAsLegacyTokenizer(String line) throws Exception {
+        assertEquals(describe(LegacyTokenizer.tokenize(line)), describe(Tokenizer.tokenize(line)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", " ", "   ", "\t", " \t  "})
+    void emptyAndBlankLinesGiveNoTLine(String line) throws Exception {
+        assertNull(LegacyTokenizer.tokenize(line));
+        assertNull(Tokenizer.tokenize(line));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ls <", "ls >", "ls >>", "ls 2>", "ls 2>>", "ls | sort >"})
+    void missingRedirectionFileFailsLikeLegacyTokenizer(String line) {
+        assertThrows(MissingFileException.class, () -> LegacyTokenizer.tokenize(line));
+        assertThrows(MissingFileException.class, () -> Tokenizer.tokenize(line));
+    }
+
+    @Test
+    void quotedPipeDoesNotSplitThePipeline() throws Exception {
+        TLine tline = Tokenizer.tokenize("echo 'a | b' \"c|d\" | wc -c");
+        assertEquals(2, tline.getNcommands());
+        assertEquals(List.of("echo", "a | b", "c|d"), tline.getCommands().get(0).getArgv());
+        assertEquals(List.of("wc", "-c"), tline.getCommands().get(1).getArgv());
+    }
+
+    @Test
+    void quotedRedirectionsAndAmpersandAreArguments() throws Exception {
+        TLine tline = Tokenizer.tokenize("echo '<' \">\" '>>' '&' \"2>\"");
+        assertEquals(List.of("echo", "<", ">", ">>", "&", "2>"), tline.getCommands().getFirst().getArgv());
+        assertNull(tline.getRedirectInput());
+        assertNull(tline.getRedirectOutput());
+        assertNull(tline.getRedirectError());
+        assertEquals(false, tline.isBackground());
+    }
+
+    @Test
+    void quotedRedirectionTargetsLoseTheirQuotes() throws Exception {
+        TLine tline = Tokenizer.tokenize("sort < 'mi entrada' >> \"mi salida\" 2> err");
+        assertEquals("mi entrada", tline.getRedirectInput());
+        assertEquals("mi salida", tline.getRedirectOutput());
+        assertTrue(tline.isAppendOutput());
+        assertEquals("err", tline.getRedirectError());
+    }
+
+    @Test
+    void unterminatedQuoteIsASyntaxError() {
+        assertThrows(SyntaxException.class, () -> Tokenizer.tokenize("echo 'sin cerrar"));
+        assertThrows(SyntaxException.class, () -> Tokenizer.tokenize("echo \"sin cerrar | wc"));
+    }
+
+    // Lo que el resto de la shell lee de un TLine, en un formato fácil de comparar.
+    private static String describe(TLine tline) {
+        if (tline == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("ncommands=").append(tline.getNcommands());
+        for (TCommand command : tline.getCommands()) {
+            sb.append(" [").append(command.getFilename()).append(' ').append(command.getArgv()).append(']');
+        }
+        sb.append(" <").append(tline.getRedirectInput())
+                .append(" >").append(tline.getRedirectOutput()).append(tline.isAppendOutput() ? " append" : "")
+                .append(" 2>").append(tline.getRedirectError()).append(tline.isAppendError() ? " append" : "")
+                .append(tline.isBackground() ? " &" : "");
+        return sb.toString();
+    }
+}